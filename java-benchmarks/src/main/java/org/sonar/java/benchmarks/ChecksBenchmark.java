@@ -0,0 +1,85 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.benchmarks;
+
+import com.google.common.base.Throwables;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.java.JavaConfiguration;
+import org.sonar.java.ast.JavaAstScanner;
+import org.sonar.java.ast.parser.JavaParser;
+import org.sonar.java.checks.CheckList;
+import org.sonar.java.model.VisitorsBridge;
+import org.sonar.plugins.java.api.JavaCheck;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole analysis of the corpus by all the checks of {@link CheckList#getJavaChecks()} with their default parameters:
+ * parsing, semantic model, symbolic execution and checks. Issues are collected in memory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ChecksBenchmark {
+
+  private List<File> files;
+  private List<JavaCheck> checks;
+
+  @Setup
+  public void setup() {
+    files = Corpus.files();
+    checks = new ArrayList<>();
+    for (Class<? extends JavaCheck> checkClass : CheckList.getJavaChecks()) {
+      try {
+        checks.add(checkClass.newInstance());
+      } catch (ReflectiveOperationException e) {
+        throw Throwables.propagate(e);
+      }
+    }
+  }
+
+  @Benchmark
+  public void analyze() {
+    JavaConfiguration conf = new JavaConfiguration(Corpus.CHARSET);
+    VisitorsBridge visitorsBridge = new VisitorsBridge(checks, Collections.<File>emptyList(), null);
+    visitorsBridge.setCharset(conf.getCharset());
+    visitorsBridge.setJavaVersion(conf.javaVersion());
+    JavaAstScanner scanner = new JavaAstScanner(JavaParser.createParser(conf.getCharset()));
+    scanner.setVisitorBridge(visitorsBridge);
+    scanner.scan(files);
+  }
+
+}
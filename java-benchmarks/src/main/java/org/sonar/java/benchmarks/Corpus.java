@@ -0,0 +1,115 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.benchmarks;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.apache.commons.io.FileUtils;
+import org.sonar.java.ast.parser.JavaParser;
+import org.sonar.java.resolve.SemanticModel;
+import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.squidbridge.api.AnalysisException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Java sources on which benchmarks are run, by default the ones of the struts project used by integration tests.
+ * Another directory can be given with the system property {@value #CORPUS_PROPERTY}.
+ */
+public final class Corpus {
+
+  public static final String CORPUS_PROPERTY = "sonar.java.benchmarks.corpus";
+  public static final Charset CHARSET = Charsets.UTF_8;
+
+  private static final String DEFAULT_CORPUS = "its/plugin/projects/struts-1.3.9-lite";
+
+  private Corpus() {
+  }
+
+  public static List<File> files() {
+    File directory = new File(System.getProperty(CORPUS_PROPERTY, DEFAULT_CORPUS));
+    if (!directory.isDirectory()) {
+      throw new IllegalStateException("Corpus not found: " + directory.getAbsolutePath() + ", set the system property " + CORPUS_PROPERTY);
+    }
+    List<File> files = Lists.newArrayList(FileUtils.listFiles(directory, new String[] {"java"}, true));
+    // stable order, whatever the file system
+    Collections.sort(files);
+    return files;
+  }
+
+  public static List<String> sources() {
+    ImmutableList.Builder<String> sources = ImmutableList.builder();
+    for (File file : files()) {
+      try {
+        sources.add(FileUtils.readFileToString(file, CHARSET.name()));
+      } catch (IOException e) {
+        throw new AnalysisException("Unable to read " + file.getAbsolutePath(), e);
+      }
+    }
+    return sources.build();
+  }
+
+  public static List<CompilationUnitTree> parse(Collection<String> sources) {
+    ImmutableList.Builder<CompilationUnitTree> trees = ImmutableList.builder();
+    for (String source : sources) {
+      trees.add((CompilationUnitTree) JavaParser.createParser(CHARSET).parse(source));
+    }
+    return trees.build();
+  }
+
+  /**
+   * @return trees of the corpus, with their semantic model
+   */
+  public static List<CompilationUnitTree> parseWithSemantic(Collection<String> sources) {
+    List<CompilationUnitTree> trees = parse(sources);
+    for (CompilationUnitTree tree : trees) {
+      SemanticModel.createFor(tree, Collections.<File>emptyList());
+    }
+    return trees;
+  }
+
+  /**
+   * @return methods of the given trees which have a body
+   */
+  public static List<MethodTree> methods(Collection<CompilationUnitTree> trees) {
+    final ImmutableList.Builder<MethodTree> methods = ImmutableList.builder();
+    for (CompilationUnitTree tree : trees) {
+      tree.accept(new BaseTreeVisitor() {
+        @Override
+        public void visitMethod(MethodTree tree) {
+          if (tree.block() != null) {
+            methods.add(tree);
+          }
+          super.visitMethod(tree);
+        }
+      });
+    }
+    return methods.build();
+  }
+
+}
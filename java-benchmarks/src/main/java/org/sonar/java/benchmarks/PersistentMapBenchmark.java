@@ -0,0 +1,143 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.java.collections.AVLTree;
+import org.sonar.java.collections.HashTrie;
+import org.sonar.java.collections.PMap;
+import org.sonar.java.se.SymbolicValue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the persistent maps used by program states of the symbolic execution, keyed by symbolic values.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PersistentMapBenchmark {
+
+  public enum Implementation {
+    AVL_TREE {
+      @Override
+      PMap<SymbolicValue, Object> empty() {
+        return AVLTree.create();
+      }
+    },
+    HASH_TRIE {
+      @Override
+      PMap<SymbolicValue, Object> empty() {
+        return HashTrie.create();
+      }
+    },
+    HASH_TRIE_FOR_INT_KEYS {
+      @Override
+      PMap<SymbolicValue, Object> empty() {
+        return HashTrie.createForIntKeys();
+      }
+    };
+
+    abstract PMap<SymbolicValue, Object> empty();
+  }
+
+  @Param
+  public Implementation implementation;
+
+  @Param({"8", "64", "512"})
+  public int size;
+
+  private List<SymbolicValue> keys;
+  private List<SymbolicValue> shuffledKeys;
+  private PMap<SymbolicValue, Object> map;
+  private PMap<SymbolicValue, Object> mapBuiltInOtherOrder;
+
+  @Setup
+  public void setup() {
+    keys = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      keys.add(new SymbolicValue(i));
+    }
+    shuffledKeys = new ArrayList<>(keys);
+    Collections.shuffle(shuffledKeys, new Random(0));
+    map = build(keys);
+    mapBuiltInOtherOrder = build(shuffledKeys);
+  }
+
+  private PMap<SymbolicValue, Object> build(List<SymbolicValue> symbolicValues) {
+    PMap<SymbolicValue, Object> result = implementation.empty();
+    for (SymbolicValue symbolicValue : symbolicValues) {
+      result = result.put(symbolicValue, Boolean.TRUE);
+    }
+    return result;
+  }
+
+  @Benchmark
+  public PMap<SymbolicValue, Object> put() {
+    return build(shuffledKeys);
+  }
+
+  @Benchmark
+  public void get(Blackhole blackhole) {
+    for (SymbolicValue key : shuffledKeys) {
+      blackhole.consume(map.get(key));
+    }
+  }
+
+  @Benchmark
+  public PMap<SymbolicValue, Object> remove() {
+    PMap<SymbolicValue, Object> result = map;
+    for (SymbolicValue key : shuffledKeys) {
+      result = result.remove(key);
+    }
+    return result;
+  }
+
+  /**
+   * Same pattern as the lookup of a program state in the exploded graph: a state derived from an existing one is hashed and compared.
+   */
+  @Benchmark
+  public void updateAndCompare(Blackhole blackhole) {
+    for (SymbolicValue key : shuffledKeys) {
+      PMap<SymbolicValue, Object> updated = map.put(key, Boolean.FALSE).put(key, Boolean.TRUE);
+      blackhole.consume(updated.hashCode());
+      blackhole.consume(updated.equals(mapBuiltInOtherOrder));
+    }
+  }
+
+}
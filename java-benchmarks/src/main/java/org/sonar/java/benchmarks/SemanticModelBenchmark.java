@@ -0,0 +1,76 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.java.resolve.SemanticModel;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SemanticModelBenchmark {
+
+  private List<String> sources;
+  private List<CompilationUnitTree> trees;
+
+  @Setup
+  public void setup() {
+    sources = Corpus.sources();
+  }
+
+  /**
+   * Symbols are attached to the trees by the semantic model, so every invocation needs fresh trees.
+   * An invocation takes long enough for this per-invocation setup not to bias the measure.
+   */
+  @Setup(Level.Invocation)
+  public void parse() {
+    trees = Corpus.parse(sources);
+  }
+
+  @Benchmark
+  public void createSemanticModel(Blackhole blackhole) {
+    for (CompilationUnitTree tree : trees) {
+      SemanticModel semanticModel = SemanticModel.createFor(tree, Collections.<File>emptyList());
+      semanticModel.done();
+      blackhole.consume(semanticModel);
+    }
+  }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.java.JavaConfiguration;
+import org.sonar.java.model.DefaultJavaFileScannerContext;
+import org.sonar.java.resolve.SemanticModel;
+import org.sonar.java.se.ExplodedGraphWalker;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.squidbridge.api.SourceFile;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SymbolicExecutionBenchmark {
+
+  private final List<DefaultJavaFileScannerContext> contexts = new ArrayList<>();
+  private final List<List<MethodTree>> methods = new ArrayList<>();
+
+  @Setup
+  public void setup() {
+    List<File> files = Corpus.files();
+    List<CompilationUnitTree> trees = Corpus.parse(Corpus.sources());
+    JavaConfiguration conf = new JavaConfiguration(Corpus.CHARSET);
+    for (int i = 0; i < trees.size(); i++) {
+      CompilationUnitTree tree = trees.get(i);
+      File file = files.get(i);
+      SemanticModel semanticModel = SemanticModel.createFor(tree, Collections.<File>emptyList());
+      contexts.add(new DefaultJavaFileScannerContext(tree, new SourceFile(file.getPath()), file, semanticModel, false, null, conf.javaVersion(), true));
+      methods.add(Corpus.methods(Collections.singletonList(tree)));
+    }
+  }
+
+  @Benchmark
+  public void explore() {
+    for (int i = 0; i < contexts.size(); i++) {
+      DefaultJavaFileScannerContext context = contexts.get(i);
+      for (MethodTree method : methods.get(i)) {
+        try {
+          method.accept(new ExplodedGraphWalker(context));
+        } catch (ExplodedGraphWalker.MaximumStepsReachedException | ExplodedGraphWalker.MaximumNodesReachedException
+          | ExplodedGraphWalker.ExplodedGraphTooBigException e) {
+          // same as SymbolicExecutionVisitor: exploration of the method is given up
+        }
+      }
+      // control flow graphs are built again by each invocation, as in a real analysis
+      context.clearControlFlowCache();
+    }
+  }
+
+}
@@ -28,6 +28,7 @@ import org.sonar.java.cfg.CFG;
 import org.sonar.java.cfg.LiveVariables;
 import org.sonar.java.cfg.LocalVariableReadExtractor;
 import org.sonar.java.checks.helpers.ExpressionsHelper;
+import org.sonar.java.model.DefaultJavaFileScannerContext;
 import org.sonar.java.tag.Tag;
 import org.sonar.plugins.java.api.semantic.Symbol;
 import org.sonar.plugins.java.api.tree.AssignmentExpressionTree;
@@ -84,8 +85,8 @@ public class DeadStoreCheck extends SubscriptionBaseVisitor {
     }
 
     Symbol.MethodSymbol methodSymbol = methodTree.symbol();
-    CFG cfg = CFG.build(methodTree);
-    LiveVariables liveVariables = LiveVariables.analyze(cfg);
+    CFG cfg = DefaultJavaFileScannerContext.cfgOf(context, methodTree);
+    LiveVariables liveVariables = DefaultJavaFileScannerContext.liveVariablesOf(context, methodTree, cfg);
     // Liveness analysis provides information only for block boundaries, so we should do analysis between elements within blocks
     for (CFG.Block block : cfg.blocks()) {
       checkElements(block, liveVariables.getOut(block), methodSymbol);
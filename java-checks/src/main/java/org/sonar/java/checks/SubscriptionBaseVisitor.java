@@ -21,19 +21,13 @@ package org.sonar.java.checks;
 
 import org.sonar.java.resolve.SemanticModel;
 import org.sonar.plugins.java.api.IssuableSubscriptionVisitor;
-import org.sonar.plugins.java.api.JavaFileScannerContext;
 
 public abstract class SubscriptionBaseVisitor extends IssuableSubscriptionVisitor {
 
-  private SemanticModel semanticModel;
-
-  @Override
-  public void scanFile(JavaFileScannerContext context) {
-    semanticModel = (SemanticModel) context.getSemanticModel();
-    super.scanFile(context);
-  }
-
+  /**
+   * Read from the context rather than kept on scanFile, so that subclasses not driving their own traversal can be fused.
+   */
   public SemanticModel getSemanticModel() {
-    return semanticModel;
+    return context == null ? null : (SemanticModel) context.getSemanticModel();
   }
 }
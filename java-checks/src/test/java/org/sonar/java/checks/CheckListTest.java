@@ -21,14 +21,19 @@ package org.sonar.java.checks;
 
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import org.apache.commons.io.FileUtils;
 import org.junit.Test;
 import org.sonar.api.server.rule.RulesDefinition;
 import org.sonar.api.server.rule.RulesDefinitionAnnotationLoader;
 import org.sonar.java.ast.JavaAstScanner;
+import org.sonar.java.ast.visitors.SubscriptionVisitor;
+import org.sonar.java.ast.visitors.SubscriptionVisitorDispatcher;
 import org.sonar.java.model.VisitorsBridge;
 import org.sonar.plugins.java.api.JavaFileScanner;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.tree.Tree;
 import org.sonar.squidbridge.api.CodeVisitor;
 
 import java.io.File;
@@ -164,6 +169,41 @@ public class CheckListTest {
     }
   }
 
+  /**
+   * Ensures that most subscription checks are executed with a single traversal of each file
+   */
+  @Test
+  public void subscription_checks_should_be_fused() throws Exception {
+    List<JavaFileScanner> scanners = Lists.newArrayList();
+    for (Class check : CheckList.getChecks()) {
+      CodeVisitor visitor = (CodeVisitor) check.newInstance();
+      if (visitor instanceof JavaFileScanner) {
+        scanners.add((JavaFileScanner) visitor);
+      }
+    }
+    SubscriptionVisitorDispatcher dispatcher = new SubscriptionVisitorDispatcher(scanners);
+    for (JavaFileScanner scanner : scanners) {
+      if (scanner instanceof SubscriptionVisitor
+        && !overrides(scanner.getClass(), "scanFile", JavaFileScannerContext.class)
+        && !overrides(scanner.getClass(), "scanTree", Tree.class)) {
+        assertThat(dispatcher.fusedVisitors()).as(scanner.getClass().getSimpleName() + " should be fused").contains(scanner);
+        assertThat(dispatcher.unfusedScanners()).excludes(scanner);
+      }
+    }
+  }
+
+  private static boolean overrides(Class<?> clazz, String methodName, Class<?> parameterType) {
+    for (Class<?> c = clazz; c != SubscriptionVisitor.class; c = c.getSuperclass()) {
+      try {
+        c.getDeclaredMethod(methodName, parameterType);
+        return true;
+      } catch (NoSuchMethodException e) {
+        // not overridden at this level
+      }
+    }
+    return false;
+  }
+
   @Test
   public void private_constructor() throws Exception {
     Constructor constructor = CheckList.class.getDeclaredConstructor();
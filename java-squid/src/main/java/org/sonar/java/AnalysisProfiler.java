@@ -0,0 +1,209 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Throwables;
+import com.google.common.io.Files;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records wall time, CPU time and allocated bytes of every phase of the analysis of every file: parsing, semantic model,
+ * symbolic execution and each {@link org.sonar.plugins.java.api.JavaFileScanner}. Phases must be measured on the thread doing the work,
+ * and must not be nested, so that the total of a file is the sum of its phases.
+ * Checks are reported under the key of their rule, so that several rules instantiating the same template are told apart.
+ * CPU time and allocated bytes are reported as -1 when not supported by the JVM. They only cover the thread doing the measure:
+ * work done by the workers of parallel parsing or of parallel symbolic execution is not counted, only the time spent waiting for it.
+ */
+public class AnalysisProfiler {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AnalysisProfiler.class);
+
+  public static final String PARSING = "parsing";
+  public static final String SEMANTIC_MODEL = "semantic model";
+  public static final String SYMBOLIC_EXECUTION = "symbolic execution";
+
+  private static final int MAX_REPORTED_FILES = 100;
+
+  private static final Comparator<Stats> SLOWEST_FIRST = new Comparator<Stats>() {
+    @Override
+    public int compare(Stats s1, Stats s2) {
+      return Long.compare(s2.wallTime, s1.wallTime);
+    }
+  };
+
+  private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+  private final boolean cpuTimeSupported;
+  private final boolean allocationSupported;
+  private final File reportFile;
+  private final Map<String, Stats> phases = new HashMap<>();
+  private final Map<String, Stats> files = new HashMap<>();
+
+  /**
+   * @param reportFile JSON file written by {@link #save()}
+   */
+  public AnalysisProfiler(File reportFile) {
+    this.reportFile = reportFile;
+    this.cpuTimeSupported = threads.isCurrentThreadCpuTimeSupported() && threads.isThreadCpuTimeEnabled();
+    this.allocationSupported = isAllocationSupported(threads);
+  }
+
+  private static boolean isAllocationSupported(ThreadMXBean threads) {
+    try {
+      return threads instanceof com.sun.management.ThreadMXBean
+        && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()
+        && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemoryEnabled();
+    } catch (LinkageError e) {
+      // com.sun.management is not available on all JVMs
+      return false;
+    }
+  }
+
+  public Measure start() {
+    return new Measure(System.nanoTime(), cpuTime(), allocatedBytes());
+  }
+
+  public void stop(Measure start, String phase, File file) {
+    long wallTime = System.nanoTime() - start.wallTime;
+    long cpuTime = cpuTimeSupported ? (cpuTime() - start.cpuTime) : -1;
+    long allocatedBytes = allocationSupported ? (allocatedBytes() - start.allocatedBytes) : -1;
+    stats(phases, phase).add(wallTime, cpuTime, allocatedBytes);
+    stats(files, file.getPath()).add(wallTime, cpuTime, allocatedBytes);
+  }
+
+  private static Stats stats(Map<String, Stats> statsByName, String name) {
+    Stats stats = statsByName.get(name);
+    if (stats == null) {
+      stats = new Stats(name);
+      statsByName.put(name, stats);
+    }
+    return stats;
+  }
+
+  private long cpuTime() {
+    return cpuTimeSupported ? threads.getCurrentThreadCpuTime() : -1;
+  }
+
+  private long allocatedBytes() {
+    return allocationSupported ? ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+  }
+
+  /**
+   * Writes all the phases and the slowest files, slowest first.
+   */
+  public void save() {
+    StringBuilder json = new StringBuilder();
+    json.append("{\n  \"phases\": [");
+    append(json, sorted(phases), phases.size());
+    json.append("],\n  \"files\": [");
+    append(json, sorted(files), MAX_REPORTED_FILES);
+    json.append("]\n}\n");
+    try {
+      Files.createParentDirs(reportFile);
+      Files.write(json, reportFile, Charsets.UTF_8);
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+    LOG.info("Profiling report written to " + reportFile.getAbsolutePath());
+  }
+
+  private static List<Stats> sorted(Map<String, Stats> statsByName) {
+    List<Stats> result = new ArrayList<>(statsByName.values());
+    Collections.sort(result, SLOWEST_FIRST);
+    return result;
+  }
+
+  private static void append(StringBuilder json, List<Stats> stats, int max) {
+    for (int i = 0; i < Math.min(max, stats.size()); i++) {
+      Stats s = stats.get(i);
+      json.append(i == 0 ? "\n" : ",\n")
+        .append("    {\"name\": \"").append(escape(s.name))
+        .append("\", \"calls\": ").append(s.calls)
+        .append(", \"wallTimeMs\": ").append(s.wallTime / 1000000)
+        .append(", \"cpuTimeMs\": ").append(s.cpuTime < 0 ? -1 : (s.cpuTime / 1000000))
+        .append(", \"allocatedBytes\": ").append(s.allocatedBytes)
+        .append('}');
+    }
+    if (!stats.isEmpty()) {
+      json.append("\n  ");
+    }
+  }
+
+  private static String escape(String value) {
+    StringBuilder sb = new StringBuilder(value.length());
+    for (char c : value.toCharArray()) {
+      if (c == '"' || c == '\\') {
+        sb.append('\\').append(c);
+      } else if (c < ' ') {
+        sb.append(String.format("\\u%04x", (int) c));
+      } else {
+        sb.append(c);
+      }
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Counters of the current thread at the beginning of a phase.
+   */
+  public static final class Measure {
+    private final long wallTime;
+    private final long cpuTime;
+    private final long allocatedBytes;
+
+    private Measure(long wallTime, long cpuTime, long allocatedBytes) {
+      this.wallTime = wallTime;
+      this.cpuTime = cpuTime;
+      this.allocatedBytes = allocatedBytes;
+    }
+  }
+
+  private static final class Stats {
+    private final String name;
+    private int calls;
+    private long wallTime;
+    private long cpuTime;
+    private long allocatedBytes;
+
+    Stats(String name) {
+      this.name = name;
+    }
+
+    void add(long wallTime, long cpuTime, long allocatedBytes) {
+      calls++;
+      this.wallTime += wallTime;
+      this.cpuTime = cpuTime < 0 ? -1 : (this.cpuTime + cpuTime);
+      this.allocatedBytes = allocatedBytes < 0 ? -1 : (this.allocatedBytes + allocatedBytes);
+    }
+  }
+
+}
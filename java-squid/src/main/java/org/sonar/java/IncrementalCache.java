@@ -0,0 +1,279 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.java.model.FileContent;
+import org.sonar.java.resolve.BytecodeCache;
+import org.sonar.plugins.java.api.JavaCheck;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache of the issues raised by checks on each file, persisted from one analysis to the next.
+ * Checks are not executed on a file when its content, the configuration of the checks and the classes of the classpath it has been
+ * resolved against did not change since the analysis which filled the cache: recorded issues are replayed instead.
+ *
+ * Files for which an issue has been raised on another resource (for instance a directory) are never cached, as such issues depend on
+ * other files. Issues are recorded with the key of the rule which raised them, as several rules can be instances of the same template check.
+ */
+public class IncrementalCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(IncrementalCache.class);
+  private static final String MISSING_CLASS = "";
+  /**
+   * Written first in the cache file, to be changed whenever the content of the cache changes.
+   */
+  private static final int FORMAT_VERSION = 2;
+
+  private final File cacheFile;
+  private final String configuration;
+  private Map<String, FileEntry> previousEntries = new HashMap<>();
+  private final Map<String, FileEntry> entries = new HashMap<>();
+  private final Map<String, String> classFileHashes = new HashMap<>();
+  private int replayedFiles = 0;
+
+  /**
+   * @param configuration fingerprint of everything, besides the content of a file, which can change the issues raised on it
+   */
+  public IncrementalCache(File cacheFile, String configuration) {
+    this.cacheFile = cacheFile;
+    this.configuration = configuration;
+    load();
+  }
+
+  private void load() {
+    if (!cacheFile.isFile()) {
+      return;
+    }
+    ObjectInputStream in = null;
+    try {
+      in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+      if (in.readInt() != FORMAT_VERSION) {
+        LOG.debug("Incremental analysis cache " + cacheFile.getAbsolutePath() + " has been written by another version, it is discarded");
+      } else if (configuration.equals(in.readObject())) {
+        previousEntries = entries(in.readObject());
+      } else {
+        LOG.info("Configuration of the checks changed, all files will be analyzed");
+      }
+    } catch (IOException | ClassNotFoundException | ClassCastException e) {
+      // InvalidClassException and StreamCorruptedException are IOException
+      LOG.debug("Unable to read incremental analysis cache " + cacheFile.getAbsolutePath() + ", it is discarded", e);
+      previousEntries = new HashMap<>();
+    } finally {
+      IOUtils.closeQuietly(in);
+    }
+  }
+
+  /**
+   * Types of the entries are checked right away, so that a cache not matching them fails while it is read rather than when it is used.
+   */
+  private static Map<String, FileEntry> entries(Object object) {
+    Map<String, FileEntry> result = new HashMap<>();
+    for (Map.Entry<?, ?> entry : ((Map<?, ?>) object).entrySet()) {
+      result.put((String) entry.getKey(), (FileEntry) entry.getValue());
+    }
+    return result;
+  }
+
+  /**
+   * Writes the entries of the files analyzed since this cache has been created, entries of other files are dropped.
+   */
+  public void save() {
+    ObjectOutputStream out = null;
+    try {
+      Files.createParentDirs(cacheFile);
+      out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(cacheFile)));
+      out.writeInt(FORMAT_VERSION);
+      out.writeObject(configuration);
+      out.writeObject(new HashMap<>(entries));
+    } catch (IOException e) {
+      LOG.warn("Unable to write incremental analysis cache " + cacheFile.getAbsolutePath(), e);
+    } finally {
+      IOUtils.closeQuietly(out);
+    }
+    LOG.info(replayedFiles + "/" + entries.size() + " files were not analyzed again by checks, their issues have been replayed from the incremental analysis cache");
+  }
+
+  /**
+   * @param content content of the file, as shared with the parser: it is hashed rather than read again
+   * @return issues recorded for this file, or null if the file or one of the classes it depends on changed
+   */
+  @CheckForNull
+  public List<CachedIssue> issues(FileContent content, BytecodeCache bytecodeCache) {
+    String path = content.file().getAbsolutePath();
+    FileEntry entry = previousEntries.get(path);
+    if (entry == null || !entry.contentHash.equals(hash(content.text()))) {
+      return null;
+    }
+    for (Map.Entry<String, String> dependency : entry.classFileHashes.entrySet()) {
+      if (!dependency.getValue().equals(classFileHash(dependency.getKey(), bytecodeCache))) {
+        return null;
+      }
+    }
+    entries.put(path, entry);
+    replayedFiles++;
+    return entry.issues;
+  }
+
+  /**
+   * Records the issues raised on a file by all the checks.
+   *
+   * @param content content of the file, as shared with the parser
+   * @param classFiles names of the classes read from the classpath while analyzing this file
+   * @param ruleKeys keys of the rules of the checks executed by the analysis
+   */
+  public void put(FileContent content, Collection<String> classFiles, BytecodeCache bytecodeCache, Collection<AnalyzerMessage> issues, Map<JavaCheck, RuleKey> ruleKeys) {
+    String path = content.file().getAbsolutePath();
+    List<CachedIssue> cachedIssues = Lists.newArrayList();
+    for (AnalyzerMessage issue : issues) {
+      RuleKey ruleKey = ruleKeys.get(issue.getCheck());
+      if (ruleKey == null || !path.equals(issue.getFile().getAbsolutePath())) {
+        entries.remove(path);
+        return;
+      }
+      cachedIssues.add(CachedIssue.of(issue, ruleKey));
+    }
+    Map<String, String> dependencies = Maps.newHashMap();
+    for (String classFile : classFiles) {
+      dependencies.put(classFile, classFileHash(classFile, bytecodeCache));
+    }
+    entries.put(path, new FileEntry(hash(content.text()), dependencies, cachedIssues));
+  }
+
+  private String classFileHash(String bytecodeName, BytecodeCache bytecodeCache) {
+    String result = classFileHashes.get(bytecodeName);
+    if (result == null) {
+      byte[] classFile = bytecodeCache.classFile(bytecodeName);
+      result = classFile == null ? MISSING_CLASS : hash(classFile);
+      classFileHashes.put(bytecodeName, result);
+    }
+    return result;
+  }
+
+  private static String hash(byte[] content) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-1").digest(content);
+      StringBuilder sb = new StringBuilder(digest.length * 2);
+      for (byte b : digest) {
+        sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+      return sb.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  public static String hash(String content) {
+    return hash(content.getBytes(Charsets.UTF_8));
+  }
+
+  private static class FileEntry implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String contentHash;
+    private final Map<String, String> classFileHashes;
+    private final List<CachedIssue> issues;
+
+    FileEntry(String contentHash, Map<String, String> classFileHashes, List<CachedIssue> issues) {
+      this.contentHash = contentHash;
+      this.classFileHashes = classFileHashes;
+      this.issues = issues;
+    }
+  }
+
+  public static class CachedIssue implements Serializable {
+    private static final long serialVersionUID = 2L;
+
+    private final String ruleKey;
+    private final String file;
+    private final String message;
+    private final int cost;
+    private final int[] textSpan;
+    private final List<CachedIssue> secondaryLocations = Lists.newArrayList();
+
+    private CachedIssue(String ruleKey, String file, String message, int cost, @Nullable int[] textSpan) {
+      this.ruleKey = ruleKey;
+      this.file = file;
+      this.message = message;
+      this.cost = cost;
+      this.textSpan = textSpan;
+    }
+
+    static CachedIssue of(AnalyzerMessage message, RuleKey ruleKey) {
+      Double cost = message.getCost();
+      AnalyzerMessage.TextSpan span = message.primaryLocation();
+      CachedIssue result = new CachedIssue(
+        ruleKey.toString(),
+        message.getFile().getAbsolutePath(),
+        message.getMessage(),
+        cost == null ? 0 : cost.intValue(),
+        span == null ? null : new int[] {span.startLine, span.startCharacter, span.endLine, span.endCharacter});
+      for (AnalyzerMessage secondaryLocation : message.secondaryLocations) {
+        result.secondaryLocations.add(of(secondaryLocation, ruleKey));
+      }
+      return result;
+    }
+
+    /**
+     * @param checks instances of the checks executed by the current analysis, indexed by the key of their rule
+     * @return null if the rule which raised this issue is not executed by the current analysis
+     */
+    @CheckForNull
+    public AnalyzerMessage toAnalyzerMessage(Map<RuleKey, JavaCheck> checks) {
+      JavaCheck check = checks.get(RuleKey.parse(ruleKey));
+      if (check == null) {
+        return null;
+      }
+      AnalyzerMessage.TextSpan span = textSpan == null ? null : new AnalyzerMessage.TextSpan(textSpan[0], textSpan[1], textSpan[2], textSpan[3]);
+      AnalyzerMessage result = new AnalyzerMessage(check, new File(file), span, message, cost);
+      for (CachedIssue secondaryLocation : secondaryLocations) {
+        result.secondaryLocations.add(secondaryLocation.toAnalyzerMessage(checks));
+      }
+      return result;
+    }
+  }
+
+}
@@ -20,8 +20,13 @@
 package org.sonar.java;
 
 import org.sonar.java.model.JavaVersionImpl;
+import org.sonar.java.se.SymbolicExecutionBudget;
 import org.sonar.plugins.java.api.JavaVersion;
 
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import java.io.File;
 import java.nio.charset.Charset;
 
 public class JavaConfiguration {
@@ -29,6 +34,14 @@ public class JavaConfiguration {
   private final Charset charset;
   private boolean separateAccessorsFromMethods = true;
   private JavaVersion javaVersion = new JavaVersionImpl();
+  private int parsingThreads = 1;
+  private File classpathIndexDirectory;
+  private boolean mapJarFiles = false;
+  private File incrementalCacheDirectory;
+  private File profilingReportDirectory;
+  private SymbolicExecutionBudget symbolicExecutionBudget = SymbolicExecutionBudget.DEFAULT;
+  private int symbolicExecutionThreads = 1;
+  private int bytecodeThreads = 1;
 
   public JavaConfiguration(Charset charset) {
     this.charset = charset;
@@ -54,4 +67,71 @@ public class JavaConfiguration {
     this.javaVersion = javaVersion;
   }
 
+  public int parsingThreads() {
+    return parsingThreads;
+  }
+
+  public void setParsingThreads(int parsingThreads) {
+    this.parsingThreads = parsingThreads;
+  }
+
+  @CheckForNull
+  public File classpathIndexDirectory() {
+    return classpathIndexDirectory;
+  }
+
+  public void setClasspathIndexDirectory(@Nullable File classpathIndexDirectory) {
+    this.classpathIndexDirectory = classpathIndexDirectory;
+  }
+
+  public boolean mapsJarFiles() {
+    return mapJarFiles;
+  }
+
+  public void setMapJarFiles(boolean mapJarFiles) {
+    this.mapJarFiles = mapJarFiles;
+  }
+
+  @CheckForNull
+  public File incrementalCacheDirectory() {
+    return incrementalCacheDirectory;
+  }
+
+  public void setIncrementalCacheDirectory(@Nullable File incrementalCacheDirectory) {
+    this.incrementalCacheDirectory = incrementalCacheDirectory;
+  }
+
+  @CheckForNull
+  public File profilingReportDirectory() {
+    return profilingReportDirectory;
+  }
+
+  public void setProfilingReportDirectory(@Nullable File profilingReportDirectory) {
+    this.profilingReportDirectory = profilingReportDirectory;
+  }
+
+  public SymbolicExecutionBudget symbolicExecutionBudget() {
+    return symbolicExecutionBudget;
+  }
+
+  public void setSymbolicExecutionBudget(SymbolicExecutionBudget symbolicExecutionBudget) {
+    this.symbolicExecutionBudget = symbolicExecutionBudget;
+  }
+
+  public int symbolicExecutionThreads() {
+    return symbolicExecutionThreads;
+  }
+
+  public void setSymbolicExecutionThreads(int symbolicExecutionThreads) {
+    this.symbolicExecutionThreads = symbolicExecutionThreads;
+  }
+
+  public int bytecodeThreads() {
+    return bytecodeThreads;
+  }
+
+  public void setBytecodeThreads(int bytecodeThreads) {
+    this.bytecodeThreads = bytecodeThreads;
+  }
+
 }
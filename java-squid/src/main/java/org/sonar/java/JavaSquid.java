@@ -38,6 +38,7 @@ import org.sonar.java.bytecode.visitor.BytecodeContext;
 import org.sonar.java.bytecode.visitor.DefaultBytecodeContext;
 import org.sonar.java.bytecode.visitor.DependenciesVisitor;
 import org.sonar.java.model.InternalVisitorsBridge;
+import org.sonar.java.resolve.BytecodeCache;
 import org.sonar.java.se.checks.SECheck;
 import org.sonar.plugins.java.api.JavaResourceLocator;
 import org.sonar.squidbridge.api.CodeVisitor;
@@ -56,6 +57,9 @@ public class JavaSquid {
   private final JavaAstScanner astScanner;
   private final JavaAstScanner astScannerForTests;
   private final BytecodeScanner bytecodeScanner;
+  private final List<File> classpath;
+  private final BytecodeCache bytecodeCache;
+  private final BytecodeCache testBytecodeCache;
   private final DirectedGraph<Resource, Dependency> graph = new DirectedGraph<>();
 
   private boolean bytecodeScanned = false;
@@ -68,7 +72,7 @@ public class JavaSquid {
       Iterable<CodeVisitor> measurers = Collections.singletonList((CodeVisitor) measurer);
       codeVisitors = Iterables.concat(measurers, codeVisitors);
     }
-    List<File> classpath = Lists.newArrayList();
+    List<File> projectClasspath = Lists.newArrayList();
     List<File> testClasspath = Lists.newArrayList();
     Collection<CodeVisitor> testCodeVisitors = Lists.<CodeVisitor>newArrayList(javaResourceLocator);
     if (sonarComponents != null) {
@@ -80,23 +84,31 @@ public class JavaSquid {
           )
       );
       testCodeVisitors.add(new SyntaxHighlighterVisitor(sonarComponents, conf.getCharset()));
-      classpath = sonarComponents.getJavaClasspath();
+      projectClasspath = sonarComponents.getJavaClasspath();
       testClasspath = sonarComponents.getJavaTestClasspath();
       testCodeVisitors.addAll(sonarComponents.testCheckClasses());
     }
 
+    // Class files of the classpath are shared by all the scanners of the analysis
+    classpath = projectClasspath;
+    bytecodeCache = new BytecodeCache(classpath, conf.classpathIndexDirectory(), conf.mapsJarFiles());
+    testBytecodeCache = testClasspath.equals(classpath) ? bytecodeCache : new BytecodeCache(testClasspath, conf.classpathIndexDirectory(), conf.mapsJarFiles());
+
     //AstScanner for main files
     astScanner = new JavaAstScanner(JavaParser.createParser(conf.getCharset()));
+    astScanner.setParallelParsing(conf.getCharset(), conf.parsingThreads());
+    astScanner.setFileContentSharing(conf.getCharset());
     boolean enableSymbolicExecution = hasASymbolicExecutionCheck(visitors);
-    astScanner.setVisitorBridge(createVisitorBridge(codeVisitors, classpath, conf, sonarComponents, enableSymbolicExecution));
+    astScanner.setVisitorBridge(createVisitorBridge(codeVisitors, bytecodeCache, conf, sonarComponents, enableSymbolicExecution, "main"));
 
     //AstScanner for test files
     astScannerForTests = new JavaAstScanner(astScanner);
-    astScannerForTests.setVisitorBridge(createVisitorBridge(testCodeVisitors, testClasspath, conf, sonarComponents, false));
+    astScannerForTests.setVisitorBridge(createVisitorBridge(testCodeVisitors, testBytecodeCache, conf, sonarComponents, false, "test"));
 
     //Bytecode scanner
     BytecodeContext bytecodeContext = new DefaultBytecodeContext(sonarComponents, javaResourceLocator);
     bytecodeScanner = new BytecodeScanner(bytecodeContext);
+    bytecodeScanner.setThreads(conf.bytecodeThreads());
     DependenciesVisitor dependenciesVisitor = new DependenciesVisitor(bytecodeContext, graph);
     bytecodeScanner.accept(dependenciesVisitor);
     for (CodeVisitor visitor : visitors) {
@@ -115,19 +127,35 @@ public class JavaSquid {
   }
 
   private static InternalVisitorsBridge createVisitorBridge(
-      Iterable<CodeVisitor> codeVisitors, List<File> classpath, JavaConfiguration conf, @Nullable SonarComponents sonarComponents, boolean enableSymbolicExecution) {
-    InternalVisitorsBridge visitorsBridge = new InternalVisitorsBridge(codeVisitors, classpath, sonarComponents, enableSymbolicExecution);
+      Iterable<CodeVisitor> codeVisitors, BytecodeCache bytecodeCache, JavaConfiguration conf, @Nullable SonarComponents sonarComponents, boolean enableSymbolicExecution,
+      String scope) {
+    InternalVisitorsBridge visitorsBridge = new InternalVisitorsBridge(codeVisitors, bytecodeCache, sonarComponents, enableSymbolicExecution);
     visitorsBridge.setCharset(conf.getCharset());
     visitorsBridge.setAnalyseAccessors(conf.separatesAccessorsFromMethods());
     visitorsBridge.setJavaVersion(conf.javaVersion());
+    visitorsBridge.setSymbolicExecutionBudget(conf.symbolicExecutionBudget());
+    visitorsBridge.setSymbolicExecutionThreads(conf.symbolicExecutionThreads());
+    File incrementalCacheDirectory = conf.incrementalCacheDirectory();
+    if (incrementalCacheDirectory != null) {
+      visitorsBridge.setIncrementalCache(new File(incrementalCacheDirectory, scope + "-issues.cache"));
+    }
+    File profilingReportDirectory = conf.profilingReportDirectory();
+    if (profilingReportDirectory != null) {
+      visitorsBridge.setProfilingReport(new File(profilingReportDirectory, "java-profiling-" + scope + ".json"));
+    }
     return visitorsBridge;
   }
 
 
   public void scan(Iterable<File> sourceFiles, Iterable<File> testFiles, Collection<File> bytecodeFilesOrDirectories) {
-    scanSources(sourceFiles);
-    scanBytecode(bytecodeFilesOrDirectories);
-    scanTests(testFiles);
+    try {
+      scanSources(sourceFiles);
+      scanBytecode(bytecodeFilesOrDirectories);
+      scanTests(testFiles);
+    } finally {
+      bytecodeCache.close();
+      testBytecodeCache.close();
+    }
   }
 
   private void scanSources(Iterable<File> sourceFiles) {
@@ -146,7 +174,12 @@ public class JavaSquid {
     if (hasBytecode(bytecodeFilesOrDirectories)) {
       TimeProfiler profiler = new TimeProfiler(getClass()).start("Java bytecode scan");
 
-      bytecodeScanner.scan(bytecodeFilesOrDirectories);
+      // order of the classpath matters, as the first class file found for a name wins
+      if (classpath.equals(Lists.newArrayList(bytecodeFilesOrDirectories))) {
+        bytecodeScanner.scan(bytecodeCache.getClassLoader());
+      } else {
+        bytecodeScanner.scan(bytecodeFilesOrDirectories);
+      }
       bytecodeScanned = true;
       profiler.stop();
     } else {
@@ -19,9 +19,6 @@
  */
 package org.sonar.java;
 
-import com.google.common.base.Throwables;
-import com.google.common.collect.ImmutableList;
-import com.google.common.io.Files;
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputFile;
@@ -31,22 +28,13 @@ import org.sonar.api.measures.Measure;
 import org.sonar.api.measures.Metric;
 import org.sonar.api.measures.PersistenceMode;
 import org.sonar.api.measures.RangeDistributionBuilder;
-import org.sonar.java.ast.visitors.AccessorsUtils;
-import org.sonar.java.ast.visitors.CommentLinesVisitor;
-import org.sonar.java.ast.visitors.LinesOfCodeVisitor;
-import org.sonar.java.ast.visitors.PublicApiChecker;
-import org.sonar.java.ast.visitors.StatementVisitor;
+import org.sonar.java.ast.visitors.MetricsVisitor;
 import org.sonar.java.ast.visitors.SubscriptionVisitor;
+import org.sonar.java.model.FileContent;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
-import org.sonar.plugins.java.api.tree.ClassTree;
-import org.sonar.plugins.java.api.tree.MethodTree;
-import org.sonar.plugins.java.api.tree.NewClassTree;
 import org.sonar.plugins.java.api.tree.Tree;
 
-import java.io.IOException;
 import java.nio.charset.Charset;
-import java.util.Deque;
-import java.util.LinkedList;
 import java.util.List;
 
 public class Measurer extends SubscriptionVisitor implements CharsetAwareVisitor {
@@ -56,65 +44,47 @@ public class Measurer extends SubscriptionVisitor implements CharsetAwareVisitor
 
   private final FileSystem fs;
   private final SensorContext sensorContext;
-  private final boolean separateAccessorsFromMethods;
   private final NoSonarFilter noSonarFilter;
+  private final MetricsVisitor metricsVisitor;
   private InputFile sonarFile;
-  private int methods;
-  private int accessors;
-  private int complexityInMethods;
-  private RangeDistributionBuilder methodComplexityDistribution;
-
-  private final Deque<ClassTree> classTrees = new LinkedList<>();
   private Charset charset;
-  private double classes;
 
   public Measurer(FileSystem fs, SensorContext context, boolean separateAccessorsFromMethods, NoSonarFilter noSonarFilter) {
     this.fs = fs;
     this.sensorContext = context;
-    this.separateAccessorsFromMethods = separateAccessorsFromMethods;
     this.noSonarFilter = noSonarFilter;
+    this.metricsVisitor = new MetricsVisitor(separateAccessorsFromMethods);
   }
 
   @Override
   public List<Tree.Kind> nodesToVisit() {
-    return ImmutableList.of(Tree.Kind.CLASS, Tree.Kind.INTERFACE, Tree.Kind.ENUM, Tree.Kind.ANNOTATION_TYPE,
-        Tree.Kind.NEW_CLASS, Tree.Kind.ENUM_CONSTANT,
-        Tree.Kind.METHOD, Tree.Kind.CONSTRUCTOR);
+    return metricsVisitor.nodesToVisit();
   }
 
-
   @Override
   public void scanFile(JavaFileScannerContext context) {
+    this.context = context;
     sonarFile = fs.inputFile(fs.predicates().is(context.getFile()));
-    classTrees.clear();
-    methods = 0;
-    complexityInMethods = 0;
-    accessors = 0;
-    classes = 0;
-    PublicApiChecker publicApiChecker = PublicApiChecker.newInstanceWithAccessorsHandledAsMethods();
-    if (separateAccessorsFromMethods) {
-      publicApiChecker = PublicApiChecker.newInstanceWithAccessorsSeparatedFromMethods();
-    }
-    publicApiChecker.scan(context.getTree());
-    methodComplexityDistribution = new RangeDistributionBuilder(CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION, LIMITS_COMPLEXITY_METHODS);
-    CommentLinesVisitor commentLinesVisitor = new CommentLinesVisitor();
-    commentLinesVisitor.analyzeCommentLines(context.getTree());
-    noSonarFilter.addComponent(sensorContext.getResource(sonarFile).getEffectiveKey(), commentLinesVisitor.noSonarLines());
-    super.scanFile(context);
-    //leave file.
-    int fileComplexity = context.getComplexityNodes(context.getTree()).size();
-    saveMetricOnFile(CoreMetrics.CLASSES, classes);
-    saveMetricOnFile(CoreMetrics.FUNCTIONS, methods);
-    saveMetricOnFile(CoreMetrics.ACCESSORS, accessors);
-    saveMetricOnFile(CoreMetrics.COMPLEXITY_IN_FUNCTIONS, complexityInMethods);
+    // all metrics are computed with a single traversal of the tree
+    metricsVisitor.scan(context.getTree());
+    noSonarFilter.addComponent(sensorContext.getResource(sonarFile).getEffectiveKey(), metricsVisitor.noSonarLines());
+    int fileComplexity = metricsVisitor.complexity();
+    saveMetricOnFile(CoreMetrics.CLASSES, metricsVisitor.classes());
+    saveMetricOnFile(CoreMetrics.FUNCTIONS, metricsVisitor.functions());
+    saveMetricOnFile(CoreMetrics.ACCESSORS, metricsVisitor.accessors());
+    saveMetricOnFile(CoreMetrics.COMPLEXITY_IN_FUNCTIONS, metricsVisitor.complexityInFunctions());
     saveMetricOnFile(CoreMetrics.COMPLEXITY, fileComplexity);
-    saveMetricOnFile(CoreMetrics.PUBLIC_API, publicApiChecker.getPublicApi());
-    saveMetricOnFile(CoreMetrics.PUBLIC_DOCUMENTED_API_DENSITY, publicApiChecker.getDocumentedPublicApiDensity());
-    saveMetricOnFile(CoreMetrics.PUBLIC_UNDOCUMENTED_API, publicApiChecker.getUndocumentedPublicApi());
-    saveMetricOnFile(CoreMetrics.COMMENT_LINES, commentLinesVisitor.commentLinesMetric());
-    saveMetricOnFile(CoreMetrics.STATEMENTS, new StatementVisitor().numberOfStatements(context.getTree()));
-    saveMetricOnFile(CoreMetrics.NCLOC, new LinesOfCodeVisitor().linesOfCode(context.getTree()));
-
+    saveMetricOnFile(CoreMetrics.PUBLIC_API, metricsVisitor.publicApi());
+    saveMetricOnFile(CoreMetrics.PUBLIC_DOCUMENTED_API_DENSITY, metricsVisitor.documentedPublicApiDensity());
+    saveMetricOnFile(CoreMetrics.PUBLIC_UNDOCUMENTED_API, metricsVisitor.undocumentedPublicApi());
+    saveMetricOnFile(CoreMetrics.COMMENT_LINES, metricsVisitor.commentLines());
+    saveMetricOnFile(CoreMetrics.STATEMENTS, metricsVisitor.statements());
+    saveMetricOnFile(CoreMetrics.NCLOC, metricsVisitor.linesOfCode());
+
+    RangeDistributionBuilder methodComplexityDistribution = new RangeDistributionBuilder(CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION, LIMITS_COMPLEXITY_METHODS);
+    for (Integer methodComplexity : metricsVisitor.functionComplexities()) {
+      methodComplexityDistribution.add(methodComplexity);
+    }
     sensorContext.saveMeasure(sonarFile, methodComplexityDistribution.build(true).setPersistenceMode(PersistenceMode.MEMORY));
 
     RangeDistributionBuilder fileComplexityDistribution = new RangeDistributionBuilder(CoreMetrics.FILE_COMPLEXITY_DISTRIBUTION, LIMITS_COMPLEXITY_FILES);
@@ -124,47 +94,7 @@ public class Measurer extends SubscriptionVisitor implements CharsetAwareVisitor
   }
 
   private void saveLinesMetric() {
-    try {
-      String content = Files.toString(context.getFile(), charset);
-      saveMetricOnFile(CoreMetrics.LINES, content.split("(\r)?\n|\r", -1).length);
-    } catch (IOException e) {
-      Throwables.propagate(e);
-    }
-  }
-
-  @Override
-  public void visitNode(Tree tree) {
-    if (isClassTree(tree)) {
-      classes++;
-      classTrees.push((ClassTree) tree);
-    }
-    if (tree.is(Tree.Kind.NEW_CLASS) && ((NewClassTree) tree).classBody() != null) {
-      classes--;
-    }
-    if (tree.is(Tree.Kind.METHOD, Tree.Kind.CONSTRUCTOR) && classTrees.peek().simpleName() != null) {
-      //don't count methods in anonymous classes.
-      MethodTree methodTree = (MethodTree) tree;
-      if (separateAccessorsFromMethods && AccessorsUtils.isAccessor(classTrees.peek(), methodTree)) {
-        accessors++;
-      } else {
-        methods++;
-        int methodComplexity = context.getMethodComplexityNodes(classTrees.peek(), methodTree).size();
-        methodComplexityDistribution.add(methodComplexity);
-        complexityInMethods += methodComplexity;
-      }
-    }
-
-  }
-
-  @Override
-  public void leaveNode(Tree tree) {
-    if (isClassTree(tree)) {
-      classTrees.pop();
-    }
-  }
-
-  private static boolean isClassTree(Tree tree) {
-    return tree.is(Tree.Kind.CLASS) || tree.is(Tree.Kind.INTERFACE) || tree.is(Tree.Kind.ENUM) || tree.is(Tree.Kind.ANNOTATION_TYPE);
+    saveMetricOnFile(CoreMetrics.LINES, FileContent.of(context, charset).lineCount());
   }
 
   private void saveMetricOnFile(Metric metric, double value) {
@@ -49,6 +49,7 @@ import java.io.File;
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 public class SonarComponents implements BatchExtension {
@@ -64,6 +65,7 @@ public class SonarComponents implements BatchExtension {
   private final JavaClasspath javaClasspath;
   private final List<Checks<JavaCheck>> checks;
   private final List<Checks<JavaCheck>> testChecks;
+  private List<AnalyzerMessage> recordedIssues;
 
   public SonarComponents(FileLinesContextFactory fileLinesContextFactory, ResourcePerspectives resourcePerspectives, FileSystem fs,
     JavaClasspath javaClasspath, JavaTestClasspath javaTestClasspath, SensorContext context,
@@ -191,10 +193,29 @@ public class SonarComponents implements BatchExtension {
     reportIssue(new AnalyzerMessage(check, file, line, message, cost != null ? cost.intValue() : 0));
   }
 
+  /**
+   * Starts recording the issues reported to this component, before they are filtered.
+   */
+  public void startRecordingIssues() {
+    recordedIssues = Lists.newArrayList();
+  }
+
+  /**
+   * @return issues reported since last call to {@link #startRecordingIssues()}
+   */
+  public List<AnalyzerMessage> stopRecordingIssues() {
+    List<AnalyzerMessage> result = recordedIssues;
+    recordedIssues = null;
+    return result == null ? Collections.<AnalyzerMessage>emptyList() : result;
+  }
+
   public void reportIssue(AnalyzerMessage analyzerMessage) {
     JavaCheck check = analyzerMessage.getCheck();
     Preconditions.checkNotNull(check);
     Preconditions.checkNotNull(analyzerMessage.getMessage());
+    if (recordedIssues != null) {
+      recordedIssues.add(analyzerMessage);
+    }
     RuleKey key = getRuleKey(check);
     if (key == null) {
       return;
@@ -22,13 +22,16 @@ package org.sonar.java.ast;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.sonar.sslr.api.RecognitionException;
 import com.sonar.sslr.api.typed.ActionParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.sonar.java.AnalysisProfiler;
 import org.sonar.java.JavaConfiguration;
 import org.sonar.java.ast.parser.JavaParser;
 import org.sonar.java.ast.visitors.VisitorContext;
+import org.sonar.java.model.FileContent;
 import org.sonar.java.model.InternalVisitorsBridge;
 import org.sonar.java.model.VisitorsBridge;
 import org.sonar.plugins.java.api.JavaFileScanner;
@@ -47,8 +50,17 @@ import javax.annotation.Nullable;
 import java.io.File;
 import java.io.InterruptedIOException;
 import java.nio.charset.Charset;
+import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 public class JavaAstScanner {
@@ -58,6 +70,9 @@ public class JavaAstScanner {
   private final SquidIndex index;
   private final ActionParser<Tree> parser;
   private InternalVisitorsBridge visitor;
+  private int parsingThreads = 1;
+  private Charset parsingCharset;
+  private Charset fileContentCharset;
 
   public JavaAstScanner(ActionParser<Tree> parser) {
     this.parser = parser;
@@ -70,6 +85,27 @@ public class JavaAstScanner {
   public JavaAstScanner(JavaAstScanner astScanner) {
     this.parser = astScanner.parser;
     this.index = astScanner.index;
+    this.parsingThreads = astScanner.parsingThreads;
+    this.parsingCharset = astScanner.parsingCharset;
+    this.fileContentCharset = astScanner.fileContentCharset;
+  }
+
+  /**
+   * Parses files on a bounded pool of {@code threads} workers, each worker owning its own parser.
+   * Visitors are still executed on the calling thread and in the order of the files, so results are identical to a sequential scan.
+   * A value lower or equal to 1 disables parallel parsing.
+   * The parsers of the workers read files with the given charset.
+   */
+  public void setParallelParsing(Charset charset, int threads) {
+    this.parsingCharset = charset;
+    this.parsingThreads = threads;
+  }
+
+  /**
+   * Files are read once with the given charset, and their content is shared by the parser and the visitors.
+   */
+  public void setFileContentSharing(Charset charset) {
+    this.fileContentCharset = charset;
   }
 
   public void scan(Iterable<File> files) {
@@ -91,17 +127,24 @@ public class JavaAstScanner {
     VisitorContext context = new VisitorContext(project);
     visitor.setContext(context);
 
+    List<File> filesToScan = Lists.newArrayList(files);
     ProgressReport progressReport = new ProgressReport("Report about progress of Java AST analyzer", TimeUnit.SECONDS.toMillis(10));
-    progressReport.start(Lists.newArrayList(files));
+    progressReport.start(filesToScan);
 
     boolean successfulyCompleted = false;
     try {
-      for (File file : files) {
-        simpleScan(file, context);
-        progressReport.nextFile();
+      if (parsingThreads > 1) {
+        parallelScan(filesToScan, context, progressReport);
+      } else {
+        for (File file : filesToScan) {
+          FileContent content = fileContent(file);
+          simpleScan(file, content, context, new ParseTask(parser, file, content));
+          progressReport.nextFile();
+        }
       }
       successfulyCompleted = true;
     } finally {
+      visitor.endOfAnalysis();
       if (successfulyCompleted) {
         progressReport.stop();
       } else {
@@ -110,10 +153,56 @@ public class JavaAstScanner {
     }
   }
 
-  private void simpleScan(File file, VisitorContext context) {
+  private void parallelScan(List<File> files, VisitorContext context, ProgressReport progressReport) {
+    ExecutorService executor = Executors.newFixedThreadPool(parsingThreads, new ThreadFactoryBuilder().setNameFormat("java-parser-%d").setDaemon(true).build());
+    final ThreadLocal<ActionParser<Tree>> parsers = new ThreadLocal<ActionParser<Tree>>() {
+      @Override
+      protected ActionParser<Tree> initialValue() {
+        return JavaParser.createParser(parsingCharset);
+      }
+    };
+    // Bound the number of trees parsed ahead of the visitors to keep memory under control
+    int maxPendingFiles = parsingThreads * 2;
+    Deque<ParsedTree> pendingTrees = new ArrayDeque<>(maxPendingFiles);
+    Iterator<File> filesToParse = files.iterator();
+    try {
+      for (File file : files) {
+        while (pendingTrees.size() < maxPendingFiles && filesToParse.hasNext()) {
+          final File fileToParse = filesToParse.next();
+          final FileContent content = fileContent(fileToParse);
+          Future<Tree> future = executor.submit(new Callable<Tree>() {
+            @Override
+            public Tree call() throws Exception {
+              return new ParseTask(parsers.get(), fileToParse, content).call();
+            }
+          });
+          pendingTrees.add(new ParsedTree(future, content));
+        }
+        ParsedTree parsedTree = pendingTrees.poll();
+        simpleScan(file, parsedTree.content, context, parsedTree);
+        progressReport.nextFile();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Nullable
+  private FileContent fileContent(File file) {
+    return fileContentCharset == null ? null : new FileContent(file, fileContentCharset);
+  }
+
+  private void simpleScan(File file, @Nullable FileContent content, VisitorContext context, Callable<Tree> parsing) {
     context.setFile(file);
+    context.setFileContent(content);
     try {
-      Tree ast = parser.parse(file);
+      AnalysisProfiler profiler = visitor.profiler();
+      AnalysisProfiler.Measure start = profiler == null ? null : profiler.start();
+      Tree ast = parsing.call();
+      if (profiler != null) {
+        // with parallel parsing, only the time spent waiting for the tree is measured
+        profiler.stop(start, AnalysisProfiler.PARSING, file);
+      }
       visitor.visitFile(ast);
     } catch (RecognitionException e) {
       checkInterrrupted(e);
@@ -144,6 +233,47 @@ public class JavaAstScanner {
     }
   }
 
+  private static class ParseTask implements Callable<Tree> {
+    private final ActionParser<Tree> parser;
+    private final File file;
+    private final FileContent content;
+
+    ParseTask(ActionParser<Tree> parser, File file, @Nullable FileContent content) {
+      this.parser = parser;
+      this.file = file;
+      this.content = content;
+    }
+
+    @Override
+    public Tree call() {
+      return content == null ? parser.parse(file) : parser.parse(content.text());
+    }
+  }
+
+  /**
+   * Waits for a tree parsed by a worker thread, rethrowing the exception raised by the parser if any.
+   */
+  private static class ParsedTree implements Callable<Tree> {
+    private final Future<Tree> future;
+    private final FileContent content;
+
+    ParsedTree(Future<Tree> future, @Nullable FileContent content) {
+      this.future = future;
+      this.content = content;
+    }
+
+    @Override
+    public Tree call() throws Exception {
+      try {
+        return future.get();
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        Throwables.propagateIfPossible(cause, Exception.class);
+        throw e;
+      }
+    }
+  }
+
   private static String getAnalyisExceptionMessage(File file) {
     return "SonarQube is unable to analyze file : '" + file.getAbsolutePath() + "'";
   }
@@ -199,6 +329,8 @@ public class JavaAstScanner {
 
   private static JavaAstScanner create(JavaConfiguration conf, @Nullable VisitorsBridge visitorsBridge) {
     JavaAstScanner astScanner = new JavaAstScanner(JavaParser.createParser(conf.getCharset()));
+    astScanner.setParallelParsing(conf.getCharset(), conf.parsingThreads());
+    astScanner.setFileContentSharing(conf.getCharset());
     if (visitorsBridge != null) {
       visitorsBridge.setCharset(conf.getCharset());
       visitorsBridge.setJavaVersion(conf.javaVersion());
@@ -84,6 +84,13 @@ public class ComplexityVisitor extends SubscriptionVisitor {
     return blame;
   }
 
+  /**
+   * Complexity counted so far, for a visitor driven by another traversal: see {@link MetricsVisitor}.
+   */
+  int complexity() {
+    return blame.size();
+  }
+
   @Override
   public void visitNode(Tree tree) {
     switch (tree.kind()) {
@@ -19,19 +19,17 @@
  */
 package org.sonar.java.ast.visitors;
 
-import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
-import com.google.common.io.Files;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.FileLinesContext;
 import org.sonar.java.SonarComponents;
+import org.sonar.java.model.FileContent;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.plugins.java.api.tree.SyntaxToken;
 import org.sonar.plugins.java.api.tree.SyntaxTrivia;
 import org.sonar.plugins.java.api.tree.Tree;
 
-import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.List;
 import java.util.Set;
@@ -61,12 +59,12 @@ public class FileLinesVisitor extends SubscriptionVisitor {
     super.scanFile(context);
 
     FileLinesContext fileLinesContext = sonarComponents.fileLinesContextFor(context.getFile());
-    // TODO minimize access to files, another one in LinesVisitor
-    int fileLength;
-    try {
-      fileLength = Files.readLines(context.getFile(), charset).size();
-    } catch (IOException e) {
-      throw Throwables.propagate(e);
+    FileContent fileContent = FileContent.of(context, charset);
+    int fileLength = fileContent.lineCount();
+    String text = fileContent.text();
+    if (text.isEmpty() || text.charAt(text.length() - 1) == '\n' || text.charAt(text.length() - 1) == '\r') {
+      // the empty line following the last line terminator is not a line of the file
+      fileLength--;
     }
     for (int line = 1; line <= fileLength; line++) {
       fileLinesContext.setIntValue(CoreMetrics.NCLOC_DATA_KEY, line, linesOfCode.contains(line) ? 1 : 0);
@@ -0,0 +1,338 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.ast.visitors;
+
+import com.google.common.collect.ImmutableList;
+import org.sonar.api.utils.ParsingUtils;
+import org.sonar.java.model.InternalSyntaxToken;
+import org.sonar.plugins.java.api.tree.ClassTree;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.ForStatementTree;
+import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.plugins.java.api.tree.NewClassTree;
+import org.sonar.plugins.java.api.tree.StatementTree;
+import org.sonar.plugins.java.api.tree.SyntaxToken;
+import org.sonar.plugins.java.api.tree.Tree;
+import org.sonar.plugins.java.api.tree.TryStatementTree;
+import org.sonar.plugins.java.api.tree.VariableTree;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Computes the metrics of a file with a single traversal of its tree: classes, functions, accessors, complexity of the file and of each function,
+ * statements, lines of code, comment lines and public API.
+ * Results are the ones of {@link ComplexityVisitor}, {@link StatementVisitor}, {@link LinesOfCodeVisitor}, {@link CommentLinesVisitor} and
+ * {@link PublicApiChecker} executed one after the other.
+ */
+public class MetricsVisitor extends SubscriptionVisitor {
+
+  private static final Set<Tree.Kind> CLASS_KINDS = EnumSet.of(Tree.Kind.CLASS, Tree.Kind.INTERFACE, Tree.Kind.ENUM, Tree.Kind.ANNOTATION_TYPE);
+  private static final Set<Tree.Kind> METHOD_KINDS = EnumSet.of(Tree.Kind.METHOD, Tree.Kind.CONSTRUCTOR);
+  private static final Set<Tree.Kind> STATEMENT_KINDS = EnumSet.of(
+    Tree.Kind.EMPTY_STATEMENT,
+    Tree.Kind.IF_STATEMENT,
+    Tree.Kind.ASSERT_STATEMENT,
+    Tree.Kind.SWITCH_STATEMENT,
+    Tree.Kind.WHILE_STATEMENT,
+    Tree.Kind.DO_STATEMENT,
+    Tree.Kind.FOR_STATEMENT,
+    Tree.Kind.FOR_EACH_STATEMENT,
+    Tree.Kind.BREAK_STATEMENT,
+    Tree.Kind.CONTINUE_STATEMENT,
+    Tree.Kind.RETURN_STATEMENT,
+    Tree.Kind.THROW_STATEMENT,
+    Tree.Kind.SYNCHRONIZED_STATEMENT,
+    Tree.Kind.TRY_STATEMENT,
+    Tree.Kind.EXPRESSION_STATEMENT);
+
+  private final boolean separateAccessorsFromMethods;
+  private final PublicApiChecker publicApiChecker;
+  private final Set<Tree.Kind> complexityKinds;
+  private final List<Tree.Kind> nodesToVisit;
+
+  private ComplexityVisitor complexityVisitor;
+  private CommentLinesVisitor commentLinesVisitor;
+
+  private final Deque<ClassTree> classTrees = new ArrayDeque<>();
+  /**
+   * For each method being visited: complexity before the method, complexity of the method itself and complexity the method would have if
+   * computed on its own, or null if the method is not a function.
+   */
+  private final Deque<int[]> methodComplexities = new ArrayDeque<>();
+  private double classes;
+  private int functions;
+  private int accessors;
+  private int complexityInFunctions;
+  private final List<Integer> functionComplexities = new ArrayList<>();
+
+  private final Deque<Tree> apiParents = new ArrayDeque<>();
+  private int anonymousClassDepth;
+  private double publicApi;
+  private double documentedPublicApi;
+
+  private int statements;
+  private final Set<Tree> variableTypes = new HashSet<>();
+
+  private final Set<Integer> linesOfCode = new HashSet<>();
+
+  public MetricsVisitor(boolean separateAccessorsFromMethods) {
+    this.separateAccessorsFromMethods = separateAccessorsFromMethods;
+    this.publicApiChecker = separateAccessorsFromMethods ?
+      PublicApiChecker.newInstanceWithAccessorsSeparatedFromMethods() : PublicApiChecker.newInstanceWithAccessorsHandledAsMethods();
+    this.complexityKinds = EnumSet.copyOf(new ComplexityVisitor(separateAccessorsFromMethods).nodesToVisit());
+    Set<Tree.Kind> kinds = EnumSet.of(Tree.Kind.NEW_CLASS, Tree.Kind.VARIABLE, Tree.Kind.TOKEN);
+    kinds.addAll(CLASS_KINDS);
+    kinds.addAll(METHOD_KINDS);
+    kinds.addAll(STATEMENT_KINDS);
+    kinds.addAll(complexityKinds);
+    this.nodesToVisit = ImmutableList.copyOf(kinds);
+  }
+
+  @Override
+  public List<Tree.Kind> nodesToVisit() {
+    return nodesToVisit;
+  }
+
+  public void scan(CompilationUnitTree tree) {
+    complexityVisitor = new ComplexityVisitor(separateAccessorsFromMethods);
+    commentLinesVisitor = new CommentLinesVisitor();
+    classTrees.clear();
+    methodComplexities.clear();
+    classes = 0;
+    functions = 0;
+    accessors = 0;
+    complexityInFunctions = 0;
+    functionComplexities.clear();
+    apiParents.clear();
+    anonymousClassDepth = 0;
+    publicApi = 0;
+    documentedPublicApi = 0;
+    statements = 0;
+    variableTypes.clear();
+    linesOfCode.clear();
+    scanTree(tree);
+  }
+
+  @Override
+  public void visitNode(Tree tree) {
+    Tree.Kind kind = tree.kind();
+    if (CLASS_KINDS.contains(kind)) {
+      classes++;
+      classTrees.push((ClassTree) tree);
+    } else if (kind == Tree.Kind.NEW_CLASS && ((NewClassTree) tree).classBody() != null) {
+      classes--;
+    }
+    int complexityBefore = complexityVisitor.complexity();
+    if (complexityKinds.contains(kind)) {
+      complexityVisitor.visitNode(tree);
+    }
+    if (METHOD_KINDS.contains(kind)) {
+      visitMethod((MethodTree) tree, complexityBefore);
+    }
+    visitPublicApi(tree);
+    visitStatement(tree);
+  }
+
+  @Override
+  public void leaveNode(Tree tree) {
+    Tree.Kind kind = tree.kind();
+    if (complexityKinds.contains(kind)) {
+      complexityVisitor.leaveNode(tree);
+    }
+    if (METHOD_KINDS.contains(kind)) {
+      leaveMethod((MethodTree) tree);
+    } else if (CLASS_KINDS.contains(kind)) {
+      classTrees.pop();
+      leaveClassStatements((ClassTree) tree);
+    }
+    leavePublicApi(tree);
+    if (kind == Tree.Kind.FOR_STATEMENT) {
+      ForStatementTree forStatementTree = (ForStatementTree) tree;
+      removeVariables(forStatementTree.initializer());
+      removeVariables(forStatementTree.update());
+    }
+  }
+
+  @Override
+  public void visitToken(SyntaxToken syntaxToken) {
+    if (!((InternalSyntaxToken) syntaxToken).isEOF()) {
+      linesOfCode.add(syntaxToken.line());
+    }
+    commentLinesVisitor.visitToken(syntaxToken);
+  }
+
+  private void visitMethod(MethodTree methodTree, int complexityBefore) {
+    ClassTree classTree = classTrees.peek();
+    if (classTree.simpleName() == null) {
+      // methods of anonymous classes are not functions
+      methodComplexities.push(null);
+    } else if (separateAccessorsFromMethods && AccessorsUtils.isAccessor(classTree, methodTree)) {
+      accessors++;
+      methodComplexities.push(null);
+    } else {
+      functions++;
+      // computed on its own, the complexity of a function always counts the function itself when it has a body
+      int ownComplexity = methodTree.block() == null ? 0 : 1;
+      methodComplexities.push(new int[] {complexityBefore, complexityVisitor.complexity() - complexityBefore, ownComplexity});
+    }
+  }
+
+  private void leaveMethod(MethodTree methodTree) {
+    int[] complexity = methodComplexities.pop();
+    if (complexity != null) {
+      int methodComplexity = complexityVisitor.complexity() - complexity[0] - complexity[1] + complexity[2];
+      functionComplexities.add(methodComplexity);
+      complexityInFunctions += methodComplexity;
+    }
+    for (VariableTree parameter : methodTree.parameters()) {
+      variableTypes.remove(parameter.type());
+    }
+  }
+
+  private void visitPublicApi(Tree tree) {
+    if (tree.is(Tree.Kind.NEW_CLASS)) {
+      // nothing in an anonymous class is part of public API
+      anonymousClassDepth++;
+      return;
+    }
+    if (anonymousClassDepth > 0 || !isApiKind(tree)) {
+      return;
+    }
+    Tree currentParent = apiParents.peek();
+    if (!tree.is(Tree.Kind.VARIABLE)) {
+      apiParents.push(tree);
+    }
+    if (publicApiChecker.isPublicApi(currentParent, tree)) {
+      publicApi++;
+      if (PublicApiChecker.getApiJavadoc(tree) != null) {
+        documentedPublicApi++;
+      }
+    }
+  }
+
+  private void leavePublicApi(Tree tree) {
+    if (tree.is(Tree.Kind.NEW_CLASS)) {
+      anonymousClassDepth--;
+    } else if (anonymousClassDepth == 0 && isApiKind(tree) && !tree.is(Tree.Kind.VARIABLE)) {
+      apiParents.pop();
+    }
+  }
+
+  private static boolean isApiKind(Tree tree) {
+    Tree.Kind kind = tree.kind();
+    return CLASS_KINDS.contains(kind) || METHOD_KINDS.contains(kind) || kind == Tree.Kind.VARIABLE;
+  }
+
+  private void visitStatement(Tree tree) {
+    Tree.Kind kind = tree.kind();
+    if (kind == Tree.Kind.VARIABLE) {
+      variableTypes.add(((VariableTree) tree).type());
+    } else if (kind == Tree.Kind.TRY_STATEMENT) {
+      TryStatementTree tryStatementTree = (TryStatementTree) tree;
+      statements += 1 - tryStatementTree.resources().size() - tryStatementTree.catches().size();
+    } else if (STATEMENT_KINDS.contains(kind)) {
+      statements++;
+    }
+  }
+
+  private void leaveClassStatements(ClassTree classTree) {
+    for (Tree member : classTree.members()) {
+      if (member.is(Tree.Kind.VARIABLE)) {
+        variableTypes.remove(((VariableTree) member).type());
+      }
+    }
+  }
+
+  private void removeVariables(List<StatementTree> statementTrees) {
+    for (StatementTree statementTree : statementTrees) {
+      if (statementTree.is(Tree.Kind.VARIABLE)) {
+        variableTypes.remove(((VariableTree) statementTree).type());
+      } else {
+        statements--;
+      }
+    }
+  }
+
+  public double classes() {
+    return classes;
+  }
+
+  public int functions() {
+    return functions;
+  }
+
+  public int accessors() {
+    return accessors;
+  }
+
+  public int complexity() {
+    return complexityVisitor.complexity();
+  }
+
+  public int complexityInFunctions() {
+    return complexityInFunctions;
+  }
+
+  /**
+   * @return complexity of each function, in the order of the functions in the file
+   */
+  public List<Integer> functionComplexities() {
+    return Collections.unmodifiableList(functionComplexities);
+  }
+
+  public int statements() {
+    return statements + variableTypes.size();
+  }
+
+  public int linesOfCode() {
+    return linesOfCode.size();
+  }
+
+  public int commentLines() {
+    return commentLinesVisitor.commentLinesMetric();
+  }
+
+  public Set<Integer> noSonarLines() {
+    return commentLinesVisitor.noSonarLines();
+  }
+
+  public double publicApi() {
+    return publicApi;
+  }
+
+  public double undocumentedPublicApi() {
+    return publicApi - documentedPublicApi;
+  }
+
+  public double documentedPublicApiDensity() {
+    if (Double.doubleToRawLongBits(publicApi) == 0L) {
+      return 100.0;
+    }
+    return ParsingUtils.scaleValue(documentedPublicApi / publicApi * 100, 2);
+  }
+
+}
@@ -28,14 +28,16 @@ import org.sonar.plugins.java.api.tree.SyntaxTrivia;
 import org.sonar.plugins.java.api.tree.Tree;
 
 import java.util.Collection;
+import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 public abstract class SubscriptionVisitor implements JavaFileScanner {
 
 
   protected JavaFileScannerContext context;
-  private Collection<Tree.Kind> nodesToVisit;
+  private Set<Tree.Kind> nodesToVisit;
   private boolean visitToken;
   private boolean visitTrivia;
   private SemanticModel semanticModel;
@@ -60,13 +62,20 @@ public abstract class SubscriptionVisitor implements JavaFileScanner {
 
   @Override
   public void scanFile(JavaFileScannerContext context) {
+    setContext(context);
+    scanTree(context.getTree());
+  }
+
+  /**
+   * Sets the context of the file about to be scanned, without scanning it: used by {@link SubscriptionVisitorDispatcher}.
+   */
+  void setContext(JavaFileScannerContext context) {
     this.context = context;
     semanticModel = (SemanticModel) context.getSemanticModel();
-    scanTree(context.getTree());
   }
 
   protected void scanTree(Tree tree) {
-    nodesToVisit = nodesToVisit();
+    nodesToVisit = subscribedKinds(nodesToVisit());
     visitToken = isVisitingTokens();
     visitTrivia = isVisitingTrivia();
     visit(tree);
@@ -94,6 +103,10 @@ public abstract class SubscriptionVisitor implements JavaFileScanner {
     }
   }
 
+  static Set<Tree.Kind> subscribedKinds(Collection<Tree.Kind> kinds) {
+    return kinds.isEmpty() ? EnumSet.noneOf(Tree.Kind.class) : EnumSet.copyOf(kinds);
+  }
+
   private boolean isSubscribed(Tree tree) {
     return nodesToVisit.contains(tree.kind());
   }
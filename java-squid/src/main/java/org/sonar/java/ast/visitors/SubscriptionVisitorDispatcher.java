@@ -0,0 +1,227 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.ast.visitors;
+
+import com.google.common.collect.ImmutableList;
+import org.sonar.java.model.JavaTree;
+import org.sonar.plugins.java.api.JavaFileScanner;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.tree.SyntaxToken;
+import org.sonar.plugins.java.api.tree.SyntaxTrivia;
+import org.sonar.plugins.java.api.tree.Tree;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Executes many {@link SubscriptionVisitor} with a single traversal of the tree of each file: for each kind of tree, only the visitors
+ * subscribed to this kind are called. Visitors overriding {@link SubscriptionVisitor#scanFile} or {@link SubscriptionVisitor#scanTree}
+ * expect to drive their own traversal and cannot be fused, see {@link #unfusedScanners()}.
+ * <p>
+ * Scanners are executed in the order they are given, except that all fusable visitors are executed together with one traversal, at the
+ * position of the first of them: scanners given before any subscription visitor, such as the resource locator and the measurers, still
+ * run first. Moving the other visitors ahead of the unfused scanners given before them, and interleaving the calls to the fused visitors,
+ * is safe: each visitor still receives its own calls in the same order as when scanning alone, visitors only read the tree, and issues
+ * are reported independently of each other. Keeping the exact order would split the checks of java-checks into tens of traversals.
+ */
+public class SubscriptionVisitorDispatcher {
+
+  private static final Tree.Kind[] KINDS = Tree.Kind.values();
+  private static final SubscriptionVisitor[] NO_VISITORS = new SubscriptionVisitor[0];
+  private static final ConcurrentMap<Class<?>, Boolean> FUSABLE_CLASSES = new ConcurrentHashMap<>();
+
+  private final List<SubscriptionVisitor> visitors;
+  private final List<JavaFileScanner> unfusedScanners;
+  private final List<JavaFileScanner> steps;
+
+  public SubscriptionVisitorDispatcher(Iterable<? extends JavaFileScanner> scanners) {
+    ImmutableList.Builder<SubscriptionVisitor> visitorsBuilder = ImmutableList.builder();
+    ImmutableList.Builder<JavaFileScanner> unfusedBuilder = ImmutableList.builder();
+    List<JavaFileScanner> stepsList = new ArrayList<>();
+    int fusedRunIndex = -1;
+    for (JavaFileScanner scanner : scanners) {
+      if (canBeFused(scanner)) {
+        if (fusedRunIndex < 0) {
+          fusedRunIndex = stepsList.size();
+        }
+        visitorsBuilder.add((SubscriptionVisitor) scanner);
+      } else {
+        unfusedBuilder.add(scanner);
+        stepsList.add(scanner);
+      }
+    }
+    this.visitors = visitorsBuilder.build();
+    this.unfusedScanners = unfusedBuilder.build();
+    if (fusedRunIndex >= 0) {
+      stepsList.add(fusedRunIndex, new FusedRun(visitors));
+    }
+    this.steps = ImmutableList.copyOf(stepsList);
+  }
+
+  static boolean canBeFused(JavaFileScanner scanner) {
+    if (!(scanner instanceof SubscriptionVisitor)) {
+      return false;
+    }
+    Class<?> clazz = scanner.getClass();
+    Boolean fusable = FUSABLE_CLASSES.get(clazz);
+    if (fusable == null) {
+      fusable = declaredBySubscriptionVisitor(clazz, "scanFile", JavaFileScannerContext.class)
+        && declaredBySubscriptionVisitor(clazz, "scanTree", Tree.class);
+      FUSABLE_CLASSES.put(clazz, fusable);
+    }
+    return fusable;
+  }
+
+  private static boolean declaredBySubscriptionVisitor(Class<?> clazz, String methodName, Class<?> parameterType) {
+    for (Class<?> c = clazz; c != SubscriptionVisitor.class; c = c.getSuperclass()) {
+      try {
+        c.getDeclaredMethod(methodName, parameterType);
+        return false;
+      } catch (NoSuchMethodException e) {
+        // not overridden at this level
+      }
+    }
+    return true;
+  }
+
+  public List<SubscriptionVisitor> fusedVisitors() {
+    return visitors;
+  }
+
+  /**
+   * Scanners given at construction which are executed on their own by {@link #scanFile(JavaFileScannerContext)}.
+   */
+  public List<JavaFileScanner> unfusedScanners() {
+    return unfusedScanners;
+  }
+
+  public void scanFile(JavaFileScannerContext context) {
+    for (JavaFileScanner step : steps) {
+      step.scanFile(context);
+    }
+  }
+
+  private static class FusedRun implements JavaFileScanner {
+
+    private final List<SubscriptionVisitor> visitors;
+
+    private SubscriptionVisitor[][] subscribers;
+    private SubscriptionVisitor[] syntaxVisitors;
+    private boolean[] visitsTokens;
+    private boolean[] visitsTrivia;
+
+    FusedRun(List<SubscriptionVisitor> visitors) {
+      this.visitors = visitors;
+    }
+
+    @Override
+    public void scanFile(JavaFileScannerContext context) {
+      for (SubscriptionVisitor visitor : visitors) {
+        visitor.setContext(context);
+      }
+      // subscriptions are read for each file, as each visitor does when scanning on its own
+      subscribe();
+      visit(context.getTree());
+    }
+
+    private void subscribe() {
+      List<List<SubscriptionVisitor>> byKind = new ArrayList<>(KINDS.length);
+      for (int i = 0; i < KINDS.length; i++) {
+        byKind.add(new ArrayList<SubscriptionVisitor>());
+      }
+      List<SubscriptionVisitor> syntax = new ArrayList<>();
+      List<Boolean> tokens = new ArrayList<>();
+      List<Boolean> trivia = new ArrayList<>();
+      for (SubscriptionVisitor visitor : visitors) {
+        Set<Tree.Kind> kinds = SubscriptionVisitor.subscribedKinds(visitor.nodesToVisit());
+        for (Tree.Kind kind : kinds) {
+          byKind.get(kind.ordinal()).add(visitor);
+        }
+        boolean visitToken = kinds.contains(Tree.Kind.TOKEN);
+        boolean visitTrivia = kinds.contains(Tree.Kind.TRIVIA);
+        if (visitToken || visitTrivia) {
+          syntax.add(visitor);
+          tokens.add(visitToken);
+          trivia.add(visitTrivia);
+        }
+      }
+      subscribers = new SubscriptionVisitor[KINDS.length][];
+      for (int i = 0; i < KINDS.length; i++) {
+        List<SubscriptionVisitor> kindVisitors = byKind.get(i);
+        subscribers[i] = kindVisitors.isEmpty() ? NO_VISITORS : kindVisitors.toArray(new SubscriptionVisitor[kindVisitors.size()]);
+      }
+      syntaxVisitors = syntax.toArray(new SubscriptionVisitor[syntax.size()]);
+      visitsTokens = new boolean[syntaxVisitors.length];
+      visitsTrivia = new boolean[syntaxVisitors.length];
+      for (int i = 0; i < syntaxVisitors.length; i++) {
+        visitsTokens[i] = tokens.get(i);
+        visitsTrivia[i] = trivia.get(i);
+      }
+    }
+
+    private void visit(Tree tree) {
+      Tree.Kind kind = tree.kind();
+      if (kind == Tree.Kind.TOKEN) {
+        visitSyntaxToken((SyntaxToken) tree);
+        return;
+      }
+      SubscriptionVisitor[] kindSubscribers = kind == null ? NO_VISITORS : subscribers[kind.ordinal()];
+      for (SubscriptionVisitor visitor : kindSubscribers) {
+        visitor.visitNode(tree);
+      }
+      visitChildren(tree);
+      for (SubscriptionVisitor visitor : kindSubscribers) {
+        visitor.leaveNode(tree);
+      }
+    }
+
+    private void visitSyntaxToken(SyntaxToken syntaxToken) {
+      for (int i = 0; i < syntaxVisitors.length; i++) {
+        SubscriptionVisitor visitor = syntaxVisitors[i];
+        if (visitsTokens[i]) {
+          visitor.visitToken(syntaxToken);
+        }
+        if (visitsTrivia[i]) {
+          for (SyntaxTrivia syntaxTrivia : syntaxToken.trivias()) {
+            visitor.visitTrivia(syntaxTrivia);
+          }
+        }
+      }
+    }
+
+    private void visitChildren(Tree tree) {
+      JavaTree javaTree = (JavaTree) tree;
+      if (!javaTree.isLeaf()) {
+        for (Iterator<Tree> iter = javaTree.childrenIterator(); iter.hasNext(); ) {
+          Tree next = iter.next();
+          if (next != null) {
+            visit(next);
+          }
+        }
+      }
+    }
+
+  }
+
+}
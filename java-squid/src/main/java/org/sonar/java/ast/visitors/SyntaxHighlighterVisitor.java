@@ -19,15 +19,13 @@
  */
 package org.sonar.java.ast.visitors;
 
-import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Lists;
-import com.google.common.io.Files;
 import org.sonar.api.source.Highlightable;
 import org.sonar.java.SonarComponents;
 import org.sonar.java.ast.api.JavaKeyword;
+import org.sonar.java.model.FileContent;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.plugins.java.api.tree.AnnotationTree;
 import org.sonar.plugins.java.api.tree.IdentifierTree;
@@ -39,7 +37,6 @@ import org.sonar.plugins.java.api.tree.Tree;
 import org.sonar.plugins.java.api.tree.TypeTree;
 
 import java.io.File;
-import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.List;
 import java.util.Map;
@@ -53,7 +50,7 @@ public class SyntaxHighlighterVisitor extends SubscriptionVisitor {
   private final Charset charset;
 
   private Highlightable.HighlightingBuilder highlighting;
-  private List<Integer> lineStart;
+  private FileContent fileContent;
 
   public SyntaxHighlighterVisitor(SonarComponents sonarComponents, Charset charset) {
     this.sonarComponents = sonarComponents;
@@ -87,12 +84,12 @@ public class SyntaxHighlighterVisitor extends SubscriptionVisitor {
   public void scanFile(JavaFileScannerContext context) {
     File file = context.getFile();
     highlighting = sonarComponents.highlightableFor(file).newHighlighting();
-    lineStart = startLines(file, this.charset);
+    fileContent = FileContent.of(context, charset);
 
     super.scanFile(context);
 
     highlighting.done();
-    lineStart.clear();
+    fileContent = null;
   }
 
   @Override
@@ -139,7 +136,7 @@ public class SyntaxHighlighterVisitor extends SubscriptionVisitor {
    * @param column starts from 0
    */
   private int getOffset(int line, int column) {
-    return lineStart.get(line - 1) + column;
+    return fileContent.lineStartOffset(line) + column;
   }
 
   private int end(AnnotationTree annotationTree) {
@@ -160,23 +157,4 @@ public class SyntaxHighlighterVisitor extends SubscriptionVisitor {
   private int end(SyntaxTrivia trivia) {
     return getOffset(trivia.startLine(), trivia.column()) + trivia.comment().length();
   }
-
-  private static List<Integer> startLines(File file, Charset charset) {
-    List<Integer> startLines = Lists.newArrayList();
-    final String content;
-    try {
-      content = Files.toString(file, charset);
-    } catch (IOException e) {
-      throw Throwables.propagate(e);
-    }
-    startLines.add(0);
-    int contentLength = content.length();
-    for (int i = 0; i < contentLength; i++) {
-      char currentChar = content.charAt(i);
-      if (currentChar == '\n' || (currentChar == '\r' && i + 1 < contentLength && content.charAt(i + 1) != '\n')) {
-        startLines.add(i + 1);
-      }
-    }
-    return startLines;
-  }
 }
@@ -19,10 +19,14 @@
  */
 package org.sonar.java.ast.visitors;
 
+import org.sonar.java.model.FileContent;
 import org.sonar.squidbridge.api.SourceCode;
 import org.sonar.squidbridge.api.SourceFile;
 import org.sonar.squidbridge.api.SourceProject;
 
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
 import java.io.File;
 import java.util.Deque;
 import java.util.LinkedList;
@@ -32,6 +36,7 @@ public class VisitorContext {
   private final Deque<SourceCode> sourceCodeStack = new LinkedList<>();
   private final SourceProject project;
   private File file;
+  private FileContent fileContent;
 
   public VisitorContext(SourceProject project) {
     if (project == null) {
@@ -54,6 +59,7 @@ public class VisitorContext {
     popTillSourceProject();
     addSourceCode(new SourceFile(file.getAbsolutePath(), file.getPath()));
     this.file = file;
+    this.fileContent = null;
   }
 
   private void popTillSourceProject() {
@@ -65,4 +71,16 @@ public class VisitorContext {
   public File getFile() {
     return file;
   }
+
+  /**
+   * @return content of the current file as read for parsing, or null if the parser read the file itself
+   */
+  @CheckForNull
+  public FileContent getFileContent() {
+    return fileContent;
+  }
+
+  public void setFileContent(@Nullable FileContent fileContent) {
+    this.fileContent = fileContent;
+  }
 }
@@ -20,6 +20,8 @@
 package org.sonar.java.bytecode;
 
 import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.sonar.java.bytecode.asm.AsmClass;
 import org.sonar.java.bytecode.asm.AsmClassProvider;
 import org.sonar.java.bytecode.asm.AsmClassProvider.DETAIL_LEVEL;
@@ -36,23 +38,47 @@ import java.io.File;
 import java.io.InterruptedIOException;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public class BytecodeScanner extends CodeScanner<BytecodeVisitor> {
 
+  private static final int PENDING_CLASSES_PER_THREAD = 32;
+
   private final BytecodeContext context;
+  private int threads = 1;
 
   public BytecodeScanner(BytecodeContext context) {
     this.context = context;
   }
 
+  /**
+   * Reads the bytecode of classes on a bounded pool of {@code threads} workers: only the I/O and the construction of the ASM class readers are parallel.
+   * Classes are still decoded, linked and visited on the calling thread and in the same order, so results are identical to a sequential scan.
+   * A value lower or equal to 1 disables parallel reading.
+   */
+  public void setThreads(int threads) {
+    this.threads = threads;
+  }
+
   public BytecodeScanner scan(Collection<File> bytecodeFilesOrDirectories) {
     ClassLoader classLoader = ClassLoaderBuilder.create(bytecodeFilesOrDirectories);
-    scanClasses(context.getJavaResourceLocator().classKeys(), new AsmClassProviderImpl(classLoader));
+    scan(classLoader);
     // TODO unchecked cast
     ((SquidClassLoader) classLoader).close();
     return this;
   }
 
+  /**
+   * Scans the classes of the project through a class loader owned by the caller, which remains open.
+   */
+  public BytecodeScanner scan(ClassLoader classLoader) {
+    scanClasses(context.getJavaResourceLocator().classKeys(), new AsmClassProviderImpl(classLoader));
+    return this;
+  }
+
   protected BytecodeScanner scanClasses(Collection<String> classes, AsmClassProvider classProvider) {
     loadByteCodeInformation(classes, classProvider);
     linkVirtualMethods(classes, classProvider);
@@ -94,12 +120,44 @@ public class BytecodeScanner extends CodeScanner<BytecodeVisitor> {
     }
   }
 
-  private static void loadByteCodeInformation(Collection<String> keys, AsmClassProvider classProvider) {
+  private void loadByteCodeInformation(Collection<String> keys, AsmClassProvider classProvider) {
+    if (threads > 1 && classProvider instanceof AsmClassProviderImpl) {
+      parallelLoad(Lists.newArrayList(keys), (AsmClassProviderImpl) classProvider);
+      return;
+    }
     for (String key : keys) {
       classProvider.getClass(key, DETAIL_LEVEL.STRUCTURE_AND_CALLS);
     }
   }
 
+  private void parallelLoad(List<String> keys, AsmClassProviderImpl classProvider) {
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("java-bytecode-%d").setDaemon(true).build());
+    // Bound the number of classes read ahead of their decoration to keep memory under control
+    int maxPendingClasses = threads * PENDING_CLASSES_PER_THREAD;
+    int nextToRead = 0;
+    try {
+      for (int i = 0; i < keys.size(); i++) {
+        for (; nextToRead < keys.size() && nextToRead < i + maxPendingClasses; nextToRead++) {
+          classProvider.prefetch(keys.get(nextToRead), executor);
+        }
+        classProvider.getClass(keys.get(i), DETAIL_LEVEL.STRUCTURE_AND_CALLS);
+      }
+    } finally {
+      classProvider.clearPrefetchedClasses();
+      // reads in progress are waited for rather than interrupted, as interruptions close the channels of the class loaders
+      executor.shutdown();
+      awaitTermination(executor);
+    }
+  }
+
+  private static void awaitTermination(ExecutorService executor) {
+    try {
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
   @Override
   public Collection<Class<? extends BytecodeVisitor>> getVisitorClasses() {
     return Collections.emptyList();
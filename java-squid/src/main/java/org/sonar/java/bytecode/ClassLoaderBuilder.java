@@ -24,6 +24,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.java.bytecode.loader.SquidClassLoader;
 
+import javax.annotation.Nullable;
+
 import java.io.File;
 import java.util.Arrays;
 import java.util.Collection;
@@ -38,6 +40,21 @@ public final class ClassLoaderBuilder {
   }
 
   public static ClassLoader create(Collection<File> bytecodeFilesOrDirectories) {
+    return create(bytecodeFilesOrDirectories, null);
+  }
+
+  /**
+   * @param indexDirectory directory where classes of JAR files are indexed to be reused by next analyses, or null to read JAR files directly
+   */
+  public static ClassLoader create(Collection<File> bytecodeFilesOrDirectories, @Nullable File indexDirectory) {
+    return create(bytecodeFilesOrDirectories, indexDirectory, false);
+  }
+
+  /**
+   * @param indexDirectory directory where classes of JAR files are indexed to be reused by next analyses, or null to read JAR files directly
+   * @param mapJarFiles whether to read JAR files through a memory mapping, which keeps them locked on Windows until garbage collected
+   */
+  public static ClassLoader create(Collection<File> bytecodeFilesOrDirectories, @Nullable File indexDirectory, boolean mapJarFiles) {
     List<File> files = Lists.newArrayList();
     for (File file : bytecodeFilesOrDirectories) {
       if (file.isFile() && file.getPath().endsWith(".class")) {
@@ -56,7 +73,7 @@ public final class ClassLoaderBuilder {
     }
 
     try {
-      return new SquidClassLoader(files);
+      return new SquidClassLoader(files, indexDirectory, mapJarFiles);
     } catch (Exception e) {
       throw new IllegalStateException("Can not create ClassLoader", e);
     }
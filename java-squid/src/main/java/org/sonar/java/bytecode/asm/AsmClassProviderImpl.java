@@ -19,22 +19,31 @@
  */
 package org.sonar.java.bytecode.asm;
 
+import com.google.common.base.Throwables;
 import org.apache.commons.io.IOUtils;
 import org.objectweb.asm.ClassReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
+import org.sonar.squidbridge.api.AnalysisException;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 public class AsmClassProviderImpl extends AsmClassProvider {
 
   private static final Logger LOG = LoggerFactory.getLogger(AsmClassProviderImpl.class);
 
   private final ClassLoader classLoader;
-  private final Map<String, AsmClass> asmClassCache = new HashMap<>();
+  private final ConcurrentMap<String, AsmClass> asmClassCache = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, Future<ClassReader>> prefetchedClasses = new ConcurrentHashMap<>();
 
   public AsmClassProviderImpl() {
     this.classLoader = Thread.currentThread().getContextClassLoader();
@@ -54,6 +63,10 @@ public class AsmClassProviderImpl extends AsmClassProvider {
     if (level.isGreaterThan(asmClass.getDetailLevel())) {
       decoracteAsmClassFromBytecode(asmClass, level);
     }
+    if (isFullyDecorated(asmClass)) {
+      // the class may have reached the highest detail level through other classes, without using its prefetched bytecode
+      dropPrefetchedClass(internalName);
+    }
     return asmClass;
   }
 
@@ -61,25 +74,100 @@ public class AsmClassProviderImpl extends AsmClassProvider {
     AsmClass asmClass = asmClassCache.get(internalName);
     if (asmClass == null) {
       asmClass = new AsmClass(internalName, DETAIL_LEVEL.NOTHING);
-      asmClassCache.put(internalName, asmClass);
+      AsmClass previous = asmClassCache.putIfAbsent(internalName, asmClass);
+      if (previous != null) {
+        asmClass = previous;
+      }
     }
     return asmClass;
   }
 
+  private static boolean isFullyDecorated(AsmClass asmClass) {
+    return !DETAIL_LEVEL.STRUCTURE_AND_CALLS.isGreaterThan(asmClass.getDetailLevel());
+  }
+
+  /**
+   * Reads the bytecode of a class on the given executor, ahead of its decoration by {@link #getClass(String, DETAIL_LEVEL)}.
+   * Only the I/O (reading and inflating the class file) and the indexing of its constant pool by the {@link ClassReader} constructor
+   * are done concurrently: {@link ClassReader#accept} decorates the class and updates the classes it refers to, so it is still called by the caller.
+   * Classes already decorated with the highest detail level are not read again.
+   */
+  public void prefetch(final String internalName, Executor executor) {
+    AsmClass asmClass = asmClassCache.get(internalName);
+    if (prefetchedClasses.containsKey(internalName) || (asmClass != null && isFullyDecorated(asmClass))) {
+      return;
+    }
+    FutureTask<ClassReader> task = new FutureTask<>(new Callable<ClassReader>() {
+      @Override
+      public ClassReader call() throws IOException {
+        return readClass(internalName);
+      }
+    });
+    if (prefetchedClasses.putIfAbsent(internalName, task) == null) {
+      executor.execute(task);
+    }
+  }
+
+  /**
+   * Drops the classes prefetched but not decorated yet. Reads not started yet are cancelled, reads in progress are not interrupted.
+   */
+  public void clearPrefetchedClasses() {
+    for (Future<ClassReader> future : prefetchedClasses.values()) {
+      future.cancel(false);
+    }
+    prefetchedClasses.clear();
+  }
+
+  private void dropPrefetchedClass(String internalName) {
+    Future<ClassReader> future = prefetchedClasses.remove(internalName);
+    if (future != null) {
+      // a read in progress is not interrupted, as the channels of class loaders are closed by interruptions
+      future.cancel(false);
+    }
+  }
+
   private void decoracteAsmClassFromBytecode(AsmClass asmClass, DETAIL_LEVEL level) {
-    InputStream input = null;
     try {
-
       AsmClassVisitor classVisitor = new AsmClassVisitor(this, asmClass, level);
-      input = classLoader.getResourceAsStream(asmClass.getInternalName() + ".class");
-      ClassReader asmReader = new ClassReader(input);
-      asmReader.accept(classVisitor, 0);
+      classReader(asmClass.getInternalName(), level).accept(classVisitor, 0);
     } catch (IOException e) {
       LOG.warn("Class '" + asmClass.getInternalName() + "' is not accessible through the ClassLoader.");
     } catch (SecurityException e) {
       LOG.warn("Class '" + asmClass.getInternalName() + "' is not accessible through the ClassLoader. One signed jar seems to be corrupted.");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AnalysisException("Analysis cancelled", e);
     } catch (Exception e) {
       LOG.error("Unable to process bytecode of class '" + asmClass.getInternalName() + "'", e);
+    }
+  }
+
+  private ClassReader classReader(String internalName, DETAIL_LEVEL level) throws IOException, InterruptedException {
+    // a class is decorated at most once with the highest detail level, after which its prefetched bytecode is not needed anymore
+    Future<ClassReader> prefetched = level == DETAIL_LEVEL.STRUCTURE_AND_CALLS ? prefetchedClasses.remove(internalName) : prefetchedClasses.get(internalName);
+    if (prefetched == null) {
+      return readClass(internalName);
+    }
+    try {
+      return prefetched.get();
+    } catch (ExecutionException e) {
+      Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  private ClassReader readClass(String internalName) throws IOException {
+    if (classLoader instanceof SquidClassLoader) {
+      byte[] bytes = ((SquidClassLoader) classLoader).getClassBytes(internalName + ".class");
+      if (bytes == null) {
+        throw new IOException("Class not found");
+      }
+      return new ClassReader(bytes);
+    }
+    InputStream input = null;
+    try {
+      input = classLoader.getResourceAsStream(internalName + ".class");
+      return new ClassReader(input);
     } finally {
       IOUtils.closeQuietly(input);
     }
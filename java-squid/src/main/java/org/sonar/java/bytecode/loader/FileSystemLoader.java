@@ -19,14 +19,16 @@
  */
 package org.sonar.java.bytecode.loader;
 
-import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.FileUtils;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 class FileSystemLoader implements Loader {
 
@@ -64,17 +66,27 @@ class FileSystemLoader implements Loader {
     if (!file.exists()) {
       return new byte[0];
     }
-    InputStream is = null;
     try {
-      is = new FileInputStream(file);
-      return IOUtils.toByteArray(is);
+      // sized after the length of the file, no intermediate buffer
+      return Files.readAllBytes(file.toPath());
     } catch (IOException e) {
       return new byte[0];
-    } finally {
-      IOUtils.closeQuietly(is);
     }
   }
 
+  @Override
+  public Collection<String> classFiles() {
+    if (baseDir == null) {
+      throw new IllegalStateException("Loader closed");
+    }
+    List<String> result = new ArrayList<>();
+    int prefixLength = baseDir.getAbsolutePath().length() + 1;
+    for (File file : FileUtils.listFiles(baseDir, new String[] {"class"}, true)) {
+      result.add(file.getAbsolutePath().substring(prefixLength).replace(File.separatorChar, '/'));
+    }
+    return result;
+  }
+
   @Override
   public void close() {
     baseDir = null;
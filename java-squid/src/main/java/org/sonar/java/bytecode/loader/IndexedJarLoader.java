@@ -0,0 +1,262 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.bytecode.loader;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Throwables;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Lists the classes of a JAR file from an index persisted on disk, so that a JAR file is not opened by the next analyses
+ * until one of its classes or resources is requested, and classes missing from it are known without opening it.
+ * The index is reused as long as the path, the size and the last modification date of the JAR file did not change.
+ * Classes and other resources are read from the JAR file itself, on request: the index does not copy their content.
+ *
+ * Layout of the index: header (magic, version, path, size and last modification date of the JAR file), number of classes, names of the classes.
+ * The index is read with a stream and is never memory-mapped, so that an outdated index can be replaced while the analysis runs.
+ */
+class IndexedJarLoader implements Loader {
+
+  private static final Logger LOG = LoggerFactory.getLogger(IndexedJarLoader.class);
+
+  private static final int MAGIC = 0x4A415849;
+  private static final int VERSION = 2;
+  private static final String CLASS_SUFFIX = ".class";
+
+  private final File file;
+  private final boolean mapJarFile;
+  private volatile Set<String> classes;
+  private Loader jarLoader;
+  private volatile boolean closed;
+
+  /**
+   * @throws IllegalStateException if an I/O error has occurred
+   */
+  public IndexedJarLoader(File file, File indexDirectory) {
+    this(file, indexDirectory, false);
+  }
+
+  /**
+   * @param mapJarFile whether to read the JAR file through a memory mapping, see {@link SquidClassLoader}
+   * @throws IllegalStateException if an I/O error has occurred
+   */
+  public IndexedJarLoader(File file, File indexDirectory, boolean mapJarFile) {
+    if (file == null) {
+      throw new IllegalArgumentException("file can't be null");
+    }
+    this.file = file;
+    this.mapJarFile = mapJarFile;
+    File indexFile = new File(indexDirectory, indexFileName(file));
+    try {
+      classes = load(indexFile);
+      if (classes == null) {
+        classes = writeIndex(indexFile);
+      }
+    } catch (IOException e) {
+      LOG.warn("Unable to index " + file.getAbsolutePath() + ", classes will be listed from the JAR file: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Index files are named after a digest of the canonical path of the JAR file, so that distinct JAR files never share an index.
+   */
+  private static String indexFileName(File file) {
+    String path;
+    try {
+      path = file.getCanonicalPath();
+    } catch (IOException e) {
+      path = file.getAbsolutePath();
+    }
+    return file.getName() + "-" + sha1(path) + ".idx";
+  }
+
+  private static String sha1(String value) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-1").digest(value.getBytes(Charsets.UTF_8));
+      StringBuilder sb = new StringBuilder(digest.length * 2);
+      for (byte b : digest) {
+        sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+      return sb.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  @Override
+  public URL findResource(String name) {
+    checkNotClosed();
+    if (isMissingFromIndex(name)) {
+      return null;
+    }
+    return jarLoader().findResource(name);
+  }
+
+  @Override
+  public byte[] loadBytes(String name) {
+    checkNotClosed();
+    if (isMissingFromIndex(name)) {
+      return new byte[0];
+    }
+    return jarLoader().loadBytes(name);
+  }
+
+  @Override
+  public Collection<String> classFiles() {
+    checkNotClosed();
+    Set<String> indexedClasses = classes;
+    if (indexedClasses != null) {
+      return Collections.unmodifiableSet(indexedClasses);
+    }
+    return jarLoader().classFiles();
+  }
+
+  /**
+   * Classes missing from the index are known to be missing from the JAR file, without having to open it.
+   */
+  private boolean isMissingFromIndex(String name) {
+    Set<String> indexedClasses = classes;
+    return indexedClasses != null && name.endsWith(CLASS_SUFFIX) && !indexedClasses.contains(name);
+  }
+
+  private synchronized Loader jarLoader() {
+    checkNotClosed();
+    if (jarLoader == null) {
+      jarLoader = SquidClassLoader.jarLoader(file, mapJarFile);
+    }
+    return jarLoader;
+  }
+
+  private void checkNotClosed() {
+    if (closed) {
+      throw new IllegalStateException("Loader closed");
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    closed = true;
+    if (jarLoader != null) {
+      jarLoader.close();
+    }
+  }
+
+  /**
+   * @return classes of the index, or null if the index does not exist, is not up to date or is corrupted
+   */
+  private Set<String> load(File indexFile) throws IOException {
+    if (!indexFile.isFile()) {
+      return null;
+    }
+    DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+    try {
+      if (in.readInt() != MAGIC
+        || in.readInt() != VERSION
+        || !file.getAbsolutePath().equals(in.readUTF())
+        || in.readLong() != file.length()
+        || in.readLong() != file.lastModified()) {
+        return null;
+      }
+      int size = in.readInt();
+      if (size < 0) {
+        return null;
+      }
+      Set<String> indexedClasses = new HashSet<>();
+      for (int i = 0; i < size; i++) {
+        indexedClasses.add(in.readUTF());
+      }
+      return in.read() == -1 ? indexedClasses : null;
+    } catch (EOFException e) {
+      // truncated index
+      return null;
+    } finally {
+      IOUtils.closeQuietly(in);
+    }
+  }
+
+  private Set<String> writeIndex(File indexFile) throws IOException {
+    Files.createDirectories(indexFile.getParentFile().toPath());
+    Set<String> jarClasses = new HashSet<>();
+    // write to a temporary file first, so that concurrent analyses never read a partially written index
+    File tmpFile = File.createTempFile(indexFile.getName(), ".tmp", indexFile.getParentFile());
+    try {
+      writeIndexContent(tmpFile, jarClasses);
+      Files.move(tmpFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(tmpFile.toPath());
+    }
+    return jarClasses;
+  }
+
+  private void writeIndexContent(File indexFile, Set<String> jarClasses) throws IOException {
+    JarFile jarFile = new JarFile(file);
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+    try {
+      // only the central directory of the JAR file is read: no entry is inflated
+      Enumeration<JarEntry> jarEntries = jarFile.entries();
+      while (jarEntries.hasMoreElements()) {
+        JarEntry jarEntry = jarEntries.nextElement();
+        if (!jarEntry.isDirectory() && jarEntry.getName().endsWith(CLASS_SUFFIX)) {
+          jarClasses.add(jarEntry.getName());
+        }
+      }
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeUTF(file.getAbsolutePath());
+      out.writeLong(file.length());
+      out.writeLong(file.lastModified());
+      out.writeInt(jarClasses.size());
+      for (String jarClass : jarClasses) {
+        out.writeUTF(jarClass);
+      }
+    } finally {
+      try {
+        out.close();
+      } finally {
+        jarFile.close();
+      }
+    }
+  }
+
+}
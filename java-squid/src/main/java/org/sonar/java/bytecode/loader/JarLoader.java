@@ -28,6 +28,11 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLStreamHandler;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.zip.ZipEntry;
 
@@ -83,6 +88,19 @@ class JarLoader implements Loader {
     }
   }
 
+  @Override
+  public Collection<String> classFiles() {
+    List<String> result = new ArrayList<>();
+    Enumeration<JarEntry> entries = jarFile.entries();
+    while (entries.hasMoreElements()) {
+      JarEntry entry = entries.nextElement();
+      if (!entry.isDirectory() && entry.getName().endsWith(".class")) {
+        result.add(entry.getName());
+      }
+    }
+    return result;
+  }
+
   @Override
   public void close() {
     try {
@@ -20,6 +20,7 @@
 package org.sonar.java.bytecode.loader;
 
 import java.net.URL;
+import java.util.Collection;
 
 /**
  * Specifies resource loading behavior.
@@ -46,6 +47,14 @@ interface Loader {
    */
   byte[] loadBytes(String name);
 
+  /**
+   * Lists the classes provided by this loader.
+   *
+   * @return names of the resources ending with <tt>.class</tt>, for instance <tt>java/lang/Object.class</tt>
+   * @throws IllegalStateException if loader has been closed
+   */
+  Collection<String> classFiles();
+
   /**
    * Closes this loader, so that it can no longer be used to load new resources.
    * If loader is already closed, then invoking this method has no effect.
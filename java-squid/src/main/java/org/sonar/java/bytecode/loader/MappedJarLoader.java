@@ -0,0 +1,362 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.bytecode.loader;
+
+import com.google.common.base.Charsets;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a JAR file through a memory mapping, without {@link java.util.jar.JarFile}: the central directory is parsed once
+ * and the content of an entry is copied or inflated straight from the mapping into an array of its exact size.
+ * Inflaters and their input buffers are pooled, so that loading a class allocates nothing but its content.
+ * Offsets and sizes read from the file are checked against its length, so that a corrupted file fails with an {@link IOException}.
+ *
+ * ZIP64 archives, encrypted entries and compression methods other than stored and deflated are not supported:
+ * the constructor fails on them, see {@link SquidClassLoader} which then falls back to {@link JarLoader}.
+ *
+ * A mapping is released only when it is garbage collected, not by {@link #close()}: until then the file can not be
+ * deleted or replaced on Windows. That is why this loader is only used when requested, see {@link SquidClassLoader}.
+ */
+class MappedJarLoader implements Loader {
+
+  private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+  private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+  private static final int MAX_COMMENT_SIZE = 0xFFFF;
+  private static final int CENTRAL_DIRECTORY_SIGNATURE = 0x02014b50;
+  private static final int CENTRAL_DIRECTORY_HEADER_SIZE = 46;
+  private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+  private static final int LOCAL_HEADER_SIZE = 30;
+  private static final int STORED = 0;
+  private static final int DEFLATED = 8;
+  private static final int ENCRYPTED_FLAG = 1;
+  private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+  private final URL jarUrl;
+  private final Map<String, Entry> entries = new HashMap<>();
+  private final Queue<Decompressor> decompressors = new ConcurrentLinkedQueue<>();
+  private volatile ByteBuffer content;
+  private volatile boolean closed;
+
+  /**
+   * @throws IllegalStateException if an I/O error has occurred, or if the format of the file is not supported
+   */
+  public MappedJarLoader(File file) {
+    if (file == null) {
+      throw new IllegalArgumentException("file can't be null");
+    }
+    try {
+      jarUrl = new URL("jar", "", -1, file.getAbsolutePath() + "!/");
+      content = map(file);
+      readCentralDirectory(content);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to open " + file.getAbsolutePath(), e);
+    }
+  }
+
+  private static ByteBuffer map(File file) throws IOException {
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = randomAccessFile.getChannel();
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("File too large");
+      }
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    } finally {
+      randomAccessFile.close();
+    }
+  }
+
+  private void readCentralDirectory(ByteBuffer buffer) throws IOException {
+    int end = findEndOfCentralDirectory(buffer);
+    int count = readShort(buffer, end + 10);
+    long size = readInt(buffer, end + 12);
+    long offset = readInt(buffer, end + 16);
+    if (count == 0xFFFF || size == ZIP64_MAGIC || offset == ZIP64_MAGIC) {
+      throw new IOException("ZIP64 archives are not supported");
+    }
+    if (offset + size > end) {
+      throw new IOException("Invalid central directory");
+    }
+    int position = (int) offset;
+    for (int i = 0; i < count; i++) {
+      if (position + CENTRAL_DIRECTORY_HEADER_SIZE > end || readInt(buffer, position) != CENTRAL_DIRECTORY_SIGNATURE) {
+        throw new IOException("Invalid central directory entry");
+      }
+      int flags = readShort(buffer, position + 8);
+      int method = readShort(buffer, position + 10);
+      long compressedSize = readInt(buffer, position + 20);
+      long uncompressedSize = readInt(buffer, position + 24);
+      int nameLength = readShort(buffer, position + 28);
+      int extraLength = readShort(buffer, position + 30);
+      int commentLength = readShort(buffer, position + 32);
+      long localHeaderOffset = readInt(buffer, position + 42);
+      if (position + CENTRAL_DIRECTORY_HEADER_SIZE + nameLength > end) {
+        throw new IOException("Invalid central directory entry");
+      }
+      String name = readString(buffer, position + CENTRAL_DIRECTORY_HEADER_SIZE, nameLength);
+      if (!name.endsWith("/")) {
+        if ((flags & ENCRYPTED_FLAG) != 0 || (method != STORED && method != DEFLATED)) {
+          throw new IOException("Unsupported entry " + name);
+        }
+        if (compressedSize == ZIP64_MAGIC || uncompressedSize == ZIP64_MAGIC || localHeaderOffset == ZIP64_MAGIC) {
+          throw new IOException("ZIP64 archives are not supported");
+        }
+        if (localHeaderOffset + LOCAL_HEADER_SIZE + compressedSize > offset || uncompressedSize >= Integer.MAX_VALUE) {
+          throw new IOException("Invalid size or offset of entry " + name);
+        }
+        if (!entries.containsKey(name)) {
+          entries.put(name, new Entry(method == DEFLATED, (int) localHeaderOffset, (int) compressedSize, (int) uncompressedSize));
+        }
+      }
+      position += CENTRAL_DIRECTORY_HEADER_SIZE + nameLength + extraLength + commentLength;
+    }
+  }
+
+  private static int findEndOfCentralDirectory(ByteBuffer buffer) throws IOException {
+    int lowest = Math.max(0, buffer.limit() - END_OF_CENTRAL_DIRECTORY_SIZE - MAX_COMMENT_SIZE);
+    for (int position = buffer.limit() - END_OF_CENTRAL_DIRECTORY_SIZE; position >= lowest; position--) {
+      if (readInt(buffer, position) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+        return position;
+      }
+    }
+    throw new IOException("End of central directory not found");
+  }
+
+  @Override
+  public URL findResource(String name) {
+    checkNotClosed();
+    Entry entry = entries.get(name);
+    if (entry != null) {
+      try {
+        return new URL(jarUrl, name, new MappedEntryHandler(entry));
+      } catch (MalformedURLException e) {
+        return null;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public byte[] loadBytes(String name) {
+    checkNotClosed();
+    Entry entry = entries.get(name);
+    if (entry == null) {
+      return new byte[0];
+    }
+    try {
+      return read(entry);
+    } catch (IOException e) {
+      // same as JarLoader: a corrupted entry is considered as missing
+      return new byte[0];
+    }
+  }
+
+  @Override
+  public Collection<String> classFiles() {
+    checkNotClosed();
+    List<String> result = new ArrayList<>();
+    for (String name : entries.keySet()) {
+      if (name.endsWith(".class")) {
+        result.add(name);
+      }
+    }
+    return result;
+  }
+
+  private byte[] read(Entry entry) throws IOException {
+    ByteBuffer buffer = content;
+    if (buffer == null) {
+      throw new IllegalStateException("Loader closed");
+    }
+    int localHeader = entry.localHeaderOffset;
+    if (readInt(buffer, localHeader) != LOCAL_HEADER_SIGNATURE) {
+      throw new IOException("Invalid local header");
+    }
+    int dataOffset = localHeader + LOCAL_HEADER_SIZE + readShort(buffer, localHeader + 26) + readShort(buffer, localHeader + 28);
+    int dataSize = entry.deflated ? entry.compressedSize : entry.uncompressedSize;
+    if ((long) dataOffset + dataSize > buffer.limit()) {
+      throw new IOException("Invalid size of entry");
+    }
+    ByteBuffer data = buffer.duplicate();
+    data.position(dataOffset);
+    byte[] result = new byte[entry.uncompressedSize];
+    if (!entry.deflated) {
+      data.get(result);
+      return result;
+    }
+    Decompressor decompressor = decompressors.poll();
+    if (decompressor == null) {
+      decompressor = new Decompressor();
+    }
+    try {
+      decompressor.inflate(data, entry.compressedSize, result);
+    } finally {
+      release(decompressor);
+    }
+    return result;
+  }
+
+  private void release(Decompressor decompressor) {
+    decompressors.add(decompressor);
+    if (closed) {
+      // the loader has been closed while this decompressor was in use, and did not end it
+      endDecompressors();
+    }
+  }
+
+  private void endDecompressors() {
+    Decompressor decompressor;
+    while ((decompressor = decompressors.poll()) != null) {
+      decompressor.inflater.end();
+    }
+  }
+
+  private void checkNotClosed() {
+    if (content == null) {
+      throw new IllegalStateException("Loader closed");
+    }
+  }
+
+  /**
+   * The mapping itself is released by the garbage collector, as there is no public API to unmap it.
+   * Inflaters in use by concurrent reads are ended when these reads complete.
+   */
+  @Override
+  public void close() {
+    content = null;
+    closed = true;
+    endDecompressors();
+  }
+
+  private static int readShort(ByteBuffer buffer, int position) {
+    return (buffer.get(position) & 0xFF) | ((buffer.get(position + 1) & 0xFF) << 8);
+  }
+
+  private static long readInt(ByteBuffer buffer, int position) {
+    return readShort(buffer, position) | ((long) readShort(buffer, position + 2) << 16);
+  }
+
+  private static String readString(ByteBuffer buffer, int position, int length) {
+    byte[] bytes = new byte[length];
+    ByteBuffer duplicate = buffer.duplicate();
+    duplicate.position(position);
+    duplicate.get(bytes);
+    return new String(bytes, Charsets.UTF_8);
+  }
+
+  private static class Entry {
+    private final boolean deflated;
+    private final int localHeaderOffset;
+    private final int compressedSize;
+    private final int uncompressedSize;
+
+    Entry(boolean deflated, int localHeaderOffset, int compressedSize, int uncompressedSize) {
+      this.deflated = deflated;
+      this.localHeaderOffset = localHeaderOffset;
+      this.compressedSize = compressedSize;
+      this.uncompressedSize = uncompressedSize;
+    }
+  }
+
+  /**
+   * Inflater of raw deflate data, with an input buffer which grows to the largest compressed entry read so far.
+   * Not thread-safe: instances are pooled and used by one thread at a time.
+   */
+  private static class Decompressor {
+    private final Inflater inflater = new Inflater(true);
+    private byte[] input = new byte[8192];
+
+    void inflate(ByteBuffer data, int compressedSize, byte[] result) throws IOException {
+      // one extra byte is required by the inflater in "nowrap" mode
+      if (input.length < compressedSize + 1) {
+        input = new byte[compressedSize + 1];
+      }
+      data.get(input, 0, compressedSize);
+      input[compressedSize] = 0;
+      inflater.reset();
+      inflater.setInput(input, 0, compressedSize + 1);
+      try {
+        int length = 0;
+        while (length < result.length) {
+          int inflated = inflater.inflate(result, length, result.length - length);
+          if (inflated == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+            break;
+          }
+          length += inflated;
+        }
+        if (length != result.length) {
+          throw new IOException("Unexpected size of inflated entry");
+        }
+      } catch (DataFormatException e) {
+        throw new IOException(e);
+      }
+    }
+  }
+
+  private class MappedEntryHandler extends URLStreamHandler {
+
+    private final Entry entry;
+
+    MappedEntryHandler(Entry entry) {
+      this.entry = entry;
+    }
+
+    @Override
+    protected URLConnection openConnection(URL u) throws IOException {
+      return new URLConnection(u) {
+        @Override
+        public void connect() throws IOException {
+          // nop
+        }
+
+        @Override
+        public int getContentLength() {
+          return entry.uncompressedSize;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+          return new ByteArrayInputStream(read(entry));
+        }
+      };
+    }
+  }
+
+}
@@ -20,27 +20,69 @@
 package org.sonar.java.bytecode.loader;
 
 import com.google.common.collect.Iterators;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.ArrayUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Class loader, which is able to load classes from a list of JAR files and directories.
+ * Classes are located through an index of the classes of all the loaders, built on first lookup,
+ * instead of probing every loader one after the other.
  */
 public class SquidClassLoader extends ClassLoader implements Closeable {
 
+  private static final Logger LOG = LoggerFactory.getLogger(SquidClassLoader.class);
+  private static final String CLASS_SUFFIX = ".class";
+  /**
+   * Gives access to the resources of the bootstrap class loader, which is the parent of this class loader.
+   */
+  private static final ClassLoader BOOTSTRAP = new ClassLoader(null) {
+  };
+
   private final List<Loader> loaders;
+  private volatile Map<String, Loader> classIndex;
+  private final Set<String> missingResources = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 
   /**
    * @param files ordered list of files and directories from which to load classes and resources
    */
   public SquidClassLoader(List<File> files) {
+    this(files, null);
+  }
+
+  /**
+   * @param files ordered list of files and directories from which to load classes and resources
+   * @param indexDirectory directory where classes of JAR files are indexed to be reused by next analyses, or null to read JAR files directly
+   */
+  public SquidClassLoader(List<File> files, @Nullable File indexDirectory) {
+    this(files, indexDirectory, false);
+  }
+
+  /**
+   * @param files ordered list of files and directories from which to load classes and resources
+   * @param indexDirectory directory where classes of JAR files are indexed to be reused by next analyses, or null to read JAR files directly
+   * @param mapJarFiles whether to read JAR files through a memory mapping, see {@link MappedJarLoader}.
+   * A mapping is released only when garbage collected, so JAR files stay locked after {@link #close()} on Windows.
+   */
+  public SquidClassLoader(List<File> files, @Nullable File indexDirectory, boolean mapJarFiles) {
     super(null);
     loaders = new ArrayList<>();
     for (File file : files) {
@@ -48,36 +90,122 @@ public class SquidClassLoader extends ClassLoader implements Closeable {
         if (file.isDirectory()) {
           loaders.add(new FileSystemLoader(file));
         } else if (file.getName().endsWith(".jar")) {
-          loaders.add(new JarLoader(file));
+          loaders.add(indexDirectory == null ? jarLoader(file, mapJarFiles) : new IndexedJarLoader(file, indexDirectory, mapJarFiles));
         }
       }
     }
   }
 
-  @Override
-  protected Class findClass(String name) throws ClassNotFoundException {
-    String resourceName = name.replace('.', '/') + ".class";
-    for (Loader loader : loaders) {
+  static Loader jarLoader(File file, boolean mapJarFiles) {
+    if (!mapJarFiles) {
+      return new JarLoader(file);
+    }
+    try {
+      return new MappedJarLoader(file);
+    } catch (IllegalStateException e) {
+      LOG.debug("Unable to map " + file.getAbsolutePath() + ", falling back to JarFile", e);
+      return new JarLoader(file);
+    }
+  }
+
+  /**
+   * Reads the content of a class, looking first into the bootstrap class loader and then into the files of this class loader,
+   * as {@link #getResourceAsStream(String)} does. Classes of the files are read directly, without a {@link URL} and a stream.
+   *
+   * @param resourceName name of the class file, for instance "java/util/Map$Entry.class"
+   * @return content of the class file, or null if the class can not be found
+   */
+  @CheckForNull
+  public byte[] getClassBytes(String resourceName) {
+    InputStream bootstrapResource = BOOTSTRAP.getResourceAsStream(resourceName);
+    if (bootstrapResource != null) {
+      try {
+        return IOUtils.toByteArray(bootstrapResource);
+      } catch (IOException e) {
+        return null;
+      } finally {
+        IOUtils.closeQuietly(bootstrapResource);
+      }
+    }
+    return findClassBytes(resourceName);
+  }
+
+  @CheckForNull
+  private byte[] findClassBytes(String resourceName) {
+    Loader loader = classIndex().get(resourceName);
+    if (loader != null) {
       byte[] classBytes = loader.loadBytes(resourceName);
       if (ArrayUtils.isNotEmpty(classBytes)) {
-        // TODO Godin: definePackage ?
-        return defineClass(name, classBytes, 0, classBytes.length);
+        return classBytes;
       }
     }
+    return null;
+  }
+
+  @Override
+  protected Class findClass(String name) throws ClassNotFoundException {
+    byte[] classBytes = findClassBytes(name.replace('.', '/') + CLASS_SUFFIX);
+    if (classBytes != null) {
+      // TODO Godin: definePackage ?
+      return defineClass(name, classBytes, 0, classBytes.length);
+    }
     throw new ClassNotFoundException(name);
   }
 
   @Override
   public URL findResource(String name) {
+    if (name.endsWith(CLASS_SUFFIX)) {
+      Loader loader = classIndex().get(name);
+      return loader == null ? null : loader.findResource(name);
+    }
+    if (missingResources.contains(name)) {
+      return null;
+    }
     for (Loader loader : loaders) {
       URL url = loader.findResource(name);
       if (url != null) {
         return url;
       }
     }
+    missingResources.add(name);
     return null;
   }
 
+  /**
+   * Tells whether one of the files of this class loader provides the given class, without reading it.
+   * The answer comes from the listing of the directories and JAR files, so it is case-sensitive even on case-insensitive file systems.
+   * Classes of the bootstrap class loader are not taken into account.
+   *
+   * @param resourceName name of the class file, for instance "java/util/Map$Entry.class"
+   */
+  public boolean hasIndexedClass(String resourceName) {
+    return classIndex().containsKey(resourceName);
+  }
+
+  /**
+   * @return for each class, the first loader providing it
+   */
+  private Map<String, Loader> classIndex() {
+    Map<String, Loader> result = classIndex;
+    if (result == null) {
+      synchronized (this) {
+        result = classIndex;
+        if (result == null) {
+          result = new HashMap<>();
+          for (Loader loader : loaders) {
+            for (String classFile : loader.classFiles()) {
+              if (!result.containsKey(classFile)) {
+                result.put(classFile, loader);
+              }
+            }
+          }
+          classIndex = result;
+        }
+      }
+    }
+    return result;
+  }
+
   @Override
   protected Enumeration<URL> findResources(String name) throws IOException {
     List<URL> result = new ArrayList<>();
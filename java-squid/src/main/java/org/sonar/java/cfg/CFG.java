@@ -66,6 +66,8 @@ import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -92,6 +94,11 @@ public class CFG {
   private Map<String, Block> labelsBreakTarget = Maps.newHashMap();
   private Map<String, Block> labelsContinueTarget = Maps.newHashMap();
 
+  /**
+   * Ids of the blocks in reverse postorder from the entry block, followed by the ids of unreachable blocks.
+   */
+  private int[] reversePostorder;
+
   private CFG(BlockTree tree, Symbol.MethodSymbol symbol) {
     methodSymbol = symbol;
     exitBlocks.add(createBlock());
@@ -101,6 +108,7 @@ public class CFG {
     }
     prune();
     computePredecessors(blocks);
+    compact();
   }
 
   private Block exitBlock() {
@@ -123,11 +131,25 @@ public class CFG {
     return blocks;
   }
 
+  /**
+   * Block ids are dense: the block of id {@code i} is at index {@code i} of {@link #reversedBlocks()}.
+   */
+  public Block block(int id) {
+    return blocks.get(id);
+  }
+
+  int[] reversePostorder() {
+    return reversePostorder;
+  }
+
   public static class Block {
     private int id;
     private final List<Tree> elements = new ArrayList<>();
     private final Set<Block> successors = new HashSet<>();
     private final Set<Block> predecessors = new HashSet<>();
+    private List<Tree> orderedElements;
+    private int[] successorIds;
+    private int[] predecessorIds;
     private Block trueBlock;
     private Block falseBlock;
     private Block exitBlock;
@@ -145,7 +167,7 @@ public class CFG {
     }
 
     public List<Tree> elements() {
-      return Lists.reverse(elements);
+      return orderedElements;
     }
 
     public Block trueBlock() {
@@ -197,6 +219,20 @@ public class CFG {
       return successors;
     }
 
+    /**
+     * Ids of the successors, in ascending order.
+     */
+    int[] successorIds() {
+      return successorIds;
+    }
+
+    /**
+     * Ids of the predecessors, in ascending order.
+     */
+    int[] predecessorIds() {
+      return predecessorIds;
+    }
+
     @CheckForNull
     public Tree terminator() {
       return terminator;
@@ -233,6 +269,74 @@ public class CFG {
     }
   }
 
+  /**
+   * Freezes the elements of the blocks in execution order and computes the array based representation of the graph,
+   * so that analyses iterate over ids rather than over hash sets.
+   */
+  private void compact() {
+    for (Block block : blocks) {
+      Collections.reverse(block.elements);
+      block.orderedElements = Collections.unmodifiableList(block.elements);
+      block.successorIds = ids(block.successors);
+      block.predecessorIds = ids(block.predecessors);
+    }
+    reversePostorder = computeReversePostorder();
+  }
+
+  private static int[] ids(Set<Block> blocks) {
+    int[] ids = new int[blocks.size()];
+    int i = 0;
+    for (Block block : blocks) {
+      ids[i] = block.id;
+      i++;
+    }
+    Arrays.sort(ids);
+    return ids;
+  }
+
+  private int[] computeReversePostorder() {
+    int size = blocks.size();
+    int[] order = new int[size];
+    boolean[] visited = new boolean[size];
+    // iterative depth first search: stack of block ids along with the index of the next successor to visit
+    int[] stack = new int[size];
+    int[] nextSuccessor = new int[size];
+    int depth = 0;
+    int position = size;
+    stack[0] = currentBlock.id;
+    visited[currentBlock.id] = true;
+    depth++;
+    while (depth > 0) {
+      int id = stack[depth - 1];
+      int[] successorIds = blocks.get(id).successorIds;
+      if (nextSuccessor[depth - 1] < successorIds.length) {
+        int successor = successorIds[nextSuccessor[depth - 1]];
+        nextSuccessor[depth - 1]++;
+        if (!visited[successor]) {
+          visited[successor] = true;
+          stack[depth] = successor;
+          nextSuccessor[depth] = 0;
+          depth++;
+        }
+      } else {
+        depth--;
+        position--;
+        order[position] = id;
+      }
+    }
+    // blocks unreachable from the entry block (dead code) come last, in id order
+    int reachable = size - position;
+    System.arraycopy(order, position, order, 0, reachable);
+    int index = reachable;
+    for (int id = 0; id < size; id++) {
+      if (!visited[id]) {
+        order[index] = id;
+        index++;
+      }
+    }
+    return order;
+  }
+
   private void prune() {
     List<Block> inactiveBlocks = new ArrayList<>();
     boolean first = true;
@@ -19,9 +19,8 @@
  */
 package org.sonar.java.cfg;
 
-import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Sets;
+import com.google.common.collect.UnmodifiableIterator;
 import org.sonar.plugins.java.api.semantic.Symbol;
 import org.sonar.plugins.java.api.tree.AssignmentExpressionTree;
 import org.sonar.plugins.java.api.tree.ExpressionTree;
@@ -32,88 +31,122 @@ import org.sonar.plugins.java.api.tree.Tree;
 import org.sonar.plugins.java.api.tree.VariableTree;
 
 import javax.annotation.Nullable;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
-import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
-public class
-    LiveVariables {
+/**
+ * Backward dataflow analysis computing the local variables live at the exit of each block of a {@link CFG}.
+ * Local variables are numbered per method, so that sets of symbols are bit sets indexed by those numbers.
+ */
+public class LiveVariables {
 
   private final CFG cfg;
-  private final Map<CFG.Block, Set<Symbol>> out = new HashMap<>();
+  private final Map<Symbol, Integer> symbolIndexes = new HashMap<>();
+  private final List<Symbol> symbols = new ArrayList<>();
+  private final List<Set<Symbol>> out = new ArrayList<>();
 
   private LiveVariables(CFG cfg) {
     this.cfg = cfg;
   }
 
   public Set<Symbol> getOut(CFG.Block block) {
-    return out.get(block);
+    return out.get(block.id());
   }
 
   public static LiveVariables analyze(CFG cfg) {
     LiveVariables liveVariables = new LiveVariables(cfg);
-    final Map<CFG.Block, Set<Symbol>> in = new HashMap<>();
+    int size = cfg.reversedBlocks().size();
     // Generate kill/gen for each block in isolation
-    Map<CFG.Block, Set<Symbol>> kill = new HashMap<>();
-    Map<CFG.Block, Set<Symbol>> gen = new HashMap<>();
-    for (CFG.Block block : liveVariables.cfg.reversedBlocks()) {
-      Set<Symbol> blockKill = new HashSet<>();
-      Set<Symbol> blockGen = new HashSet<>();
+    BitSet[] kill = new BitSet[size];
+    BitSet[] gen = new BitSet[size];
+    for (CFG.Block block : cfg.reversedBlocks()) {
+      BitSet blockKill = new BitSet();
+      BitSet blockGen = new BitSet();
       liveVariables.processBlockElements(block, blockKill, blockGen);
-      kill.put(block, blockKill);
-      gen.put(block, blockGen);
+      kill[block.id()] = blockKill;
+      gen[block.id()] = blockGen;
     }
-    liveVariables.analyzeCFG(in, kill, gen);
+    BitSet[] out = liveVariables.analyzeCFG(kill, gen);
     // out of exit block are empty by definition.
-    if (!liveVariables.out.get(liveVariables.cfg.reversedBlocks().get(0)).isEmpty()) {
+    if (!out[cfg.reversedBlocks().get(0).id()].isEmpty()) {
       throw new IllegalStateException("Out of exit block should be empty");
     }
 
-    // Make things immutable.
-    for (Map.Entry<CFG.Block, Set<Symbol>> blockSetEntry : liveVariables.out.entrySet()) {
-      blockSetEntry.setValue(ImmutableSet.copyOf(blockSetEntry.getValue()));
+    for (int id = 0; id < size; id++) {
+      liveVariables.out.add(liveVariables.new SymbolSet(out[id]));
     }
-
     return liveVariables;
   }
 
-  private void analyzeCFG(Map<CFG.Block, Set<Symbol>> in, Map<CFG.Block, Set<Symbol>> kill, Map<CFG.Block, Set<Symbol>> gen) {
-    Deque<CFG.Block> workList = new LinkedList<>();
-    workList.addAll(cfg.reversedBlocks());
-    while (!workList.isEmpty()) {
-      CFG.Block block = workList.removeFirst();
-
-      Set<Symbol> blockOut = out.get(block);
-      if (blockOut == null) {
-        blockOut = new HashSet<>();
-        out.put(block, blockOut);
-      }
-      for (CFG.Block successor : block.successors()) {
-        Set<Symbol> inOfSuccessor = in.get(successor);
-        if (inOfSuccessor != null) {
-          blockOut.addAll(inOfSuccessor);
-        }
+  /**
+   * Blocks are processed in postorder (successors before predecessors), which is the natural order of a backward analysis:
+   * the worklist is a bit set of postorder positions, always resuming from the first pending one.
+   */
+  private BitSet[] analyzeCFG(BitSet[] kill, BitSet[] gen) {
+    int[] reversePostorder = cfg.reversePostorder();
+    int size = reversePostorder.length;
+    int[] postorderPosition = new int[size];
+    for (int i = 0; i < size; i++) {
+      postorderPosition[reversePostorder[size - 1 - i]] = i;
+    }
+    BitSet[] in = new BitSet[size];
+    BitSet[] out = new BitSet[size];
+    for (int id = 0; id < size; id++) {
+      in[id] = new BitSet();
+      out[id] = new BitSet();
+    }
+    BitSet workList = new BitSet(size);
+    workList.set(0, size);
+    BitSet newIn = new BitSet();
+    for (int position = workList.nextSetBit(0); position >= 0; position = workList.nextSetBit(0)) {
+      workList.clear(position);
+      int id = reversePostorder[size - 1 - position];
+      CFG.Block block = cfg.block(id);
+
+      BitSet blockOut = out[id];
+      for (int successor : block.successorIds()) {
+        blockOut.or(in[successor]);
       }
       // in = gen and (out - kill)
-      Set<Symbol> newIn = new HashSet<>(gen.get(block));
-      newIn.addAll(Sets.difference(blockOut, kill.get(block)));
+      newIn.clear();
+      newIn.or(blockOut);
+      newIn.andNot(kill[id]);
+      newIn.or(gen[id]);
 
-      if (newIn.equals(in.get(block))) {
+      if (newIn.equals(in[id])) {
         continue;
       }
-      in.put(block, newIn);
-      for (CFG.Block predecessor : block.predecessors()) {
-        workList.addLast(predecessor);
+      BitSet previousIn = in[id];
+      in[id] = newIn;
+      newIn = previousIn;
+      for (int predecessor : block.predecessorIds()) {
+        workList.set(postorderPosition[predecessor]);
       }
     }
+    return out;
   }
 
-  private void processBlockElements(CFG.Block block, Set<Symbol> blockKill, Set<Symbol> blockGen) {
+  private int index(Symbol symbol) {
+    Integer index = symbolIndexes.get(symbol);
+    if (index == null) {
+      index = symbols.size();
+      symbolIndexes.put(symbol, index);
+      symbols.add(symbol);
+    }
+    return index;
+  }
+
+  private void processBlockElements(CFG.Block block, BitSet blockKill, BitSet blockGen) {
     // process elements from bottom to top
     Set<Tree> assignmentLHS = new HashSet<>();
     for (Tree element : Lists.reverse(block.elements())) {
@@ -125,26 +158,28 @@ public class
             symbol = ((IdentifierTree) lhs).symbol();
             if (isLocalVariable(symbol)) {
               assignmentLHS.add(lhs);
-              blockGen.remove(symbol);
-              blockKill.add(symbol);
+              int index = index(symbol);
+              blockGen.clear(index);
+              blockKill.set(index);
             }
           }
           break;
         case IDENTIFIER:
           symbol = ((IdentifierTree) element).symbol();
           if (!assignmentLHS.contains(element) && isLocalVariable(symbol)) {
-            blockGen.add(symbol);
+            blockGen.set(index(symbol));
           }
           break;
         case VARIABLE:
-          blockKill.add(((VariableTree) element).symbol());
-          blockGen.remove(((VariableTree) element).symbol());
+          int index = index(((VariableTree) element).symbol());
+          blockKill.set(index);
+          blockGen.clear(index);
           break;
         case LAMBDA_EXPRESSION:
-          blockGen.addAll(getUsedVariables(((LambdaExpressionTree) element).body(), cfg.methodSymbol()));
+          addAll(blockGen, getUsedVariables(((LambdaExpressionTree) element).body(), cfg.methodSymbol()));
           break;
         case NEW_CLASS:
-          blockGen.addAll(getUsedVariables(((NewClassTree) element).classBody(), cfg.methodSymbol()));
+          addAll(blockGen, getUsedVariables(((NewClassTree) element).classBody(), cfg.methodSymbol()));
           break;
         default:
           // Ignore other kind of elements, no change of gen/kill
@@ -152,6 +187,12 @@ public class
     }
   }
 
+  private void addAll(BitSet bitSet, List<Symbol> symbolsToAdd) {
+    for (Symbol symbol : symbolsToAdd) {
+      bitSet.set(index(symbol));
+    }
+  }
+
   private static boolean isLocalVariable(Symbol symbol) {
     return symbol.owner().isMethodSymbol();
   }
@@ -165,4 +206,50 @@ public class
     return extractorFromClass.usedVariables();
   }
 
+  /**
+   * Immutable view of a bit set of local variables.
+   */
+  private class SymbolSet extends AbstractSet<Symbol> {
+    private final BitSet bits;
+    private final int size;
+
+    SymbolSet(BitSet bits) {
+      this.bits = bits;
+      this.size = bits.cardinality();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      Integer index = symbolIndexes.get(o);
+      return index != null && bits.get(index);
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public Iterator<Symbol> iterator() {
+      return new UnmodifiableIterator<Symbol>() {
+        private int next = bits.nextSetBit(0);
+
+        @Override
+        public boolean hasNext() {
+          return next >= 0;
+        }
+
+        @Override
+        public Symbol next() {
+          if (next < 0) {
+            throw new NoSuchElementException();
+          }
+          Symbol symbol = symbols.get(next);
+          next = bits.nextSetBit(next + 1);
+          return symbol;
+        }
+      };
+    }
+  }
+
 }
@@ -0,0 +1,658 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.collections;
+
+import com.google.common.base.Preconditions;
+
+import javax.annotation.Nullable;
+
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Hash array mapped trie, with the compact layout of CHAMP.
+ *
+ * https://en.wikipedia.org/wiki/Hash_array_mapped_trie
+ *
+ * Removals keep the trie canonical: two tries with the same entries have the same shape, so that equality is checked node by node,
+ * skipping shared nodes. Size and structural hash of the whole trie are maintained on each update, hence {@link #hashCode()} is O(1).
+ *
+ * Two flavours are available:
+ * <ul>
+ *   <li>{@link #create()} for any keys: hash codes are spread before being used, to cope with poorly distributed hash codes.</li>
+ *   <li>{@link #createForIntKeys()} for keys whose hash code is a dense int identifier (for instance symbolic values):
+ *   hash codes are used as is, so that small identifiers fill the first levels of the trie.</li>
+ * </ul>
+ * Keys of both flavours are still compared with {@link Object#equals(Object)}.
+ */
+public final class HashTrie<K, V> implements PMap<K, V>, PSet<K> {
+
+  private static final int BITS = 5;
+  private static final int MASK = (1 << BITS) - 1;
+
+  @SuppressWarnings("rawtypes")
+  private static final HashTrie EMPTY = new HashTrie(false, BitmapNode.EMPTY, 0, 0);
+  @SuppressWarnings("rawtypes")
+  private static final HashTrie EMPTY_FOR_INT_KEYS = new HashTrie(true, BitmapNode.EMPTY, 0, 0);
+
+  private final boolean intKeys;
+  private final Node root;
+  private final int size;
+  private final int hashCode;
+
+  private HashTrie(boolean intKeys, Node root, int size, int hashCode) {
+    this.intKeys = intKeys;
+    this.root = root;
+    this.size = size;
+    this.hashCode = hashCode;
+  }
+
+  /**
+   * @return empty trie
+   */
+  @SuppressWarnings("unchecked")
+  public static <K, V> HashTrie<K, V> create() {
+    return EMPTY;
+  }
+
+  /**
+   * @return empty trie for keys whose hash code is a dense int identifier
+   */
+  @SuppressWarnings("unchecked")
+  public static <K, V> HashTrie<K, V> createForIntKeys() {
+    return EMPTY_FOR_INT_KEYS;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public HashTrie<K, V> add(K e) {
+    Preconditions.checkNotNull(e);
+    return put(e, (V) e);
+  }
+
+  @Override
+  public boolean contains(K k) {
+    return get(k) != null;
+  }
+
+  @Override
+  public HashTrie<K, V> put(K key, V value) {
+    Preconditions.checkNotNull(key);
+    Preconditions.checkNotNull(value);
+    Change change = new Change();
+    Node newRoot = root.put(key, value, hash(key, intKeys), 0, intKeys, change);
+    if (newRoot == root) {
+      return this;
+    }
+    int newHashCode = hashCode + entryHashCode(key, value);
+    if (change.oldValue != null) {
+      newHashCode -= entryHashCode(key, change.oldValue);
+      return new HashTrie<>(intKeys, newRoot, size, newHashCode);
+    }
+    return new HashTrie<>(intKeys, newRoot, size + 1, newHashCode);
+  }
+
+  @Override
+  public HashTrie<K, V> remove(K key) {
+    Preconditions.checkNotNull(key);
+    Change change = new Change();
+    Node newRoot = root.remove(key, hash(key, intKeys), 0, change);
+    if (newRoot == root) {
+      return this;
+    }
+    if (newRoot.hasSingleEntry()) {
+      // the remaining entry may come from a deeper level: it is put back at the right position for the root
+      Object remainingKey = newRoot.keyAt(0);
+      newRoot = BitmapNode.EMPTY.put(remainingKey, newRoot.valueAt(0), hash(remainingKey, intKeys), 0, intKeys, new Change());
+    }
+    return new HashTrie<>(intKeys, newRoot, size - 1, hashCode - entryHashCode(change.oldKey, change.oldValue));
+  }
+
+  @SuppressWarnings("unchecked")
+  @Nullable
+  @Override
+  public V get(K key) {
+    Preconditions.checkNotNull(key);
+    return (V) root.get(key, hash(key, intKeys), 0);
+  }
+
+  @Override
+  public void forEach(PSet.Consumer<K> action) {
+    forEach(root, action);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <K> void forEach(Node node, PSet.Consumer<K> action) {
+    for (int i = 0; i < node.entryCount(); i++) {
+      action.accept((K) node.keyAt(i));
+    }
+    for (int i = 0; i < node.nodeCount(); i++) {
+      forEach(node.nodeAt(i), action);
+    }
+  }
+
+  @Override
+  public void forEach(PMap.Consumer<K, V> action) {
+    forEach(root, action);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <K, V> void forEach(Node node, PMap.Consumer<K, V> action) {
+    for (int i = 0; i < node.entryCount(); i++) {
+      action.accept((K) node.keyAt(i), (V) node.valueAt(i));
+    }
+    for (int i = 0; i < node.nodeCount(); i++) {
+      forEach(node.nodeAt(i), action);
+    }
+  }
+
+  @Override
+  public Iterator<Map.Entry<K, V>> entriesIterator() {
+    return new EntryIterator<>(root);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  private static int hash(Object key, boolean intKeys) {
+    return intKeys ? key.hashCode() : spread(key.hashCode());
+  }
+
+  /**
+   * Finalization step of MurmurHash3: every bit of the hash code affects the bits used by the first levels of the trie.
+   */
+  private static int spread(int h) {
+    int result = h ^ (h >>> 16);
+    result *= 0x85ebca6b;
+    result ^= result >>> 13;
+    result *= 0xc2b2ae35;
+    return result ^ (result >>> 16);
+  }
+
+  private static int entryHashCode(Object key, Object value) {
+    // same as AVLTree: the key is multiplied by 31 to avoid K ^ V == 0 when K and V are the same element
+    return (31 * key.hashCode()) ^ value.hashCode();
+  }
+
+  @Override
+  public int hashCode() {
+    return hashCode;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof HashTrie)) {
+      return false;
+    }
+    HashTrie<?, ?> other = (HashTrie<?, ?>) obj;
+    if (size != other.size || hashCode != other.hashCode) {
+      return false;
+    }
+    if (intKeys == other.intKeys) {
+      return root.sameEntries(other.root);
+    }
+    for (Iterator<Map.Entry<K, V>> iter = entriesIterator(); iter.hasNext();) {
+      Map.Entry<K, V> entry = iter.next();
+      if (!entry.getValue().equals(other.root.get(entry.getKey(), hash(entry.getKey(), other.intKeys), 0))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder();
+    forEach(new PMap.Consumer<K, V>() {
+      @Override
+      public void accept(K key, V value) {
+        sb.append(' ').append(key).append("->").append(value);
+      }
+    });
+    return sb.toString();
+  }
+
+  /**
+   * Key and value replaced or removed by an update.
+   */
+  private static class Change {
+    Object oldKey;
+    Object oldValue;
+  }
+
+  private abstract static class Node {
+
+    abstract int entryCount();
+
+    abstract Object keyAt(int i);
+
+    abstract Object valueAt(int i);
+
+    abstract int nodeCount();
+
+    abstract Node nodeAt(int i);
+
+    @Nullable
+    abstract Object get(Object key, int hash, int shift);
+
+    abstract Node put(Object key, Object value, int hash, int shift, boolean intKeys, Change change);
+
+    /**
+     * @return node without the given key, this if the key is not found. A node with a single entry is returned
+     * so that the caller inlines this entry.
+     */
+    abstract Node remove(Object key, int hash, int shift, Change change);
+
+    abstract boolean sameEntries(Node other);
+
+    boolean hasSingleEntry() {
+      return entryCount() == 1 && nodeCount() == 0;
+    }
+
+  }
+
+  /**
+   * Entries and sub-nodes are stored in the same array: entries as key-value pairs from the start in the order of their bits,
+   * sub-nodes from the end in the order of their bits.
+   */
+  private static final class BitmapNode extends Node {
+
+    static final BitmapNode EMPTY = new BitmapNode(0, 0, new Object[0]);
+
+    private final int dataMap;
+    private final int nodeMap;
+    private final Object[] content;
+
+    BitmapNode(int dataMap, int nodeMap, Object[] content) {
+      this.dataMap = dataMap;
+      this.nodeMap = nodeMap;
+      this.content = content;
+    }
+
+    private static int bit(int hash, int shift) {
+      return 1 << ((hash >>> shift) & MASK);
+    }
+
+    private int dataIndex(int bit) {
+      return 2 * Integer.bitCount(dataMap & (bit - 1));
+    }
+
+    private int nodeIndex(int bit) {
+      return content.length - 1 - Integer.bitCount(nodeMap & (bit - 1));
+    }
+
+    @Override
+    int entryCount() {
+      return Integer.bitCount(dataMap);
+    }
+
+    @Override
+    Object keyAt(int i) {
+      return content[2 * i];
+    }
+
+    @Override
+    Object valueAt(int i) {
+      return content[2 * i + 1];
+    }
+
+    @Override
+    int nodeCount() {
+      return Integer.bitCount(nodeMap);
+    }
+
+    @Override
+    Node nodeAt(int i) {
+      return (Node) content[content.length - 1 - i];
+    }
+
+    @Override
+    Object get(Object key, int hash, int shift) {
+      int bit = bit(hash, shift);
+      if ((dataMap & bit) != 0) {
+        int index = dataIndex(bit);
+        Object k = content[index];
+        return k == key || k.equals(key) ? content[index + 1] : null;
+      }
+      if ((nodeMap & bit) != 0) {
+        return ((Node) content[nodeIndex(bit)]).get(key, hash, shift + BITS);
+      }
+      return null;
+    }
+
+    @Override
+    Node put(Object key, Object value, int hash, int shift, boolean intKeys, Change change) {
+      int bit = bit(hash, shift);
+      if ((dataMap & bit) != 0) {
+        int index = dataIndex(bit);
+        Object k = content[index];
+        Object v = content[index + 1];
+        if (k == key || k.equals(key)) {
+          if (v == value || v.equals(value)) {
+            return this;
+          }
+          change.oldKey = k;
+          change.oldValue = v;
+          Object[] newContent = content.clone();
+          newContent[index] = key;
+          newContent[index + 1] = value;
+          return new BitmapNode(dataMap, nodeMap, newContent);
+        }
+        Node subNode = merge(k, v, hash(k, intKeys), key, value, hash, shift + BITS);
+        return replaceEntryByNode(bit, index, subNode);
+      }
+      if ((nodeMap & bit) != 0) {
+        int index = nodeIndex(bit);
+        Node subNode = (Node) content[index];
+        Node newSubNode = subNode.put(key, value, hash, shift + BITS, intKeys, change);
+        if (newSubNode == subNode) {
+          return this;
+        }
+        Object[] newContent = content.clone();
+        newContent[index] = newSubNode;
+        return new BitmapNode(dataMap, nodeMap, newContent);
+      }
+      int index = dataIndex(bit);
+      Object[] newContent = new Object[content.length + 2];
+      System.arraycopy(content, 0, newContent, 0, index);
+      newContent[index] = key;
+      newContent[index + 1] = value;
+      System.arraycopy(content, index, newContent, index + 2, content.length - index);
+      return new BitmapNode(dataMap | bit, nodeMap, newContent);
+    }
+
+    private Node replaceEntryByNode(int bit, int dataIndex, Node subNode) {
+      // one entry (2 slots) is replaced by one node (1 slot)
+      int oldNodeIndex = nodeIndex(bit);
+      Object[] newContent = new Object[content.length - 1];
+      System.arraycopy(content, 0, newContent, 0, dataIndex);
+      System.arraycopy(content, dataIndex + 2, newContent, dataIndex, oldNodeIndex - 1 - dataIndex);
+      newContent[oldNodeIndex - 1] = subNode;
+      System.arraycopy(content, oldNodeIndex + 1, newContent, oldNodeIndex, content.length - oldNodeIndex - 1);
+      return new BitmapNode(dataMap ^ bit, nodeMap | bit, newContent);
+    }
+
+    private Node replaceNodeByEntry(int bit, int nodeIndex, Object key, Object value) {
+      // one node (1 slot) is replaced by one entry (2 slots)
+      int newDataIndex = dataIndex(bit);
+      Object[] newContent = new Object[content.length + 1];
+      System.arraycopy(content, 0, newContent, 0, newDataIndex);
+      newContent[newDataIndex] = key;
+      newContent[newDataIndex + 1] = value;
+      System.arraycopy(content, newDataIndex, newContent, newDataIndex + 2, nodeIndex - newDataIndex);
+      System.arraycopy(content, nodeIndex + 1, newContent, nodeIndex + 2, content.length - nodeIndex - 1);
+      return new BitmapNode(dataMap | bit, nodeMap ^ bit, newContent);
+    }
+
+    private static Node merge(Object key1, Object value1, int hash1, Object key2, Object value2, int hash2, int shift) {
+      if (shift >= Integer.SIZE) {
+        return new CollisionNode(new Object[] {key1, value1, key2, value2});
+      }
+      int index1 = (hash1 >>> shift) & MASK;
+      int index2 = (hash2 >>> shift) & MASK;
+      if (index1 == index2) {
+        return new BitmapNode(0, 1 << index1, new Object[] {merge(key1, value1, hash1, key2, value2, hash2, shift + BITS)});
+      }
+      int dataMap = (1 << index1) | (1 << index2);
+      if (index1 < index2) {
+        return new BitmapNode(dataMap, 0, new Object[] {key1, value1, key2, value2});
+      }
+      return new BitmapNode(dataMap, 0, new Object[] {key2, value2, key1, value1});
+    }
+
+    @Override
+    Node remove(Object key, int hash, int shift, Change change) {
+      int bit = bit(hash, shift);
+      if ((dataMap & bit) != 0) {
+        int index = dataIndex(bit);
+        Object k = content[index];
+        if (k != key && !k.equals(key)) {
+          return this;
+        }
+        change.oldKey = k;
+        change.oldValue = content[index + 1];
+        if (content.length == 2) {
+          return EMPTY;
+        }
+        Object[] newContent = new Object[content.length - 2];
+        System.arraycopy(content, 0, newContent, 0, index);
+        System.arraycopy(content, index + 2, newContent, index, content.length - index - 2);
+        return new BitmapNode(dataMap ^ bit, nodeMap, newContent);
+      }
+      if ((nodeMap & bit) != 0) {
+        int index = nodeIndex(bit);
+        Node subNode = (Node) content[index];
+        Node newSubNode = subNode.remove(key, hash, shift + BITS, change);
+        if (newSubNode == subNode) {
+          return this;
+        }
+        if (newSubNode.hasSingleEntry()) {
+          if (content.length == 1) {
+            // this node only contains the sub-node: the remaining entry is inlined further up
+            return newSubNode;
+          }
+          return replaceNodeByEntry(bit, index, newSubNode.keyAt(0), newSubNode.valueAt(0));
+        }
+        Object[] newContent = content.clone();
+        newContent[index] = newSubNode;
+        return new BitmapNode(dataMap, nodeMap, newContent);
+      }
+      return this;
+    }
+
+    @Override
+    boolean sameEntries(Node other) {
+      if (this == other) {
+        return true;
+      }
+      if (!(other instanceof BitmapNode)) {
+        return false;
+      }
+      BitmapNode that = (BitmapNode) other;
+      if (dataMap != that.dataMap || nodeMap != that.nodeMap) {
+        return false;
+      }
+      int dataLength = 2 * Integer.bitCount(dataMap);
+      for (int i = 0; i < dataLength; i++) {
+        if (!content[i].equals(that.content[i])) {
+          return false;
+        }
+      }
+      for (int i = dataLength; i < content.length; i++) {
+        if (!((Node) content[i]).sameEntries((Node) that.content[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Entries of keys with the same hash code.
+   */
+  private static final class CollisionNode extends Node {
+
+    private final Object[] content;
+
+    CollisionNode(Object[] content) {
+      this.content = content;
+    }
+
+    @Override
+    int entryCount() {
+      return content.length / 2;
+    }
+
+    @Override
+    Object keyAt(int i) {
+      return content[2 * i];
+    }
+
+    @Override
+    Object valueAt(int i) {
+      return content[2 * i + 1];
+    }
+
+    @Override
+    int nodeCount() {
+      return 0;
+    }
+
+    @Override
+    Node nodeAt(int i) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    private int indexOf(Object key) {
+      for (int i = 0; i < content.length; i += 2) {
+        Object k = content[i];
+        if (k == key || k.equals(key)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    Object get(Object key, int hash, int shift) {
+      int index = indexOf(key);
+      return index < 0 ? null : content[index + 1];
+    }
+
+    @Override
+    Node put(Object key, Object value, int hash, int shift, boolean intKeys, Change change) {
+      int index = indexOf(key);
+      if (index < 0) {
+        Object[] newContent = new Object[content.length + 2];
+        System.arraycopy(content, 0, newContent, 0, content.length);
+        newContent[content.length] = key;
+        newContent[content.length + 1] = value;
+        return new CollisionNode(newContent);
+      }
+      Object v = content[index + 1];
+      if (v == value || v.equals(value)) {
+        return this;
+      }
+      change.oldKey = content[index];
+      change.oldValue = v;
+      Object[] newContent = content.clone();
+      newContent[index] = key;
+      newContent[index + 1] = value;
+      return new CollisionNode(newContent);
+    }
+
+    @Override
+    Node remove(Object key, int hash, int shift, Change change) {
+      int index = indexOf(key);
+      if (index < 0) {
+        return this;
+      }
+      change.oldKey = content[index];
+      change.oldValue = content[index + 1];
+      Object[] newContent = new Object[content.length - 2];
+      System.arraycopy(content, 0, newContent, 0, index);
+      System.arraycopy(content, index + 2, newContent, index, content.length - index - 2);
+      return new CollisionNode(newContent);
+    }
+
+    @Override
+    boolean sameEntries(Node other) {
+      if (this == other) {
+        return true;
+      }
+      if (!(other instanceof CollisionNode) || content.length != ((CollisionNode) other).content.length) {
+        return false;
+      }
+      CollisionNode that = (CollisionNode) other;
+      for (int i = 0; i < content.length; i += 2) {
+        int index = that.indexOf(content[i]);
+        if (index < 0 || !Objects.equals(content[i + 1], that.content[index + 1])) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  private static class EntryIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+    private final Deque<Node> nodes = new ArrayDeque<>();
+    private Node current;
+    private int index;
+
+    EntryIterator(Node root) {
+      current = root;
+      pushNodes(root);
+      advance();
+    }
+
+    private void pushNodes(Node node) {
+      for (int i = node.nodeCount() - 1; i >= 0; i--) {
+        nodes.push(node.nodeAt(i));
+      }
+    }
+
+    private void advance() {
+      while (current != null && index >= current.entryCount()) {
+        current = nodes.poll();
+        index = 0;
+        if (current != null) {
+          pushNodes(current);
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return current != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Map.Entry<K, V> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Map.Entry<K, V> entry = new AbstractMap.SimpleImmutableEntry<>((K) current.keyAt(index), (V) current.valueAt(index));
+      index++;
+      advance();
+      return entry;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.collections;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Immutable singly-linked list, used as a {@link PStack}: push and pop are O(1) and share the rest of the list.
+ * Hash code is computed when pushing an element, from the hash code of the rest of the list.
+ */
+public final class SinglyLinkedList<E> implements PStack<E> {
+
+  private static final SinglyLinkedList EMPTY = new SinglyLinkedList<>(null, null, 0);
+
+  private final E head;
+  private final SinglyLinkedList<E> tail;
+  private final int size;
+  private final int hashCode;
+
+  private SinglyLinkedList(E head, SinglyLinkedList<E> tail, int size) {
+    this.head = head;
+    this.tail = tail;
+    this.size = size;
+    this.hashCode = size == 0 ? 1 : (31 * tail.hashCode + Objects.hashCode(head));
+  }
+
+  @SuppressWarnings("unchecked")
+  public static <E> SinglyLinkedList<E> empty() {
+    return EMPTY;
+  }
+
+  @Override
+  public PStack<E> push(E e) {
+    return new SinglyLinkedList<>(e, this, size + 1);
+  }
+
+  @Override
+  public E peek() {
+    checkNotEmpty();
+    return head;
+  }
+
+  @Override
+  public PStack<E> pop() {
+    checkNotEmpty();
+    return tail;
+  }
+
+  private void checkNotEmpty() {
+    if (size == 0) {
+      throw new IllegalStateException("Stack is empty");
+    }
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public Iterator<E> iterator() {
+    return new Iterator<E>() {
+      private SinglyLinkedList<E> current = SinglyLinkedList.this;
+
+      @Override
+      public boolean hasNext() {
+        return current.size > 0;
+      }
+
+      @Override
+      public E next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        E result = current.head;
+        current = current.tail;
+        return result;
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof SinglyLinkedList)) {
+      return false;
+    }
+    SinglyLinkedList<?> l1 = this;
+    SinglyLinkedList<?> l2 = (SinglyLinkedList<?>) o;
+    if (l1.size != l2.size || l1.hashCode != l2.hashCode) {
+      return false;
+    }
+    // lists often share their tails, which stops the comparison early
+    while (l1 != l2) {
+      if (!Objects.equals(l1.head, l2.head)) {
+        return false;
+      }
+      l1 = l1.tail;
+      l2 = l2.tail;
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    return hashCode;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("[");
+    for (SinglyLinkedList<E> node = this; node.size > 0; node = node.tail) {
+      if (node != this) {
+        sb.append(", ");
+      }
+      sb.append(node.head);
+    }
+    return sb.append(']').toString();
+  }
+
+}
@@ -20,6 +20,7 @@
 package org.sonar.java.model;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.LinkedHashMultimap;
@@ -28,6 +29,8 @@ import com.google.common.collect.SetMultimap;
 import org.sonar.java.AnalyzerMessage;
 import org.sonar.java.SonarComponents;
 import org.sonar.java.ast.visitors.ComplexityVisitor;
+import org.sonar.java.cfg.CFG;
+import org.sonar.java.cfg.LiveVariables;
 import org.sonar.java.resolve.SemanticModel;
 import org.sonar.java.se.checks.SECheck;
 import org.sonar.plugins.java.api.JavaCheck;
@@ -39,12 +42,15 @@ import org.sonar.plugins.java.api.tree.MethodTree;
 import org.sonar.plugins.java.api.tree.Tree;
 import org.sonar.squidbridge.api.SourceFile;
 
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 
 import java.io.File;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class DefaultJavaFileScannerContext implements JavaFileScannerContext {
   private final CompilationUnitTree tree;
@@ -56,7 +62,11 @@ public class DefaultJavaFileScannerContext implements JavaFileScannerContext {
   private final File file;
   private final JavaVersion javaVersion;
   private final boolean fileParsed;
+  private FileContent fileContent;
   private final Map<Class<? extends SECheck>, SetMultimap<Tree, String>> seIssues = new HashMap<>();
+  // methods of a file can be explored concurrently by symbolic execution
+  private final ConcurrentMap<MethodTree, CFG> cfgs = new ConcurrentHashMap<>();
+  private final ConcurrentMap<MethodTree, LiveVariables> liveVariables = new ConcurrentHashMap<>();
 
   public DefaultJavaFileScannerContext(
     CompilationUnitTree tree, SourceFile sourceFile, File file, SemanticModel semanticModel, boolean analyseAccessors, @Nullable SonarComponents sonarComponents,
@@ -149,6 +159,26 @@ public class DefaultJavaFileScannerContext implements JavaFileScannerContext {
     return file;
   }
 
+  /**
+   * @return content of the file, read once with the configured charset for the parser and all the scanners of the file
+   */
+  public String getFileContent() {
+    Preconditions.checkState(fileContent != null, "Content of the file is not available: the charset of the analysis is unknown");
+    return fileContent.text();
+  }
+
+  /**
+   * @return content of the file shared with the parser and the scanners, or null if the charset of the analysis is unknown
+   */
+  @CheckForNull
+  public FileContent fileContent() {
+    return fileContent;
+  }
+
+  public void setFileContent(@Nullable FileContent fileContent) {
+    this.fileContent = fileContent;
+  }
+
   @Override
   public List<Tree> getComplexityNodes(Tree tree) {
     return complexityVisitor.scan(tree);
@@ -159,6 +189,65 @@ public class DefaultJavaFileScannerContext implements JavaFileScannerContext {
     return complexityVisitor.scan(enclosingClass, methodTree);
   }
 
+  /**
+   * Control flow graph of a method with a body, built on first request and shared by all the scanners of the file.
+   */
+  public CFG getCfg(MethodTree methodTree) {
+    CFG cfg = cfgs.get(methodTree);
+    if (cfg == null) {
+      cfg = CFG.build(methodTree);
+      CFG previous = cfgs.putIfAbsent(methodTree, cfg);
+      if (previous != null) {
+        cfg = previous;
+      }
+    }
+    return cfg;
+  }
+
+  /**
+   * Live variables of the control flow graph returned by {@link #getCfg(MethodTree)}, computed on first request and shared by all the scanners of the file.
+   */
+  public LiveVariables getLiveVariables(MethodTree methodTree) {
+    LiveVariables result = liveVariables.get(methodTree);
+    if (result == null) {
+      result = LiveVariables.analyze(getCfg(methodTree));
+      LiveVariables previous = liveVariables.putIfAbsent(methodTree, result);
+      if (previous != null) {
+        result = previous;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Control flow graph of a method with a body, shared by all the scanners of the file when the context is a {@link DefaultJavaFileScannerContext},
+   * built for the caller only otherwise.
+   */
+  public static CFG cfgOf(JavaFileScannerContext context, MethodTree methodTree) {
+    if (context instanceof DefaultJavaFileScannerContext) {
+      return ((DefaultJavaFileScannerContext) context).getCfg(methodTree);
+    }
+    return CFG.build(methodTree);
+  }
+
+  /**
+   * Live variables of the control flow graph returned by {@link #cfgOf(JavaFileScannerContext, MethodTree)} for the same context and method.
+   */
+  public static LiveVariables liveVariablesOf(JavaFileScannerContext context, MethodTree methodTree, CFG cfg) {
+    if (context instanceof DefaultJavaFileScannerContext) {
+      return ((DefaultJavaFileScannerContext) context).getLiveVariables(methodTree);
+    }
+    return LiveVariables.analyze(cfg);
+  }
+
+  /**
+   * Releases the control flow graphs and live variables of the file, once all its scanners are done.
+   */
+  public void clearControlFlowCache() {
+    cfgs.clear();
+    liveVariables.clear();
+  }
+
   public void reportSEIssue(Class<? extends SECheck> check, Tree tree, String message) {
     if (!seIssues.containsKey(check)) {
       seIssues.put(check, LinkedHashMultimap.<Tree, String>create());
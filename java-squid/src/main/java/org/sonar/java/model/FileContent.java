@@ -0,0 +1,115 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.model;
+
+import com.google.common.base.Throwables;
+import com.google.common.io.Files;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Content of a source file, read and decoded at most once for the parser and all the visitors of the file.
+ * Lines are terminated by "\n", "\r\n" or "\r".
+ */
+public class FileContent {
+
+  private final File file;
+  private final Charset charset;
+  private String text;
+  private int[] lineStartOffsets;
+
+  /**
+   * The file is read on first access to its content.
+   */
+  public FileContent(File file, Charset charset) {
+    this.file = file;
+    this.charset = charset;
+  }
+
+  /**
+   * @return content of the file scanned with the given context, shared with the parser when the context provides it,
+   * or else read with the given charset
+   */
+  public static FileContent of(JavaFileScannerContext context, Charset charset) {
+    if (context instanceof DefaultJavaFileScannerContext) {
+      FileContent fileContent = ((DefaultJavaFileScannerContext) context).fileContent();
+      if (fileContent != null) {
+        return fileContent;
+      }
+    }
+    return new FileContent(context.getFile(), charset);
+  }
+
+  public File file() {
+    return file;
+  }
+
+  public String text() {
+    if (text == null) {
+      try {
+        text = Files.toString(file, charset);
+      } catch (IOException e) {
+        throw Throwables.propagate(e);
+      }
+    }
+    return text;
+  }
+
+  /**
+   * @return number of line terminators plus one: a file ending with a line terminator has a last empty line
+   */
+  public int lineCount() {
+    return lineStartOffsets().length;
+  }
+
+  /**
+   * @param line line number, starting at 1
+   * @return offset in {@link #text()} of the first character of the line
+   */
+  public int lineStartOffset(int line) {
+    return lineStartOffsets()[line - 1];
+  }
+
+  private int[] lineStartOffsets() {
+    if (lineStartOffsets == null) {
+      String content = text();
+      int[] offsets = new int[16];
+      int count = 1;
+      int length = content.length();
+      for (int i = 0; i < length; i++) {
+        char c = content.charAt(i);
+        if (c == '\n' || (c == '\r' && (i + 1 == length || content.charAt(i + 1) != '\n'))) {
+          if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count * 2);
+          }
+          offsets[count] = i + 1;
+          count++;
+        }
+      }
+      lineStartOffsets = Arrays.copyOf(offsets, count);
+    }
+    return lineStartOffsets;
+  }
+
+}
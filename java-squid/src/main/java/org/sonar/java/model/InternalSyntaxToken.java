@@ -99,6 +99,16 @@ public class InternalSyntaxToken extends JavaTree implements SyntaxToken {
     return Kind.TOKEN;
   }
 
+  @Override
+  public SyntaxToken firstToken() {
+    return this;
+  }
+
+  @Override
+  public SyntaxToken lastToken() {
+    return this;
+  }
+
   @Override
   public boolean isLeaf() {
     return true;
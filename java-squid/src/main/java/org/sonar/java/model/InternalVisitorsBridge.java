@@ -20,18 +20,31 @@
 package org.sonar.java.model;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.sonar.sslr.api.RecognitionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.check.RuleProperty;
+import org.sonar.java.AnalysisProfiler;
+import org.sonar.java.AnalyzerMessage;
 import org.sonar.java.CharsetAwareVisitor;
+import org.sonar.java.IncrementalCache;
 import org.sonar.java.JavaVersionAwareVisitor;
 import org.sonar.java.SonarComponents;
 import org.sonar.java.ast.visitors.SonarSymbolTableVisitor;
+import org.sonar.java.ast.visitors.SubscriptionVisitorDispatcher;
 import org.sonar.java.ast.visitors.VisitorContext;
+import org.sonar.java.resolve.BytecodeCache;
+import org.sonar.java.resolve.MethodResolutionStatistics;
 import org.sonar.java.resolve.SemanticModel;
+import org.sonar.java.se.SymbolicExecutionBudget;
+import org.sonar.java.se.SymbolicExecutionStatistics;
 import org.sonar.java.se.SymbolicExecutionVisitor;
+import org.sonar.plugins.java.api.JavaCheck;
 import org.sonar.plugins.java.api.JavaFileScanner;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.plugins.java.api.JavaVersion;
@@ -41,11 +54,19 @@ import org.sonar.plugins.java.api.tree.Tree;
 import org.sonar.squidbridge.AstScannerExceptionHandler;
 import org.sonar.squidbridge.api.SourceFile;
 
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 
 import java.io.File;
+import java.lang.reflect.Field;
 import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
 
 public class InternalVisitorsBridge {
 
@@ -53,13 +74,25 @@ public class InternalVisitorsBridge {
 
   private final List<JavaFileScanner> scanners;
   private List<JavaFileScanner> executableScanners;
+  private SubscriptionVisitorDispatcher dispatcher;
   private final SonarComponents sonarComponents;
   private final boolean symbolicExecutionEnabled;
   private SemanticModel semanticModel;
-  private List<File> projectClasspath;
+  private final BytecodeCache bytecodeCache;
+  private final boolean ownsBytecodeCache;
   private boolean analyseAccessors;
   private VisitorContext context;
   private JavaVersion javaVersion;
+  private Charset charset;
+  private IncrementalCache incrementalCache;
+  private AnalysisProfiler profiler;
+  private Map<JavaFileScanner, String> profilingPhases = Collections.emptyMap();
+  private SymbolicExecutionBudget symbolicExecutionBudget = SymbolicExecutionBudget.DEFAULT;
+  private final SymbolicExecutionStatistics symbolicExecutionStatistics = new SymbolicExecutionStatistics();
+  private final MethodResolutionStatistics methodResolutionStatistics = new MethodResolutionStatistics();
+  private ForkJoinPool symbolicExecutionPool;
+  private Map<JavaCheck, RuleKey> ruleKeys = Collections.emptyMap();
+  private Map<RuleKey, JavaCheck> checksByRuleKey = Collections.emptyMap();
 
   @VisibleForTesting
   InternalVisitorsBridge(Iterable visitors, List<File> projectClasspath, @Nullable SonarComponents sonarComponents) {
@@ -67,6 +100,19 @@ public class InternalVisitorsBridge {
   }
 
   public InternalVisitorsBridge(Iterable visitors, List<File> projectClasspath, @Nullable SonarComponents sonarComponents, boolean symbolicExecutionEnabled) {
+    this(visitors, new BytecodeCache(projectClasspath), true, sonarComponents, symbolicExecutionEnabled);
+  }
+
+  /**
+   * @param bytecodeCache classpath shared with other scanners of the analysis. It is not closed at the end of the analysis of this bridge:
+   * this is left to its creator.
+   */
+  public InternalVisitorsBridge(Iterable visitors, BytecodeCache bytecodeCache, @Nullable SonarComponents sonarComponents, boolean symbolicExecutionEnabled) {
+    this(visitors, bytecodeCache, false, sonarComponents, symbolicExecutionEnabled);
+  }
+
+  private InternalVisitorsBridge(Iterable visitors, BytecodeCache bytecodeCache, boolean ownsBytecodeCache, @Nullable SonarComponents sonarComponents,
+    boolean symbolicExecutionEnabled) {
     ImmutableList.Builder<JavaFileScanner> scannersBuilder = ImmutableList.builder();
     for (Object visitor : visitors) {
       if (visitor instanceof JavaFileScanner) {
@@ -76,7 +122,8 @@ public class InternalVisitorsBridge {
     this.scanners = scannersBuilder.build();
     this.executableScanners = scanners;
     this.sonarComponents = sonarComponents;
-    this.projectClasspath = projectClasspath;
+    this.bytecodeCache = bytecodeCache;
+    this.ownsBytecodeCache = ownsBytecodeCache;
     this.symbolicExecutionEnabled = symbolicExecutionEnabled;
   }
 
@@ -84,7 +131,91 @@ public class InternalVisitorsBridge {
     this.analyseAccessors = analyseAccessors;
   }
 
+  public void setSymbolicExecutionBudget(SymbolicExecutionBudget symbolicExecutionBudget) {
+    this.symbolicExecutionBudget = symbolicExecutionBudget;
+  }
+
+  /**
+   * Explores the methods of each file in parallel on a pool of {@code threads} workers.
+   * Issues are reported in the order of the methods, so results are identical to a sequential exploration.
+   * A value lower or equal to 1 disables parallel exploration.
+   */
+  public void setSymbolicExecutionThreads(int threads) {
+    if (symbolicExecutionPool != null) {
+      symbolicExecutionPool.shutdown();
+    }
+    symbolicExecutionPool = symbolicExecutionEnabled && threads > 1 ? new ForkJoinPool(threads) : null;
+  }
+
+  /**
+   * Enables profiling of the analysis, see {@link AnalysisProfiler}.
+   *
+   * @param reportFile file where the report is written at the end of the analysis, or null to disable profiling
+   */
+  public void setProfilingReport(@Nullable File reportFile) {
+    if (reportFile == null) {
+      profiler = null;
+      return;
+    }
+    profiler = new AnalysisProfiler(reportFile);
+    // rules instantiating the same template check are measured separately
+    profilingPhases = new IdentityHashMap<>();
+    for (JavaFileScanner scanner : scanners) {
+      RuleKey ruleKey = sonarComponents == null ? null : sonarComponents.getRuleKey(scanner);
+      String className = scanner.getClass().getName();
+      profilingPhases.put(scanner, ruleKey == null ? className : (ruleKey + " (" + className + ")"));
+    }
+  }
+
+  @CheckForNull
+  public AnalysisProfiler profiler() {
+    return profiler;
+  }
+
+  /**
+   * Enables incremental analysis: checks are not executed on files which did not change since the analysis which wrote the cache,
+   * their issues are replayed instead. Must be called once the bridge is configured, as the configuration is part of the cache key.
+   */
+  public void setIncrementalCache(@Nullable File cacheFile) {
+    if (cacheFile == null || sonarComponents == null) {
+      incrementalCache = null;
+      return;
+    }
+    ruleKeys = new IdentityHashMap<>();
+    checksByRuleKey = Maps.newHashMap();
+    Map<String, String> rules = new TreeMap<>();
+    for (JavaFileScanner scanner : scanners) {
+      RuleKey ruleKey = sonarComponents.getRuleKey(scanner);
+      if (ruleKey != null) {
+        ruleKeys.put(scanner, ruleKey);
+        checksByRuleKey.put(ruleKey, scanner);
+        rules.put(ruleKey.toString(), ruleProperties(scanner));
+      }
+    }
+    String configuration = IncrementalCache.class.getPackage().getImplementationVersion() + ";" + javaVersion + ";" + analyseAccessors + ";"
+      + symbolicExecutionEnabled + ";" + symbolicExecutionBudget + ";" + rules;
+    incrementalCache = new IncrementalCache(cacheFile, IncrementalCache.hash(configuration));
+  }
+
+  private static String ruleProperties(JavaFileScanner scanner) {
+    StringBuilder sb = new StringBuilder();
+    for (Class<?> clazz = scanner.getClass(); clazz != null; clazz = clazz.getSuperclass()) {
+      for (Field field : clazz.getDeclaredFields()) {
+        if (field.isAnnotationPresent(RuleProperty.class)) {
+          field.setAccessible(true);
+          try {
+            sb.append(field.getName()).append('=').append(field.get(scanner)).append(';');
+          } catch (IllegalAccessException e) {
+            throw Throwables.propagate(e);
+          }
+        }
+      }
+    }
+    return sb.toString();
+  }
+
   public void setCharset(Charset charset) {
+    this.charset = charset;
     for (JavaFileScanner scanner : scanners) {
       if (scanner instanceof CharsetAwareVisitor) {
         ((CharsetAwareVisitor) scanner).setCharset(charset);
@@ -95,6 +226,7 @@ public class InternalVisitorsBridge {
   public void setJavaVersion(JavaVersion javaVersion) {
     this.javaVersion = javaVersion;
     this.executableScanners = executableScanners(scanners, javaVersion);
+    this.dispatcher = null;
   }
 
   public JavaVersion getJavaVersion() {
@@ -102,35 +234,158 @@ public class InternalVisitorsBridge {
   }
 
   public void visitFile(@Nullable Tree parsedTree) {
+    FileContent content = fileContent();
+    List<IncrementalCache.CachedIssue> cachedIssues = null;
+    boolean recording = false;
+    if (incrementalCache != null && parsedTree != null && content != null) {
+      cachedIssues = incrementalCache.issues(content, bytecodeCache);
+      recording = cachedIssues == null;
+    }
+    if (recording) {
+      bytecodeCache.startRecording();
+      sonarComponents.startRecordingIssues();
+    }
+    boolean visited = false;
+    try {
+      visited = visitFile(parsedTree, content, cachedIssues);
+    } finally {
+      if (recording) {
+        Set<String> classFiles = bytecodeCache.stopRecording();
+        List<AnalyzerMessage> issues = sonarComponents.stopRecordingIssues();
+        if (visited) {
+          incrementalCache.put(content, classFiles, bytecodeCache, issues, ruleKeys);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return content of the current file shared by the parser, or else read lazily with the charset of the analysis if known
+   */
+  @CheckForNull
+  private FileContent fileContent() {
+    FileContent content = getContext().getFileContent();
+    if (content == null && charset != null) {
+      content = new FileContent(getContext().getFile(), charset);
+    }
+    return content;
+  }
+
+  /**
+   * @param content content of the file, see {@link #fileContent()}
+   * @param cachedIssues issues to replay instead of executing checks, or null to execute checks
+   * @return false if the file could not be visited
+   */
+  private boolean visitFile(@Nullable Tree parsedTree, @Nullable FileContent content, @Nullable List<IncrementalCache.CachedIssue> cachedIssues) {
     semanticModel = null;
     CompilationUnitTree tree = new JavaTree.CompilationUnitTreeImpl(null, Lists.<ImportClauseTree>newArrayList(), Lists.<Tree>newArrayList(), null);
     boolean fileParsed = parsedTree != null;
     if (fileParsed && parsedTree.is(Tree.Kind.COMPILATION_UNIT)) {
       tree = (CompilationUnitTree) parsedTree;
       if (isNotJavaLangOrSerializable(PackageUtils.packageName(tree.packageDeclaration(), "/"))) {
+        AnalysisProfiler.Measure start = profiler == null ? null : profiler.start();
         try {
-          semanticModel = SemanticModel.createFor(tree, getProjectClasspath());
+          semanticModel = SemanticModel.createFor(tree, bytecodeCache);
+          methodResolutionStatistics.add(semanticModel.methodResolutionStatistics());
         } catch (Exception e) {
           LOG.error("Unable to create symbol table for : " + getContext().getFile().getAbsolutePath(), e);
-          return;
+          return false;
         }
         createSonarSymbolTable(tree);
+        if (profiler != null) {
+          profiler.stop(start, AnalysisProfiler.SEMANTIC_MODEL, getContext().getFile());
+        }
       } else {
         SemanticModel.handleMissingTypes(tree);
       }
     }
     JavaFileScannerContext javaFileScannerContext = createScannerContext(tree, semanticModel, analyseAccessors, sonarComponents, fileParsed);
-    // Symbolic execution checks
-    if (symbolicExecutionEnabled && isNotJavaLangOrSerializable(PackageUtils.packageName(tree.packageDeclaration(), "/"))) {
-      new SymbolicExecutionVisitor().scanFile(javaFileScannerContext);
+    if (javaFileScannerContext instanceof DefaultJavaFileScannerContext) {
+      ((DefaultJavaFileScannerContext) javaFileScannerContext).setFileContent(content);
     }
-    for (JavaFileScanner scanner : executableScanners) {
-      scanner.scanFile(javaFileScannerContext);
+    if (cachedIssues == null) {
+      // Symbolic execution checks
+      if (symbolicExecutionEnabled && isNotJavaLangOrSerializable(PackageUtils.packageName(tree.packageDeclaration(), "/"))) {
+        scan(new SymbolicExecutionVisitor(symbolicExecutionBudget, symbolicExecutionStatistics, symbolicExecutionPool), AnalysisProfiler.SYMBOLIC_EXECUTION,
+          javaFileScannerContext);
+      }
+      if (dispatcher == null) {
+        dispatcher = new SubscriptionVisitorDispatcher(executableScanners);
+      }
+      scan(executableScanners, dispatcher, javaFileScannerContext);
+    } else {
+      List<JavaFileScanner> nonRuleScanners = Lists.newArrayList();
+      for (JavaFileScanner scanner : executableScanners) {
+        if (!ruleKeys.containsKey(scanner)) {
+          nonRuleScanners.add(scanner);
+        }
+      }
+      scan(nonRuleScanners, new SubscriptionVisitorDispatcher(nonRuleScanners), javaFileScannerContext);
+      replayIssues(cachedIssues);
+    }
+    if (javaFileScannerContext instanceof DefaultJavaFileScannerContext) {
+      ((DefaultJavaFileScannerContext) javaFileScannerContext).clearControlFlowCache();
     }
     if (semanticModel != null) {
-      // Close class loader after all the checks.
       semanticModel.done();
     }
+    return true;
+  }
+
+  /**
+   * Subscription visitors are executed with a single traversal of the tree, unless profiling requires to measure each of them.
+   */
+  private void scan(List<JavaFileScanner> scanners, SubscriptionVisitorDispatcher scannersDispatcher, JavaFileScannerContext javaFileScannerContext) {
+    if (profiler != null) {
+      for (JavaFileScanner scanner : scanners) {
+        scan(scanner, profilingPhases.get(scanner), javaFileScannerContext);
+      }
+      return;
+    }
+    scannersDispatcher.scanFile(javaFileScannerContext);
+  }
+
+  private void scan(JavaFileScanner scanner, String phase, JavaFileScannerContext javaFileScannerContext) {
+    if (profiler == null) {
+      scanner.scanFile(javaFileScannerContext);
+      return;
+    }
+    AnalysisProfiler.Measure start = profiler.start();
+    try {
+      scanner.scanFile(javaFileScannerContext);
+    } finally {
+      profiler.stop(start, phase, getContext().getFile());
+    }
+  }
+
+  /**
+   * Releases the resources shared by all the files of the analysis, such as the classpath when owned by this bridge.
+   * Saves the incremental cache and writes the profiling report if enabled.
+   */
+  public void endOfAnalysis() {
+    if (ownsBytecodeCache) {
+      bytecodeCache.close();
+    }
+    if (incrementalCache != null) {
+      incrementalCache.save();
+    }
+    if (profiler != null) {
+      profiler.save();
+    }
+    if (symbolicExecutionPool != null) {
+      symbolicExecutionPool.shutdown();
+    }
+    symbolicExecutionStatistics.log();
+    methodResolutionStatistics.log();
+  }
+
+  private void replayIssues(List<IncrementalCache.CachedIssue> cachedIssues) {
+    for (IncrementalCache.CachedIssue cachedIssue : cachedIssues) {
+      AnalyzerMessage analyzerMessage = cachedIssue.toAnalyzerMessage(checksByRuleKey);
+      if (analyzerMessage != null) {
+        sonarComponents.reportIssue(analyzerMessage);
+      }
+    }
   }
 
   private static List<JavaFileScanner> executableScanners(List<JavaFileScanner> scanners, JavaVersion javaVersion) {
@@ -173,10 +428,6 @@ public class InternalVisitorsBridge {
     return "java/lang".equals(packageName);
   }
 
-  private List<File> getProjectClasspath() {
-    return projectClasspath;
-  }
-
   private void createSonarSymbolTable(CompilationUnitTree tree) {
     if (sonarComponents != null) {
       SonarSymbolTableVisitor symVisitor = new SonarSymbolTableVisitor(sonarComponents.symbolizableFor(getContext().getFile()), semanticModel);
@@ -25,7 +25,10 @@ import com.google.common.collect.Iterators;
 import org.sonar.java.ast.parser.TypeUnionListTreeImpl;
 import org.sonar.java.model.declaration.AnnotationTreeImpl;
 import org.sonar.java.model.expression.TypeArgumentListTreeImpl;
+import org.sonar.java.resolve.Resolve;
 import org.sonar.java.syntaxtoken.FirstSyntaxTokenFinder;
+import org.sonar.java.syntaxtoken.LastSyntaxTokenFinder;
+import org.sonar.plugins.java.api.semantic.Symbol;
 import org.sonar.plugins.java.api.tree.AnnotationTree;
 import org.sonar.plugins.java.api.tree.ArrayTypeTree;
 import org.sonar.plugins.java.api.tree.CompilationUnitTree;
@@ -39,6 +42,7 @@ import org.sonar.plugins.java.api.tree.PackageDeclarationTree;
 import org.sonar.plugins.java.api.tree.ParameterizedTypeTree;
 import org.sonar.plugins.java.api.tree.PrimitiveTypeTree;
 import org.sonar.plugins.java.api.tree.SyntaxToken;
+import org.sonar.plugins.java.api.tree.SyntaxTrivia;
 import org.sonar.plugins.java.api.tree.Tree;
 import org.sonar.plugins.java.api.tree.TreeVisitor;
 import org.sonar.plugins.java.api.tree.TypeArguments;
@@ -47,6 +51,7 @@ import org.sonar.plugins.java.api.tree.UnionTypeTree;
 import org.sonar.plugins.java.api.tree.WildcardTree;
 import org.sonar.sslr.grammar.GrammarRuleKey;
 
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import java.util.Collections;
 import java.util.Deque;
@@ -61,17 +66,62 @@ public abstract class JavaTree implements Tree {
 
   protected GrammarRuleKey grammarRuleKey;
 
+  /**
+   * Stands for the first and last tokens of a tree without any token, so that their absence is kept too.
+   */
+  private static final SyntaxToken NO_TOKEN = new InternalSyntaxToken(0, 0, "", ImmutableList.<SyntaxTrivia>of(), 0, 0, false);
+
+  /**
+   * First and last tokens are looked up on first use, once the tree is built, and kept for next lookups: null until then.
+   * Fields are volatile as trees are read by several threads during symbolic execution. Tokens are their own first and last tokens.
+   */
+  private volatile SyntaxToken firstToken;
+  private volatile SyntaxToken lastToken;
+
+  /**
+   * Symbol declared by this node and environment introduced by this node, set by the semantic analysis of the file.
+   * They are kept on the node rather than in maps of the semantic model, which would cost more memory and a hash lookup for each access.
+   */
+  private Symbol semanticSymbol;
+  private Resolve.Env env;
+
   public JavaTree(GrammarRuleKey grammarRuleKey) {
     this.grammarRuleKey = grammarRuleKey;
   }
   public int getLine() {
-    SyntaxToken firstSyntaxToken = FirstSyntaxTokenFinder.firstSyntaxToken(this);
+    SyntaxToken firstSyntaxToken = firstToken();
     if (firstSyntaxToken == null) {
       return -1;
     }
     return firstSyntaxToken.line();
   }
 
+  /**
+   * @see FirstSyntaxTokenFinder#firstSyntaxToken(Tree)
+   */
+  @Nullable
+  public SyntaxToken firstToken() {
+    SyntaxToken result = firstToken;
+    if (result == null) {
+      result = FirstSyntaxTokenFinder.findFirstSyntaxToken(this);
+      firstToken = result == null ? NO_TOKEN : result;
+    }
+    return result == NO_TOKEN ? null : result;
+  }
+
+  /**
+   * @see LastSyntaxTokenFinder#lastSyntaxToken(Tree)
+   */
+  @Nullable
+  public SyntaxToken lastToken() {
+    SyntaxToken result = lastToken;
+    if (result == null) {
+      result = LastSyntaxTokenFinder.findLastSyntaxToken(this);
+      lastToken = result == null ? NO_TOKEN : result;
+    }
+    return result == NO_TOKEN ? null : result;
+  }
+
   @Override
   public final boolean is(Kind... kind) {
     Kind treeKind = kind();
@@ -92,6 +142,30 @@ public abstract class JavaTree implements Tree {
     this.parent = parent;
   }
 
+  /**
+   * @see org.sonar.java.resolve.SemanticModel#getSymbol(Tree)
+   */
+  @CheckForNull
+  public Symbol semanticSymbol() {
+    return semanticSymbol;
+  }
+
+  public void setSemanticSymbol(Symbol semanticSymbol) {
+    this.semanticSymbol = semanticSymbol;
+  }
+
+  /**
+   * @see org.sonar.java.resolve.SemanticModel#getEnv(Tree)
+   */
+  @CheckForNull
+  public Resolve.Env env() {
+    return env;
+  }
+
+  public void setEnv(Resolve.Env env) {
+    this.env = env;
+  }
+
   /**
    * Creates iterator for children of this node.
    * Note that iterator may contain {@code null} elements.
@@ -0,0 +1,210 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.resolve;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Closeables;
+import org.objectweb.asm.ClassReader;
+import org.sonar.java.bytecode.ClassLoaderBuilder;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Project-wide store of the class files of the classpath, shared by the {@link BytecodeCompleter} of every analyzed file.
+ * The class loader is opened once for the whole analysis instead of once per file, and class files read are kept in a cache bounded by
+ * {@link #MAX_CACHED_BYTES} whose entries can be reclaimed by the garbage collector, so that a class file is usually read only once.
+ * Missing classes are remembered as well, so that repeated lookups of an unknown type do not probe the classpath again.
+ * Existence of classes, as checked for every simple name resolved through a star import, is answered from the index of the classpath
+ * and remembered, so that it is a hash lookup after the first request.
+ *
+ * Symbols themselves are still created per file: they hold per-file state (usages, types bound to the {@link Symbols} of the file).
+ */
+public class BytecodeCache implements Closeable {
+
+  static final long MAX_CACHED_BYTES = 64L * 1024 * 1024;
+  private static final byte[] MISSING_CLASS = new byte[0];
+
+  private final List<File> classpath;
+  private final File indexDirectory;
+  private final boolean mapJarFiles;
+  private final Cache<String, byte[]> classFiles = CacheBuilder.newBuilder()
+    .softValues()
+    .maximumWeight(MAX_CACHED_BYTES)
+    .weigher(new Weigher<String, byte[]>() {
+      @Override
+      public int weigh(String key, byte[] value) {
+        return value.length;
+      }
+    })
+    .build();
+  private final ConcurrentMap<String, Boolean> existingClasses = new ConcurrentHashMap<>();
+  private ClassLoader classLoader;
+  private Set<String> recordedClassFiles;
+
+  public BytecodeCache(List<File> classpath) {
+    this(classpath, null);
+  }
+
+  /**
+   * @param indexDirectory directory where classes of JAR files are indexed to be reused by next analyses, or null to read JAR files directly
+   */
+  public BytecodeCache(List<File> classpath, @Nullable File indexDirectory) {
+    this(classpath, indexDirectory, false);
+  }
+
+  /**
+   * @param indexDirectory directory where classes of JAR files are indexed to be reused by next analyses, or null to read JAR files directly
+   * @param mapJarFiles whether to read JAR files through a memory mapping, which keeps them locked on Windows until garbage collected
+   */
+  public BytecodeCache(List<File> classpath, @Nullable File indexDirectory, boolean mapJarFiles) {
+    this.classpath = classpath;
+    this.indexDirectory = indexDirectory;
+    this.mapJarFiles = mapJarFiles;
+  }
+
+  /**
+   * @param bytecodeName name of the class in its internal form, for instance "java/util/Map$Entry"
+   * @return content of the class file, or null if the class can not be found on the classpath
+   */
+  @CheckForNull
+  public byte[] classFile(String bytecodeName) {
+    record(bytecodeName);
+    byte[] bytes = classFiles.getIfPresent(bytecodeName);
+    if (bytes == null) {
+      bytes = read(bytecodeName);
+      byte[] previous = classFiles.asMap().putIfAbsent(bytecodeName, bytes);
+      if (previous != null) {
+        bytes = previous;
+      }
+    }
+    return bytes == MISSING_CLASS ? null : bytes;
+  }
+
+  public boolean contains(String bytecodeName) {
+    return classFile(bytecodeName) != null;
+  }
+
+  /**
+   * Unlike {@link #contains(String)}, the name of the class must match exactly: on case-insensitive file systems,
+   * a lookup of "java/Class" must not find "JAVA.class". Classes of the files of the classpath are checked against its index without being read,
+   * only classes of the JDK are read to check their name. Both found and missing classes are remembered.
+   *
+   * @param bytecodeName name of the class in its internal form, for instance "java/util/Map$Entry"
+   */
+  public boolean hasClass(String bytecodeName) {
+    record(bytecodeName);
+    Boolean result = existingClasses.get(bytecodeName);
+    if (result == null) {
+      result = checkClass(bytecodeName);
+      existingClasses.putIfAbsent(bytecodeName, result);
+    }
+    return result;
+  }
+
+  private boolean checkClass(String bytecodeName) {
+    ClassLoader loader = getClassLoader();
+    if (loader instanceof SquidClassLoader && ((SquidClassLoader) loader).hasIndexedClass(bytecodeName + ".class")) {
+      return true;
+    }
+    byte[] bytes = classFile(bytecodeName);
+    return bytes != null && new ClassReader(bytes).getClassName().equals(bytecodeName);
+  }
+
+  private void record(String bytecodeName) {
+    Set<String> recorded = recordedClassFiles;
+    if (recorded != null) {
+      recorded.add(bytecodeName);
+    }
+  }
+
+  /**
+   * Starts recording the names of the classes requested to this cache, including the ones missing from the classpath.
+   */
+  public void startRecording() {
+    recordedClassFiles = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+  }
+
+  /**
+   * @return names of the classes requested since last call to {@link #startRecording()}
+   */
+  public Set<String> stopRecording() {
+    Set<String> result = recordedClassFiles;
+    recordedClassFiles = null;
+    return result == null ? Collections.<String>emptySet() : result;
+  }
+
+  private byte[] read(String bytecodeName) {
+    ClassLoader loader = getClassLoader();
+    if (loader instanceof SquidClassLoader) {
+      byte[] bytes = ((SquidClassLoader) loader).getClassBytes(bytecodeName + ".class");
+      return bytes == null ? MISSING_CLASS : bytes;
+    }
+    InputStream inputStream = loader.getResourceAsStream(bytecodeName + ".class");
+    if (inputStream == null) {
+      return MISSING_CLASS;
+    }
+    try {
+      return ByteStreams.toByteArray(inputStream);
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    } finally {
+      Closeables.closeQuietly(inputStream);
+    }
+  }
+
+  /**
+   * @return class loader over the classpath of this cache, to be shared with other consumers of the same classpath
+   */
+  public synchronized ClassLoader getClassLoader() {
+    if (classLoader == null) {
+      classLoader = ClassLoaderBuilder.create(classpath, indexDirectory, mapJarFiles);
+    }
+    return classLoader;
+  }
+
+  /**
+   * Closes the underlying class loader and drops the class files read. The class loader is opened again if needed.
+   */
+  @Override
+  public synchronized void close() {
+    classFiles.invalidateAll();
+    existingClasses.clear();
+    if (classLoader instanceof Closeable) {
+      Closeables.closeQuietly((Closeable) classLoader);
+    }
+    classLoader = null;
+  }
+
+}
@@ -21,20 +21,14 @@ package org.sonar.java.resolve;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
-import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
-import com.google.common.io.Closeables;
 import org.apache.commons.lang.StringUtils;
 import org.objectweb.asm.ClassReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.sonar.java.bytecode.ClassLoaderBuilder;
 
 import javax.annotation.Nullable;
-import java.io.Closeable;
 import java.io.File;
-import java.io.IOException;
-import java.io.InputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -49,7 +43,8 @@ public class BytecodeCompleter implements JavaSymbol.Completer {
       Flags.ABSTRACT | Flags.STRICTFP | Flags.DEPRECATED;
 
   private Symbols symbols;
-  private final List<File> projectClasspath;
+  private final BytecodeCache bytecodeCache;
+  private final boolean ownsBytecodeCache;
   private final ParametrizedTypeCache parametrizedTypeCache;
 
   /**
@@ -58,10 +53,20 @@ public class BytecodeCompleter implements JavaSymbol.Completer {
   private final Map<String, JavaSymbol.TypeJavaSymbol> classes = new HashMap<>();
   private final Map<String, JavaSymbol.PackageJavaSymbol> packages = new HashMap<>();
 
-  private ClassLoader classLoader;
-
   public BytecodeCompleter(List<File> projectClasspath, ParametrizedTypeCache parametrizedTypeCache) {
-    this.projectClasspath = projectClasspath;
+    this(new BytecodeCache(projectClasspath), true, parametrizedTypeCache);
+  }
+
+  /**
+   * @param bytecodeCache project-wide cache of class files, which is not closed by {@link #done()}
+   */
+  public BytecodeCompleter(BytecodeCache bytecodeCache, ParametrizedTypeCache parametrizedTypeCache) {
+    this(bytecodeCache, false, parametrizedTypeCache);
+  }
+
+  private BytecodeCompleter(BytecodeCache bytecodeCache, boolean ownsBytecodeCache, ParametrizedTypeCache parametrizedTypeCache) {
+    this.bytecodeCache = bytecodeCache;
+    this.ownsBytecodeCache = ownsBytecodeCache;
     this.parametrizedTypeCache = parametrizedTypeCache;
   }
 
@@ -87,35 +92,22 @@ public class BytecodeCompleter implements JavaSymbol.Completer {
     JavaSymbol.TypeJavaSymbol classSymbol = getClassSymbol(bytecodeName);
     Preconditions.checkState(classSymbol == symbol);
 
-    InputStream inputStream = null;
-    ClassReader classReader = null;
-    try {
-      inputStream = inputStreamFor(bytecodeName);
-      if(inputStream != null) {
-        classReader = new ClassReader(inputStream);
-      }
-    } catch (IOException e) {
-      throw Throwables.propagate(e);
-    } finally {
-      Closeables.closeQuietly(inputStream);
-    }
-    if (classReader != null) {
-      classReader.accept(
+    byte[] classFile = classFileFor(bytecodeName);
+    if (classFile != null) {
+      new ClassReader(classFile).accept(
           new BytecodeVisitor(this, symbols, (JavaSymbol.TypeJavaSymbol) symbol, parametrizedTypeCache),
           ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES | ClassReader.SKIP_DEBUG);
     }
   }
 
-  @Nullable
-  private InputStream inputStreamFor(String fullname) {
-    return getClassLoader().getResourceAsStream(Convert.bytecodeName(fullname) + ".class");
+  @Override
+  public Object completionLock() {
+    return symbols.completionLock;
   }
 
-  private ClassLoader getClassLoader() {
-    if (classLoader == null) {
-      classLoader = ClassLoaderBuilder.create(projectClasspath);
-    }
-    return classLoader;
+  @Nullable
+  private byte[] classFileFor(String fullname) {
+    return bytecodeCache.classFile(Convert.bytecodeName(fullname));
   }
 
   public String formFullName(JavaSymbol symbol) {
@@ -169,7 +161,7 @@ public class BytecodeCompleter implements JavaSymbol.Completer {
       symbol.typeParameters = new Scope(symbol);
 
       // (Godin): IOException will happen without this condition in case of missing class:
-      if (getClassLoader().getResource(Convert.bytecodeName(flatName) + ".class") != null) {
+      if (bytecodeCache.hasClass(Convert.bytecodeName(flatName))) {
         symbol.completer = this;
       } else {
         LOG.error("Class not found: " + bytecodeName);
@@ -188,8 +180,8 @@ public class BytecodeCompleter implements JavaSymbol.Completer {
 
   /**
    * <b>Note:</b> Attempt to find something like "java.class" on case-insensitive file system can result in unwanted loading of "JAVA.class".
-   * This method performs check of class name within file in order to avoid such situation.
-   * This is definitely not the best solution in terms of performance, but acceptable for now.
+   * This is avoided by {@link BytecodeCache#hasClass(String)}, which checks the exact name of the class once for the whole analysis:
+   * names resolved through star imports are probed in every imported package, so this method must stay cheap.
    *
    * @return symbol for requested class, if corresponding class file exists, and {@link org.sonar.java.resolve.Resolve.JavaSymbolNotFound} otherwise
    */
@@ -200,26 +192,10 @@ public class BytecodeCompleter implements JavaSymbol.Completer {
       return symbol;
     }
 
-    // TODO(Godin): pull out conversion of name from the next method to avoid unnecessary conversion afterwards:
-    InputStream inputStream = inputStreamFor(fullname);
-    String bytecodeName = Convert.bytecodeName(fullname);
-
-    if (inputStream == null) {
+    if (!bytecodeCache.hasClass(Convert.bytecodeName(fullname))) {
       return new Resolve.JavaSymbolNotFound();
     }
 
-    try {
-      ClassReader classReader = new ClassReader(inputStream);
-      String className = classReader.getClassName();
-      if (!className.equals(bytecodeName)) {
-        return new Resolve.JavaSymbolNotFound();
-      }
-    } catch (IOException e) {
-      throw Throwables.propagate(e);
-    } finally {
-      Closeables.closeQuietly(inputStream);
-    }
-
     return getClassSymbol(fullname);
   }
 
@@ -236,8 +212,8 @@ public class BytecodeCompleter implements JavaSymbol.Completer {
   }
 
   public void done() {
-    if (classLoader != null && classLoader instanceof Closeable) {
-      Closeables.closeQuietly((Closeable) classLoader);
+    if (ownsBytecodeCache) {
+      bytecodeCache.close();
     }
   }
 
@@ -269,7 +269,7 @@ public class BytecodeVisitor extends ClassVisitor {
         result = symbols.booleanType;
         break;
       case org.objectweb.asm.Type.ARRAY:
-        result = new JavaType.ArrayJavaType(convertAsmType(asmType.getElementType()), symbols.arrayClass);
+        result = parametrizedTypeCache.getArrayType(convertAsmType(asmType.getElementType()), symbols.arrayClass);
         break;
       case org.objectweb.asm.Type.VOID:
         result = symbols.voidType;
@@ -561,7 +561,7 @@ public class BytecodeVisitor extends ClassVisitor {
         @Override
         public void visitEnd() {
           super.visitEnd();
-          ReadType.this.typeRead = new JavaType.ArrayJavaType(typeRead, symbols.arrayClass);
+          ReadType.this.typeRead = parametrizedTypeCache.getArrayType(typeRead, symbols.arrayClass);
           ReadType.this.visitEnd();
         }
       };
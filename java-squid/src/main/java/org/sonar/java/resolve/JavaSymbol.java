@@ -61,11 +61,15 @@ public class JavaSymbol implements Symbol {
 
   JavaSymbol owner;
 
-  Completer completer;
+  volatile Completer completer;
+  /**
+   * Completer running for this symbol, through which other threads wait for the end of the completion.
+   */
+  private volatile Completer runningCompleter;
 
   JavaType type;
 
-  boolean completing = false;
+  volatile boolean completing = false;
   private List<IdentifierTree> usages;
 
   public JavaSymbol(int kind, int flags, @Nullable String name, @Nullable JavaSymbol owner) {
@@ -100,12 +104,23 @@ public class JavaSymbol implements Symbol {
   }
 
   public void complete() {
-    if (completer != null) {
-      Completer c = completer;
-      completer = null;
-      completing = true;
-      c.complete(this);
-      completing = false;
+    // a symbol being completed by another thread is waited for: see SymbolicExecutionVisitor, which explores methods in parallel
+    Completer c = completer;
+    if (c == null) {
+      c = runningCompleter;
+    }
+    if (c != null) {
+      synchronized (c.completionLock()) {
+        c = completer;
+        if (c != null) {
+          runningCompleter = c;
+          completing = true;
+          completer = null;
+          c.complete(this);
+          completing = false;
+          runningCompleter = null;
+        }
+      }
     }
   }
 
@@ -266,6 +281,11 @@ public class JavaSymbol implements Symbol {
 
   interface Completer {
     void complete(JavaSymbol symbol);
+
+    /**
+     * Completions done with the same lock are done one at a time, as they update tables shared by the symbols of a semantic model.
+     */
+    Object completionLock();
   }
 
   /**
@@ -298,6 +318,10 @@ public class JavaSymbol implements Symbol {
     ClassTree declaration;
     private final String internalName;
     private final Multiset<String> internalNames = HashMultiset.create();
+    /**
+     * Closure of the super types, kept once the whole hierarchy is completed.
+     */
+    private volatile SuperTypes superTypes;
 
     public TypeJavaSymbol(int flags, String name, JavaSymbol owner) {
       super(TYP, flags, name, owner);
@@ -372,26 +396,74 @@ public class JavaSymbol implements Symbol {
      * @return list of classTypes.
      */
     public Set<JavaType.ClassJavaType> superTypes() {
+      return completedSuperTypes().types;
+    }
+
+    /**
+     * Fully qualified names of the types returned by {@link #superTypes()}.
+     */
+    Set<String> superTypeNames() {
+      return completedSuperTypes().names;
+    }
+
+    private SuperTypes completedSuperTypes() {
+      SuperTypes result = superTypes;
+      if (result == null) {
+        result = computeSuperTypes();
+      }
+      return result;
+    }
+
+    /**
+     * The closure is kept for the next calls only once every class and interface of the hierarchy is completed:
+     * it is not yet the case while one of them is being completed, the closure computed meanwhile can then be partial.
+     */
+    private SuperTypes computeSuperTypes() {
       ImmutableSet.Builder<JavaType.ClassJavaType> types = ImmutableSet.builder();
       JavaType.ClassJavaType superClassType = (JavaType.ClassJavaType) this.superClass();
-      types.addAll(this.interfacesOfType());
+      boolean hierarchyCompleted = addInterfaces(types);
+      hierarchyCompleted &= isHierarchyMemberCompleted();
       while (superClassType != null) {
         types.add(superClassType);
         TypeJavaSymbol superClassSymbol = superClassType.getSymbol();
-        types.addAll(superClassSymbol.interfacesOfType());
+        hierarchyCompleted &= superClassSymbol.addInterfaces(types);
         superClassType = (JavaType.ClassJavaType) superClassSymbol.superClass();
+        hierarchyCompleted &= superClassSymbol.isHierarchyMemberCompleted();
       }
-      return types.build();
+      SuperTypes result = new SuperTypes(types.build());
+      if (hierarchyCompleted) {
+        superTypes = result;
+      }
+      return result;
     }
 
-    private Set<JavaType.ClassJavaType> interfacesOfType() {
-      ImmutableSet.Builder<JavaType.ClassJavaType> builder = ImmutableSet.builder();
+    /**
+     * Adds the interfaces of this type and their super interfaces.
+     * @return whether all the added interfaces are completed
+     */
+    private boolean addInterfaces(ImmutableSet.Builder<JavaType.ClassJavaType> builder) {
+      boolean completed = true;
       for (JavaType interfaceType : getInterfaces()) {
         JavaType.ClassJavaType classType = (JavaType.ClassJavaType) interfaceType;
         builder.add(classType);
-        builder.addAll(classType.getSymbol().interfacesOfType());
+        TypeJavaSymbol interfaceSymbol = classType.getSymbol();
+        completed &= interfaceSymbol.addInterfaces(builder);
+        completed &= interfaceSymbol.isHierarchyMemberCompleted();
       }
-      return builder.build();
+      return completed;
+    }
+
+    /**
+     * Tells whether the super types of this symbol are all set. Completion of this symbol has to be requested beforehand:
+     * it is still in progress when this thread is itself completing it.
+     */
+    private boolean isHierarchyMemberCompleted() {
+      // completing is set before completer is cleared, so it has to be read after it
+      if (completer != null || completing) {
+        return false;
+      }
+      JavaType.ClassJavaType classType = (JavaType.ClassJavaType) type;
+      return classType.supertype != null || classType.isTagged(JavaType.UNKNOWN) || isFlag(Flags.INTERFACE) || "java.lang.Object".equals(getFullyQualifiedName());
     }
 
     @Override
@@ -423,6 +495,20 @@ public class JavaSymbol implements Symbol {
     public ClassTree declaration() {
       return declaration;
     }
+
+    private static final class SuperTypes {
+      private final Set<JavaType.ClassJavaType> types;
+      private final Set<String> names;
+
+      SuperTypes(Set<JavaType.ClassJavaType> types) {
+        this.types = types;
+        ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+        for (JavaType.ClassJavaType classType : types) {
+          builder.add(classType.getSymbol().getFullyQualifiedName());
+        }
+        this.names = builder.build();
+      }
+    }
   }
 
   /**
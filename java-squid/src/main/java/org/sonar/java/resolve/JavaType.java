@@ -242,18 +242,18 @@ public class JavaType implements Type {
     }
 
     private boolean superTypeContains(String fullyQualifiedName) {
-      for (ClassJavaType classType : symbol.superTypes()) {
-        if (classType.is(fullyQualifiedName)) {
-          return true;
-        }
-      }
-      return false;
+      return symbol.superTypeNames().contains(fullyQualifiedName);
     }
   }
 
   public static class ArrayJavaType extends JavaType implements ArrayType {
 
-    private final ArrayJavaType erasure;
+    /**
+     * Computed on first use, as the erasure of the elements may not be known yet when the array type is created.
+     * Array types are shared by the threads of symbolic execution: the erasure is a new type published by a volatile write, rather than
+     * a type whose elements are set afterwards.
+     */
+    private volatile ArrayJavaType erasure;
     /**
      * Type of elements of this array.
      */
@@ -265,13 +265,6 @@ public class JavaType implements Type {
     public ArrayJavaType(JavaType elementType, JavaSymbol.TypeJavaSymbol arrayClass) {
       super(ARRAY, arrayClass);
       this.elementType = elementType;
-      // element
-      this.erasure = new ArrayJavaType(arrayClass);
-    }
-
-    private ArrayJavaType(JavaSymbol.TypeJavaSymbol arrayClass) {
-      super(ARRAY, arrayClass);
-      this.erasure = this;
     }
 
     @Override
@@ -308,10 +301,19 @@ public class JavaType implements Type {
 
     @Override
     public JavaType erasure() {
-      if (erasure.elementType == null) {
-        erasure.elementType = elementType.erasure();
+      ArrayJavaType result = erasure;
+      if (result == null) {
+        JavaType elementErasure = elementType.erasure();
+        if (elementErasure == elementType) {
+          result = this;
+        } else {
+          result = new ArrayJavaType(elementErasure, symbol);
+          // the erasure is its own erasure, even when its elements are the bound of a type variable, which may not be erased
+          result.erasure = result;
+        }
+        erasure = result;
       }
-      return erasure;
+      return result;
     }
   }
 
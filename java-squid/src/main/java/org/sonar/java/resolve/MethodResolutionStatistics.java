@@ -0,0 +1,57 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.resolve;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Counts the resolutions of methods of classpath types and how many of them were answered by the cache of {@link Resolve}.
+ */
+public class MethodResolutionStatistics {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MethodResolutionStatistics.class);
+
+  long lookups;
+  long hits;
+
+  /**
+   * @return resolutions of methods whose site is a classpath type, which are the ones going through the cache
+   */
+  public long lookups() {
+    return lookups;
+  }
+
+  public long hits() {
+    return hits;
+  }
+
+  public void add(MethodResolutionStatistics statistics) {
+    lookups += statistics.lookups;
+    hits += statistics.hits;
+  }
+
+  public void log() {
+    if (lookups > 0) {
+      LOG.info("Method resolution: " + hits + " of " + lookups + " resolutions of methods of classpath types found in cache (" + (100 * hits / lookups) + "%)");
+    }
+  }
+
+}
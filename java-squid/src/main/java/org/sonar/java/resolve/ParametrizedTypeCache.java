@@ -19,26 +19,61 @@
  */
 package org.sonar.java.resolve;
 
-import com.google.common.collect.Maps;
+import javax.annotation.Nullable;
 
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * Interns the parametrized and array types of a file, so that a given parametrization is created once and can be compared by reference.
+ * Types are bound to the symbols of the file, which are not shared between files: so is this cache.
+ * Maps are concurrent as types may be requested while methods of the file are explored on several threads.
+ */
 public class ParametrizedTypeCache {
 
-  private Map<JavaSymbol, Map<TypeSubstitution, JavaType.ParametrizedTypeJavaType>> typeCache = Maps.newHashMap();
+  private final ConcurrentMap<JavaSymbol, ConcurrentMap<TypeSubstitution, JavaType.ParametrizedTypeJavaType>> typeCache = new ConcurrentHashMap<>();
+  private final ConcurrentMap<JavaType, JavaType.ArrayJavaType> arrayTypes = new ConcurrentHashMap<>();
 
   public JavaType getParametrizedTypeType(JavaSymbol.TypeJavaSymbol symbol, TypeSubstitution typeSubstitution) {
     if (symbol.getType().isTagged(JavaType.UNKNOWN)) {
       return symbol.getType();
     }
-    if (typeCache.get(symbol) == null) {
-      Map<TypeSubstitution, JavaType.ParametrizedTypeJavaType> map = Maps.newHashMap();
-      typeCache.put(symbol, map);
+    ConcurrentMap<TypeSubstitution, JavaType.ParametrizedTypeJavaType> parametrizations = typeCache.get(symbol);
+    if (parametrizations == null) {
+      parametrizations = new ConcurrentHashMap<>();
+      ConcurrentMap<TypeSubstitution, JavaType.ParametrizedTypeJavaType> previous = typeCache.putIfAbsent(symbol, parametrizations);
+      if (previous != null) {
+        parametrizations = previous;
+      }
+    }
+    JavaType.ParametrizedTypeJavaType result = parametrizations.get(typeSubstitution);
+    if (result == null) {
+      result = new JavaType.ParametrizedTypeJavaType(symbol, typeSubstitution);
+      JavaType.ParametrizedTypeJavaType previous = parametrizations.putIfAbsent(typeSubstitution, result);
+      if (previous != null) {
+        result = previous;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @param elementType type of the elements, which is not known yet for array initializers without type
+   * @param arrayClass {@link Symbols#arrayClass} of the file
+   */
+  public JavaType.ArrayJavaType getArrayType(@Nullable JavaType elementType, JavaSymbol.TypeJavaSymbol arrayClass) {
+    if (elementType == null) {
+      return new JavaType.ArrayJavaType(null, arrayClass);
     }
-    if (typeCache.get(symbol).get(typeSubstitution) == null) {
-      typeCache.get(symbol).put(typeSubstitution, new JavaType.ParametrizedTypeJavaType(symbol, typeSubstitution));
+    JavaType.ArrayJavaType result = arrayTypes.get(elementType);
+    if (result == null) {
+      result = new JavaType.ArrayJavaType(elementType, arrayClass);
+      JavaType.ArrayJavaType previous = arrayTypes.putIfAbsent(elementType, result);
+      if (previous != null) {
+        result = previous;
+      }
     }
-    return typeCache.get(symbol).get(typeSubstitution);
+    return result;
   }
 
 }
@@ -21,12 +21,15 @@ package org.sonar.java.resolve;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableList;
 import org.sonar.plugins.java.api.semantic.Type;
+import org.sonar.plugins.java.api.tree.Tree;
 
 import javax.annotation.Nullable;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -50,6 +53,12 @@ public class Resolve {
   private final ParametrizedTypeCache parametrizedTypeCache;
   private final Types types = new Types();
   private final Symbols symbols;
+  /**
+   * Resolutions of methods of classpath types: the same calls are resolved over and over in a file,
+   * and their outcome only depends on the key, as those types can not change during the analysis.
+   */
+  private final Map<MethodKey, Resolution> methodResolutions = new HashMap<>();
+  private final MethodResolutionStatistics statistics = new MethodResolutionStatistics();
 
   public Resolve(Symbols symbols, BytecodeCompleter bytecodeCompleter, ParametrizedTypeCache parametrizedTypeCache) {
     this.symbols = symbols;
@@ -386,11 +395,32 @@ public class Resolve {
   }
 
   public Resolution findMethod(Env env, JavaType site, String name, List<JavaType> argTypes) {
-    return findMethod(env, site, site, name, argTypes, ImmutableList.<JavaType>of(), false);
+    return findMethod(env, site, name, argTypes, ImmutableList.<JavaType>of());
   }
 
   public Resolution findMethod(Env env, JavaType site, String name, List<JavaType> argTypes, List<JavaType> typeParams) {
-    return findMethod(env, site, site, name, argTypes, typeParams, false);
+    if (!isClasspathType(site)) {
+      return findMethod(env, site, site, name, argTypes, typeParams, false);
+    }
+    statistics.lookups++;
+    MethodKey key = new MethodKey(env, site, name, argTypes, typeParams);
+    Resolution resolution = methodResolutions.get(key);
+    if (resolution == null) {
+      resolution = findMethod(env, site, site, name, argTypes, typeParams, false);
+      methodResolutions.put(key.copy(), resolution.copy());
+      return resolution;
+    }
+    statistics.hits++;
+    // callers may change the type of the resolution
+    return resolution.copy();
+  }
+
+  private static boolean isClasspathType(JavaType site) {
+    return site.isTagged(JavaType.CLASS) && site.symbol.declaration == null;
+  }
+
+  MethodResolutionStatistics statistics() {
+    return statistics;
   }
 
   private Resolution findMethod(Env env, JavaType callSite, JavaType site, String name, List<JavaType> argTypes, List<JavaType> typeParams) {
@@ -755,6 +785,12 @@ public class Resolve {
       return symbol;
     }
 
+    Resolution copy() {
+      Resolution result = new Resolution(symbol);
+      result.type = type;
+      return result;
+    }
+
     public JavaType type() {
       if (type == null) {
         if(symbol.isKind(JavaSymbol.MTH)) {
@@ -769,7 +805,64 @@ public class Resolve {
     }
   }
 
-  static class Env {
+  /**
+   * Method resolution request, including what the accessibility of candidates depends on: the enclosing class and the package of the caller.
+   */
+  private static class MethodKey {
+    private final JavaSymbol.TypeJavaSymbol enclosingClass;
+    private final JavaSymbol.PackageJavaSymbol packge;
+    private final JavaType site;
+    private final String name;
+    private final List<JavaType> argTypes;
+    private final List<JavaType> typeParams;
+
+    MethodKey(Env env, JavaType site, String name, List<JavaType> argTypes, List<JavaType> typeParams) {
+      this(env.enclosingClass, env.packge, site, name, argTypes, typeParams);
+    }
+
+    private MethodKey(@Nullable JavaSymbol.TypeJavaSymbol enclosingClass, JavaSymbol.PackageJavaSymbol packge, JavaType site, String name,
+      List<JavaType> argTypes, List<JavaType> typeParams) {
+      this.enclosingClass = enclosingClass;
+      this.packge = packge;
+      this.site = site;
+      this.name = name;
+      this.argTypes = argTypes;
+      this.typeParams = typeParams;
+    }
+
+    /**
+     * @return key which does not share the lists of types of the caller
+     */
+    MethodKey copy() {
+      return new MethodKey(enclosingClass, packge, site, name, new ArrayList<>(argTypes), new ArrayList<>(typeParams));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof MethodKey)) {
+        return false;
+      }
+      MethodKey other = (MethodKey) obj;
+      return enclosingClass == other.enclosingClass && packge == other.packge && site.equals(other.site) && name.equals(other.name)
+        && argTypes.equals(other.argTypes) && typeParams.equals(other.typeParams);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(enclosingClass, packge, site, name, argTypes, typeParams);
+    }
+  }
+
+  public static class Env {
+    /**
+     * The tree which introduced this environment, if any.
+     */
+    @Nullable
+    Tree tree;
+
     /**
      * The next enclosing environment.
      */
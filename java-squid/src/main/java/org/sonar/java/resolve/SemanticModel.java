@@ -21,43 +21,55 @@ package org.sonar.java.resolve;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
-import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Multimap;
 import org.sonar.java.model.AbstractTypedTree;
+import org.sonar.java.model.JavaTree;
 import org.sonar.plugins.java.api.semantic.Symbol;
 import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
 import org.sonar.plugins.java.api.tree.CompilationUnitTree;
-import org.sonar.plugins.java.api.tree.IdentifierTree;
 import org.sonar.plugins.java.api.tree.ListTree;
 import org.sonar.plugins.java.api.tree.Tree;
 
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import java.io.File;
-import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Symbols declared by trees and environments introduced by trees are stored on the trees themselves:
+ * this model only keeps the lookups from symbols to trees and environments.
+ */
 public class SemanticModel {
 
-  private final BiMap<Tree, Symbol> symbolsTree = HashBiMap.create();
-  private Multimap<Symbol, IdentifierTree> usagesTree = HashMultimap.create();
-
+  /**
+   * Declaration of symbols, indexed by symbol.
+   */
+  private final Map<Symbol, Tree> declarations = Maps.newHashMap();
   private final Map<Symbol, Resolve.Env> symbolEnvs = Maps.newHashMap();
-  private final BiMap<Tree, Resolve.Env> envs = HashBiMap.create();
+  private MethodResolutionStatistics methodResolutionStatistics = new MethodResolutionStatistics();
   private BytecodeCompleter bytecodeCompleter;
 
   public static SemanticModel createFor(CompilationUnitTree tree, List<File> projectClasspath) {
     ParametrizedTypeCache parametrizedTypeCache = new ParametrizedTypeCache();
-    BytecodeCompleter bytecodeCompleter = new BytecodeCompleter(projectClasspath, parametrizedTypeCache);
+    return createFor(tree, new BytecodeCompleter(projectClasspath, parametrizedTypeCache), parametrizedTypeCache);
+  }
+
+  /**
+   * Creates the semantic model of a file, reading the classpath through a cache shared by all the files of the project.
+   */
+  public static SemanticModel createFor(CompilationUnitTree tree, BytecodeCache bytecodeCache) {
+    ParametrizedTypeCache parametrizedTypeCache = new ParametrizedTypeCache();
+    return createFor(tree, new BytecodeCompleter(bytecodeCache, parametrizedTypeCache), parametrizedTypeCache);
+  }
+
+  private static SemanticModel createFor(CompilationUnitTree tree, BytecodeCompleter bytecodeCompleter, ParametrizedTypeCache parametrizedTypeCache) {
     Symbols symbols = new Symbols(bytecodeCompleter);
     SemanticModel semanticModel = new SemanticModel();
     semanticModel.bytecodeCompleter = bytecodeCompleter;
     try {
       Resolve resolve = new Resolve(symbols, bytecodeCompleter, parametrizedTypeCache);
+      semanticModel.methodResolutionStatistics = resolve.statistics();
       TypeAndReferenceSolver typeAndReferenceSolver = new TypeAndReferenceSolver(semanticModel, symbols, resolve, parametrizedTypeCache);
       new FirstPass(semanticModel, symbols, resolve, parametrizedTypeCache, typeAndReferenceSolver).visitCompilationUnit(tree);
       typeAndReferenceSolver.visitCompilationUnit(tree);
@@ -68,6 +80,13 @@ public class SemanticModel {
     return semanticModel;
   }
 
+  /**
+   * @return how many resolutions of methods of the file were answered by the cache of {@link Resolve}
+   */
+  public MethodResolutionStatistics methodResolutionStatistics() {
+    return methodResolutionStatistics;
+  }
+
   public void done(){
     bytecodeCompleter.done();
   }
@@ -112,18 +131,20 @@ public class SemanticModel {
   }
 
   public void associateEnv(Tree tree, Resolve.Env env) {
-    envs.put(tree, env);
+    ((JavaTree) tree).setEnv(env);
+    env.tree = tree;
   }
 
-  public Tree getTree(Resolve.Env env) {
-    return envs.inverse().get(env);
+  @CheckForNull
+  public Tree getTree(@Nullable Resolve.Env env) {
+    return env == null ? null : env.tree;
   }
 
   public Resolve.Env getEnv(Tree tree) {
     Resolve.Env result = null;
     Tree node = tree;
     while (result == null && node != null) {
-      result = envs.get(node);
+      result = ((JavaTree) node).env();
       node = node.parent();
     }
     return result;
@@ -135,32 +156,27 @@ public class SemanticModel {
 
   public void associateSymbol(Tree tree, Symbol symbol) {
     Preconditions.checkNotNull(symbol);
-    symbolsTree.put(tree, symbol);
+    ((JavaTree) tree).setSemanticSymbol(symbol);
+    declarations.put(symbol, tree);
   }
 
   @Nullable
   public Symbol getSymbol(Tree tree) {
-    return symbolsTree.get(tree);
+    return ((JavaTree) tree).semanticSymbol();
   }
 
   @Nullable
   public Tree getTree(Symbol symbol) {
-    return symbolsTree.inverse().get(symbol);
-  }
-
-
-  public void associateReference(IdentifierTree tree, Symbol symbol) {
-    usagesTree.put(symbol, tree);
+    return declarations.get(symbol);
   }
 
   @VisibleForTesting
   Map<Tree, Symbol> getSymbolsTree() {
-    return Collections.unmodifiableMap(symbolsTree);
-  }
-
-  @VisibleForTesting
-  Collection<Symbol> getSymbolUsed() {
-    return usagesTree.keySet();
+    Map<Tree, Symbol> result = Maps.newHashMap();
+    for (Map.Entry<Symbol, Tree> declaration : declarations.entrySet()) {
+      result.put(declaration.getValue(), declaration.getKey());
+    }
+    return result;
   }
 
 }
@@ -35,6 +35,11 @@ public class Symbols {
   static final JavaSymbol.PackageJavaSymbol rootPackage;
   final JavaSymbol.PackageJavaSymbol defaultPackage;
 
+  /**
+   * Lock of the completions of the symbols of the semantic model, see {@link JavaSymbol.Completer#completionLock()}.
+   */
+  final Object completionLock = new Object();
+
   /**
    * Owns all predefined symbols (builtin types, operators).
    */
@@ -394,9 +394,9 @@ public class TypeAndReferenceSolver extends BaseTreeVisitor {
     JavaType type = getType(tree.type());
     int dimensions = tree.dimensions().size();
     // TODO why?
-    type = new JavaType.ArrayJavaType(type, symbols.arrayClass);
+    type = parametrizedTypeCache.getArrayType(type, symbols.arrayClass);
     for (int i = 1; i < dimensions; i++) {
-      type = new JavaType.ArrayJavaType(type, symbols.arrayClass);
+      type = parametrizedTypeCache.getArrayType(type, symbols.arrayClass);
     }
     registerType(tree, type);
   }
@@ -532,7 +532,7 @@ public class TypeAndReferenceSolver extends BaseTreeVisitor {
       resolveAs(tree.type(), JavaSymbol.TYP);
     }
     scan(tree.annotations());
-    registerType(tree, new JavaType.ArrayJavaType(getType(tree.type()), symbols.arrayClass));
+    registerType(tree, parametrizedTypeCache.getArrayType(getType(tree.type()), symbols.arrayClass));
   }
 
   @Override
@@ -643,7 +643,6 @@ public class TypeAndReferenceSolver extends BaseTreeVisitor {
 
   private void associateReference(IdentifierTree tree, JavaSymbol symbol) {
     if (symbol.kind < JavaSymbol.ERRONEOUS) {
-      semanticModel.associateReference(tree, symbol);
       ((IdentifierTreeImpl) tree).setSymbol(symbol);
       symbol.addUsage(tree);
     }
@@ -25,20 +25,32 @@ import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.plugins.java.api.tree.MethodTree;
 import org.sonar.plugins.java.api.tree.Tree;
 
+import javax.annotation.Nullable;
+
 import java.util.List;
 
 public class CheckerDispatcher implements CheckerContext {
   private final ExplodedGraphWalker explodedGraphWalker;
   private final JavaFileScannerContext context;
   private final List<SECheck> checks;
+  @Nullable
+  private final MethodIssues methodIssues;
   private Tree syntaxNode;
   private int currentCheckerIndex = 0;
   private boolean transition = false;
 
   public CheckerDispatcher(ExplodedGraphWalker explodedGraphWalker, JavaFileScannerContext context, List<SECheck> checks) {
+    this(explodedGraphWalker, context, checks, null);
+  }
+
+  /**
+   * @param methodIssues where issues are kept until they are reported, or null to report them to the context right away
+   */
+  CheckerDispatcher(ExplodedGraphWalker explodedGraphWalker, JavaFileScannerContext context, List<SECheck> checks, @Nullable MethodIssues methodIssues) {
     this.explodedGraphWalker = explodedGraphWalker;
     this.context = context;
     this.checks = checks;
+    this.methodIssues = methodIssues;
   }
 
   public boolean executeCheckPreStatement(Tree syntaxNode) {
@@ -100,6 +112,10 @@ public class CheckerDispatcher implements CheckerContext {
 
   @Override
   public void reportIssue(Tree tree, SECheck check, String message) {
+    if (methodIssues != null) {
+      methodIssues.add(check.getClass(), tree, message);
+      return;
+    }
     ((DefaultJavaFileScannerContext) context).reportSEIssue(check.getClass(), tree, message);
   }
 
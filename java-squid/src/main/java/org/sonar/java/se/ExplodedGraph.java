@@ -46,6 +46,13 @@ public class ExplodedGraph {
     return result;
   }
 
+  /**
+   * @return number of nodes of this graph
+   */
+  int size() {
+    return nodes.size();
+  }
+
   public static class ProgramPoint {
     private int hashcode;
     final CFG.Block block;
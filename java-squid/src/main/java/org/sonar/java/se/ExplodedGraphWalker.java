@@ -30,6 +30,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.java.cfg.CFG;
 import org.sonar.java.cfg.LiveVariables;
+import org.sonar.java.model.DefaultJavaFileScannerContext;
 import org.sonar.java.model.JavaTree;
 import org.sonar.java.se.checks.ConditionAlwaysTrueOrFalseCheck;
 import org.sonar.java.se.checks.LocksNotUnlockedCheck;
@@ -69,20 +70,19 @@ import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 public class ExplodedGraphWalker extends BaseTreeVisitor {
 
   private static final String EQUALS_METHOD_NAME = "equals";
-  /**
-   * Arbitrary number to limit symbolic execution.
-   */
-  private static final int MAX_STEPS = 10000;
   private static final Logger LOG = LoggerFactory.getLogger(ExplodedGraphWalker.class);
   private static final Set<String> THIS_SUPER = ImmutableSet.of("this", "super");
 
   private static final boolean DEBUG_MODE_ACTIVATED = false;
   private static final int MAX_EXEC_PROGRAM_POINT = 2;
   private final ConditionAlwaysTrueOrFalseCheck alwaysTrueOrFalseChecker;
+  private final SymbolicExecutionBudget budget;
+  private long startTime;
   private MethodTree methodTree;
   private ExplodedGraph explodedGraph;
   private Deque<ExplodedGraph.Node> workList;
@@ -91,12 +91,17 @@ public class ExplodedGraphWalker extends BaseTreeVisitor {
   ProgramState programState;
   private LiveVariables liveVariables;
 
+  private final JavaFileScannerContext context;
   private CheckerDispatcher checkerDispatcher;
 
   @VisibleForTesting
   int steps;
   ConstraintManager constraintManager;
   private boolean cleanup = true;
+  /**
+   * Number of methods explored by this walker.
+   */
+  int explorations;
 
   public static class ExplodedGraphTooBigException extends RuntimeException {
     public ExplodedGraphTooBigException(String s) {
@@ -104,16 +109,41 @@ public class ExplodedGraphWalker extends BaseTreeVisitor {
     }
   }
 
+  public static class MaximumNodesReachedException extends RuntimeException {
+    public MaximumNodesReachedException(String s) {
+      super(s);
+    }
+  }
+
   public static class MaximumStepsReachedException extends RuntimeException {
     public MaximumStepsReachedException(String s) {
       super(s);
     }
   }
 
+  public static class MaximumTimeReachedException extends RuntimeException {
+    public MaximumTimeReachedException(String s) {
+      super(s);
+    }
+  }
+
   public ExplodedGraphWalker(JavaFileScannerContext context) {
+    this(context, SymbolicExecutionBudget.DEFAULT);
+  }
+
+  public ExplodedGraphWalker(JavaFileScannerContext context, SymbolicExecutionBudget budget) {
+    this(context, budget, null);
+  }
+
+  /**
+   * @param methodIssues where issues are kept until they are reported, or null to report them to the context right away
+   */
+  ExplodedGraphWalker(JavaFileScannerContext context, SymbolicExecutionBudget budget, @Nullable MethodIssues methodIssues) {
+    this.budget = budget;
+    this.context = context;
     alwaysTrueOrFalseChecker = new ConditionAlwaysTrueOrFalseCheck();
     this.checkerDispatcher = new CheckerDispatcher(this, context,
-      Lists.<SECheck>newArrayList(alwaysTrueOrFalseChecker, new NullDereferenceCheck(), new UnclosedResourcesCheck(), new LocksNotUnlockedCheck()));
+      Lists.<SECheck>newArrayList(alwaysTrueOrFalseChecker, new NullDereferenceCheck(), new UnclosedResourcesCheck(), new LocksNotUnlockedCheck()), methodIssues);
   }
 
   @VisibleForTesting
@@ -122,9 +152,12 @@ public class ExplodedGraphWalker extends BaseTreeVisitor {
     this.cleanup = cleanup;
   }
 
+  /**
+   * Explores the given method only: methods of anonymous and local classes declared in its body are not explored,
+   * they are visited on their own by {@link SymbolicExecutionVisitor}.
+   */
   @Override
   public void visitMethod(MethodTree tree) {
-    super.visitMethod(tree);
     BlockTree body = tree.block();
     if (body != null) {
       execute(tree);
@@ -132,9 +165,10 @@ public class ExplodedGraphWalker extends BaseTreeVisitor {
   }
 
   private void execute(MethodTree tree) {
+    explorations++;
     checkerDispatcher.init();
-    CFG cfg = CFG.build(tree);
-    liveVariables = LiveVariables.analyze(cfg);
+    CFG cfg = DefaultJavaFileScannerContext.cfgOf(context, tree);
+    liveVariables = DefaultJavaFileScannerContext.liveVariablesOf(context, tree, cfg);
     explodedGraph = new ExplodedGraph();
     methodTree = tree;
     constraintManager = new ConstraintManager();
@@ -142,13 +176,20 @@ public class ExplodedGraphWalker extends BaseTreeVisitor {
     LOG.debug("Exploring Exploded Graph for method " + tree.simpleName().name() + " at line " + ((JavaTree) tree).getLine());
     programState = ProgramState.EMPTY_STATE;
     steps = 0;
+    startTime = System.nanoTime();
     for (ProgramState startingState : startingStates(tree, programState)) {
       enqueue(new ExplodedGraph.ProgramPoint(cfg.entry(), 0), startingState);
     }
     while (!workList.isEmpty()) {
       steps++;
-      if (steps > MAX_STEPS) {
-        throw new MaximumStepsReachedException("reached limit of " + MAX_STEPS + " steps for method " + tree.simpleName().name() + " in class " + tree.symbol().owner().name());
+      if (steps > budget.maxSteps()) {
+        throw new MaximumStepsReachedException("reached limit of " + budget.maxSteps() + " steps for method " + tree.simpleName().name()
+          + " in class " + tree.symbol().owner().name());
+      }
+      // reading the clock at every step would cost more than the step itself
+      if (budget.maxTimeNanos() > 0 && (steps & 0xFF) == 0 && System.nanoTime() - startTime > budget.maxTimeNanos()) {
+        throw new MaximumTimeReachedException("reached time limit of " + TimeUnit.NANOSECONDS.toMillis(budget.maxTimeNanos()) + " ms for method "
+          + tree.simpleName().name() + " in class " + tree.symbol().owner().name());
       }
       // LIFO:
       node = workList.removeFirst();
@@ -586,6 +627,10 @@ public class ExplodedGraphWalker extends BaseTreeVisitor {
       debugPrint(programState);
       return;
     }
+    if (budget.maxNodes() > 0 && explodedGraph.size() >= budget.maxNodes()) {
+      throw new MaximumNodesReachedException("reached limit of " + budget.maxNodes() + " nodes for method "
+        + methodTree.simpleName().name() + " in class " + methodTree.symbol().owner().name());
+    }
     if (isExplodedGraphTooBig(programState)) {
       throw new ExplodedGraphTooBigException("Program state constraints are too big : stopping Symbolic Execution for method "
         + methodTree.simpleName().name() + " in class " + methodTree.symbol().owner().name());
@@ -601,7 +646,7 @@ public class ExplodedGraphWalker extends BaseTreeVisitor {
 
   private boolean isExplodedGraphTooBig(ProgramState programState) {
     // Arbitrary formula to avoid out of memory errors.
-    return steps + workList.size() > MAX_STEPS / 2 && programState.constraintsSize() > 75;
+    return steps + workList.size() > budget.maxSteps() / 2 && programState.constraintsSize() > 75;
   }
 
 }
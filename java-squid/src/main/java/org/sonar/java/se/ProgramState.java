@@ -21,9 +21,10 @@ package org.sonar.java.se;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Lists;
-import org.sonar.java.collections.AVLTree;
+import org.sonar.java.collections.HashTrie;
+import org.sonar.java.collections.PCollections;
 import org.sonar.java.collections.PMap;
+import org.sonar.java.collections.PStack;
 import org.sonar.plugins.java.api.semantic.Symbol;
 import org.sonar.plugins.java.api.tree.VariableTree;
 
@@ -32,11 +33,9 @@ import javax.annotation.Nullable;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -60,24 +59,24 @@ public class ProgramState {
 
   private final int constraintSize;
   public static final ProgramState EMPTY_STATE = new ProgramState(
-    AVLTree.<Symbol, SymbolicValue>create(),
-    AVLTree.<SymbolicValue, Integer>create(),
-    AVLTree.<SymbolicValue, Object>create()
+    HashTrie.<Symbol, SymbolicValue>create(),
+    HashTrie.<SymbolicValue, Integer>createForIntKeys(),
+    HashTrie.<SymbolicValue, Object>createForIntKeys()
       .put(SymbolicValue.NULL_LITERAL, ObjectConstraint.NULL)
       .put(SymbolicValue.TRUE_LITERAL, ConstraintManager.BooleanConstraint.TRUE)
       .put(SymbolicValue.FALSE_LITERAL, ConstraintManager.BooleanConstraint.FALSE),
-    AVLTree.<ExplodedGraph.ProgramPoint, Integer>create(),
-    Lists.<SymbolicValue>newLinkedList());
+    HashTrie.<ExplodedGraph.ProgramPoint, Integer>create(),
+    PCollections.<SymbolicValue>emptyStack());
 
   private final PMap<ExplodedGraph.ProgramPoint, Integer> visitedPoints;
 
-  private final Deque<SymbolicValue> stack;
+  private final PStack<SymbolicValue> stack;
   private final PMap<Symbol, SymbolicValue> values;
   private final PMap<SymbolicValue, Integer> references;
   private final PMap<SymbolicValue, Object> constraints;
   private ProgramState(PMap<Symbol, SymbolicValue> values, PMap<SymbolicValue, Integer> references,
                        PMap<SymbolicValue, Object> constraints, PMap<ExplodedGraph.ProgramPoint, Integer> visitedPoints,
-    Deque<SymbolicValue> stack) {
+    PStack<SymbolicValue> stack) {
     this.values = values;
     this.references = references;
     this.constraints = constraints;
@@ -86,7 +85,7 @@ public class ProgramState {
     constraintSize = 3;
   }
 
-  private ProgramState(ProgramState ps, Deque<SymbolicValue> newStack) {
+  private ProgramState(ProgramState ps, PStack<SymbolicValue> newStack) {
     values = ps.values;
     references = ps.references;
     constraints = ps.constraints;
@@ -105,9 +104,7 @@ public class ProgramState {
   }
 
   ProgramState stackValue(SymbolicValue sv) {
-    Deque<SymbolicValue> newStack = new LinkedList<>(stack);
-    newStack.push(sv);
-    return new ProgramState(this, newStack);
+    return new ProgramState(this, stack.push(sv));
   }
 
   ProgramState clearStack() {
@@ -119,23 +116,30 @@ public class ProgramState {
       return new Pop(this, Collections.<SymbolicValue>emptyList());
     }
     Preconditions.checkArgument(stack.size() >= nbElements, nbElements);
-    Deque<SymbolicValue> newStack = new LinkedList<>(stack);
-    List<SymbolicValue> result = Lists.newArrayList();
+    PStack<SymbolicValue> newStack = stack;
+    List<SymbolicValue> result = new ArrayList<>(nbElements);
     for (int i = 0; i < nbElements; i++) {
-      result.add(newStack.pop());
+      result.add(newStack.peek());
+      newStack = newStack.pop();
     }
     return new Pop(new ProgramState(this, newStack), result);
   }
 
   public SymbolicValue peekValue() {
-    return stack.peek();
+    return stack.isEmpty() ? null : stack.peek();
   }
 
   public List<SymbolicValue> peekValues(int n) {
     if (n > stack.size()) {
       throw new IllegalStateException("At least " + n + " values were expected on the stack!");
     }
-    return ImmutableList.copyOf(stack).subList(0, n);
+    ImmutableList.Builder<SymbolicValue> result = ImmutableList.builder();
+    PStack<SymbolicValue> values = stack;
+    for (int i = 0; i < n; i++) {
+      result.add(values.peek());
+      values = values.pop();
+    }
+    return result.build();
   }
 
   int numberOfTimeVisited(ExplodedGraph.ProgramPoint programPoint) {
@@ -214,7 +218,7 @@ public class ProgramState {
     return SymbolicValue.isDisposable(symbolicValue) && (constraint == null || !(constraint instanceof ObjectConstraint) || ((ObjectConstraint) constraint).isDisposable());
   }
 
-  private static boolean inStack(Deque<SymbolicValue> stack, SymbolicValue symbolicValue) {
+  private static boolean inStack(PStack<SymbolicValue> stack, SymbolicValue symbolicValue) {
     for (SymbolicValue value : stack) {
       if (value.equals(symbolicValue) || value.references(symbolicValue)) {
         return true;
@@ -0,0 +1,74 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits of the exploration of a method by {@link ExplodedGraphWalker}. Exploration of a method is given up as soon as one is reached.
+ */
+public class SymbolicExecutionBudget {
+
+  public static final int DEFAULT_MAX_STEPS = 10000;
+
+  public static final SymbolicExecutionBudget DEFAULT = new SymbolicExecutionBudget(DEFAULT_MAX_STEPS, 0, 0);
+
+  private final int maxSteps;
+  private final long maxTimeNanos;
+  private final int maxNodes;
+
+  /**
+   * @param maxSteps maximum number of nodes of the exploded graph which are processed
+   * @param maxTimeMillis maximum wall time spent in the exploration, 0 for no limit
+   * @param maxNodes maximum number of nodes in the exploded graph, 0 for no limit
+   */
+  public SymbolicExecutionBudget(int maxSteps, long maxTimeMillis, int maxNodes) {
+    if (maxSteps <= 0 || maxTimeMillis < 0 || maxNodes < 0) {
+      throw new IllegalArgumentException("Invalid symbolic execution budget: " + maxSteps + " steps, " + maxTimeMillis + " ms, " + maxNodes + " nodes");
+    }
+    this.maxSteps = maxSteps;
+    this.maxTimeNanos = TimeUnit.MILLISECONDS.toNanos(maxTimeMillis);
+    this.maxNodes = maxNodes;
+  }
+
+  public int maxSteps() {
+    return maxSteps;
+  }
+
+  /**
+   * @return maximum wall time of the exploration, 0 for no limit
+   */
+  public long maxTimeNanos() {
+    return maxTimeNanos;
+  }
+
+  /**
+   * @return maximum number of nodes in the exploded graph, 0 for no limit
+   */
+  public int maxNodes() {
+    return maxNodes;
+  }
+
+  @Override
+  public String toString() {
+    return maxSteps + " steps, " + TimeUnit.NANOSECONDS.toMillis(maxTimeNanos) + " ms, " + maxNodes + " nodes";
+  }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Counts the methods explored by symbolic execution during an analysis, by outcome of the exploration.
+ */
+public class SymbolicExecutionStatistics {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SymbolicExecutionStatistics.class);
+
+  int completed;
+  int maxStepsReached;
+  int maxTimeReached;
+  int maxNodesReached;
+  int constraintsTooBig;
+  int skipped;
+  int explorations;
+
+  public int completed() {
+    return completed;
+  }
+
+  public int maxStepsReached() {
+    return maxStepsReached;
+  }
+
+  public int maxTimeReached() {
+    return maxTimeReached;
+  }
+
+  public int maxNodesReached() {
+    return maxNodesReached;
+  }
+
+  /**
+   * @return methods given up because the constraints of a program state grew too big, independently of the budget
+   */
+  public int constraintsTooBig() {
+    return constraintsTooBig;
+  }
+
+  /**
+   * @return methods not explored, as they do not have a body
+   */
+  public int skipped() {
+    return skipped;
+  }
+
+  /**
+   * @return explorations of method bodies, equal to the number of methods explored as each method is explored once
+   */
+  public int explorations() {
+    return explorations;
+  }
+
+  public void log() {
+    if (completed + maxStepsReached + maxTimeReached + maxNodesReached + constraintsTooBig + skipped > 0) {
+      LOG.info("Symbolic execution: " + completed + " methods completed, " + maxStepsReached + " reached the maximum number of steps, "
+        + maxTimeReached + " the maximum time, " + maxNodesReached + " the maximum size of the exploded graph, "
+        + constraintsTooBig + " had too big program state constraints, " + skipped + " skipped");
+    }
+  }
+
+}
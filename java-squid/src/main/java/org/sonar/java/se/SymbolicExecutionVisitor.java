@@ -23,25 +23,159 @@ import com.google.common.collect.Lists;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.java.ast.visitors.SubscriptionVisitor;
+import org.sonar.java.model.DefaultJavaFileScannerContext;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.tree.MethodTree;
 import org.sonar.plugins.java.api.tree.Tree;
 
+import javax.annotation.Nullable;
+
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public class SymbolicExecutionVisitor extends SubscriptionVisitor {
   private static final Logger LOG = LoggerFactory.getLogger(SymbolicExecutionVisitor.class);
 
+  private final SymbolicExecutionBudget budget;
+  private final SymbolicExecutionStatistics statistics;
+  @Nullable
+  private final ForkJoinPool pool;
+  private final List<ForkJoinTask<Exploration>> explorations = new ArrayList<>();
+
+  public SymbolicExecutionVisitor() {
+    this(SymbolicExecutionBudget.DEFAULT, new SymbolicExecutionStatistics());
+  }
+
+  /**
+   * @param statistics counters of the whole analysis, updated by this visitor
+   */
+  public SymbolicExecutionVisitor(SymbolicExecutionBudget budget, SymbolicExecutionStatistics statistics) {
+    this(budget, statistics, null);
+  }
+
+  /**
+   * @param statistics counters of the whole analysis, updated by this visitor
+   * @param pool pool on which methods of a file are explored in parallel, or null to explore them one after the other
+   */
+  public SymbolicExecutionVisitor(SymbolicExecutionBudget budget, SymbolicExecutionStatistics statistics, @Nullable ForkJoinPool pool) {
+    this.budget = budget;
+    this.statistics = statistics;
+    this.pool = pool;
+  }
+
   @Override
   public List<Tree.Kind> nodesToVisit() {
     return Lists.newArrayList(Tree.Kind.METHOD);
   }
 
+  @Override
+  public void scanFile(JavaFileScannerContext context) {
+    explorations.clear();
+    super.scanFile(context);
+    // issues and statistics are handled on the calling thread, in the order of the methods in the file
+    try {
+      for (ForkJoinTask<Exploration> task : explorations) {
+        Exploration exploration = task.join();
+        exploration.issues.reportTo((DefaultJavaFileScannerContext) context);
+        record(exploration.outcome, exploration.explorations);
+      }
+    } finally {
+      for (ForkJoinTask<Exploration> task : explorations) {
+        task.cancel(true);
+      }
+      explorations.clear();
+    }
+  }
+
   @Override
   public void visitNode(Tree tree) {
+    MethodTree methodTree = (MethodTree) tree;
+    if (methodTree.block() == null) {
+      statistics.skipped++;
+      return;
+    }
+    if (pool != null) {
+      explorations.add(pool.submit(new Exploration(methodTree, context, budget)));
+      return;
+    }
+    // each method is explored on its own: the walker does not explore methods of the classes declared in the method body
+    ExplodedGraphWalker walker = new ExplodedGraphWalker(context, budget);
+    record(explore(walker, methodTree), walker.explorations);
+  }
+
+  private static Outcome explore(ExplodedGraphWalker walker, MethodTree methodTree) {
     try {
-      tree.accept(new ExplodedGraphWalker(context));
-    } catch (ExplodedGraphWalker.MaximumStepsReachedException | ExplodedGraphWalker.ExplodedGraphTooBigException exception) {
+      methodTree.accept(walker);
+      return Outcome.COMPLETED;
+    } catch (ExplodedGraphWalker.MaximumStepsReachedException exception) {
+      LOG.debug("Could not complete symbolic execution: ", exception);
+      return Outcome.MAX_STEPS_REACHED;
+    } catch (ExplodedGraphWalker.MaximumTimeReachedException exception) {
+      LOG.debug("Could not complete symbolic execution: ", exception);
+      return Outcome.MAX_TIME_REACHED;
+    } catch (ExplodedGraphWalker.MaximumNodesReachedException exception) {
       LOG.debug("Could not complete symbolic execution: ", exception);
+      return Outcome.MAX_NODES_REACHED;
+    } catch (ExplodedGraphWalker.ExplodedGraphTooBigException exception) {
+      LOG.debug("Could not complete symbolic execution: ", exception);
+      return Outcome.CONSTRAINTS_TOO_BIG;
     }
+  }
 
+  private void record(Outcome outcome, int explorations) {
+    statistics.explorations += explorations;
+    switch (outcome) {
+      case COMPLETED:
+        statistics.completed++;
+        break;
+      case MAX_STEPS_REACHED:
+        statistics.maxStepsReached++;
+        break;
+      case MAX_TIME_REACHED:
+        statistics.maxTimeReached++;
+        break;
+      case MAX_NODES_REACHED:
+        statistics.maxNodesReached++;
+        break;
+      case CONSTRAINTS_TOO_BIG:
+        statistics.constraintsTooBig++;
+        break;
+      default:
+        throw new IllegalStateException("Unexpected outcome " + outcome);
+    }
+  }
+
+  private enum Outcome {
+    COMPLETED, MAX_STEPS_REACHED, MAX_TIME_REACHED, MAX_NODES_REACHED, CONSTRAINTS_TOO_BIG
+  }
+
+  /**
+   * Exploration of a method on a worker thread of the pool. The walker and the checks are created for the method, and its issues are kept
+   * until the exploration is joined.
+   */
+  private static class Exploration implements Callable<Exploration> {
+    private final MethodTree methodTree;
+    private final JavaFileScannerContext context;
+    private final SymbolicExecutionBudget budget;
+    private final MethodIssues issues = new MethodIssues();
+    private Outcome outcome;
+    private int explorations;
+
+    Exploration(MethodTree methodTree, JavaFileScannerContext context, SymbolicExecutionBudget budget) {
+      this.methodTree = methodTree;
+      this.context = context;
+      this.budget = budget;
+    }
+
+    @Override
+    public Exploration call() {
+      ExplodedGraphWalker walker = new ExplodedGraphWalker(context, budget, issues);
+      outcome = explore(walker, methodTree);
+      explorations = walker.explorations;
+      return this;
+    }
   }
 }
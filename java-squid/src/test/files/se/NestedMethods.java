@@ -0,0 +1,29 @@
+class A {
+  void foo(Object o) {
+    Runnable r = new Runnable() {
+      @Override
+      public void run() {
+        Runnable nested = new Runnable() {
+          @Override
+          public void run() {
+            System.out.println("nested");
+          }
+        };
+        nested.run();
+      }
+    };
+    class Local {
+      void bar() {
+        Object p = new Object() {
+          @Override
+          public String toString() {
+            return "local";
+          }
+        };
+      }
+    }
+    r.run();
+  }
+
+  abstract void qix();
+}
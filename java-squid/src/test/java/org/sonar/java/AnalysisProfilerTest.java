@@ -0,0 +1,65 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class AnalysisProfilerTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void should_report_slowest_phases_and_files_first() throws Exception {
+    File reportFile = new File(temp.newFolder(), "report/profiling.json");
+    AnalysisProfiler profiler = new AnalysisProfiler(reportFile);
+    File fastFile = new File("Fast.java");
+    File slowFile = new File("Slow\"File.java");
+
+    profiler.stop(profiler.start(), AnalysisProfiler.PARSING, fastFile);
+    AnalysisProfiler.Measure start = profiler.start();
+    Thread.sleep(20);
+    profiler.stop(start, "org.sonar.SlowCheck", slowFile);
+    profiler.stop(profiler.start(), AnalysisProfiler.PARSING, slowFile);
+    profiler.save();
+
+    String report = Files.toString(reportFile, Charsets.UTF_8);
+    assertThat(report).contains("{\"name\": \"parsing\", \"calls\": 2, ");
+    assertThat(report).contains("\"name\": \"Slow\\\"File.java\", \"calls\": 2, ");
+    assertThat(report.indexOf("org.sonar.SlowCheck")).isLessThan(report.indexOf("parsing"));
+    assertThat(report.indexOf("Slow\\\"File.java")).isLessThan(report.indexOf("Fast.java"));
+  }
+
+  @Test
+  public void should_write_empty_report() throws Exception {
+    File reportFile = temp.newFile("profiling.json");
+    new AnalysisProfiler(reportFile).save();
+    assertThat(Files.toString(reportFile, Charsets.UTF_8)).isEqualTo("{\n  \"phases\": [],\n  \"files\": []\n}\n");
+  }
+
+}
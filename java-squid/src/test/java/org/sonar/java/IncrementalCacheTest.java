@@ -0,0 +1,191 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.java.model.FileContent;
+import org.sonar.java.resolve.BytecodeCache;
+import org.sonar.plugins.java.api.JavaCheck;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class IncrementalCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private static final RuleKey RULE_KEY = RuleKey.of("squid", "fake");
+  private final JavaCheck check = new FakeCheck();
+  private final Map<RuleKey, JavaCheck> checks = ImmutableMap.of(RULE_KEY, check);
+  private final Map<JavaCheck, RuleKey> ruleKeys = ImmutableMap.of(check, RULE_KEY);
+  private final BytecodeCache bytecodeCache = new BytecodeCache(Lists.newArrayList(new File("target/classes")));
+  private File cacheFile;
+  private File sourceFile;
+
+  @Before
+  public void setUp() throws Exception {
+    cacheFile = new File(temp.newFolder(), "issues.cache");
+    sourceFile = temp.newFile("A.java");
+    Files.write("class A {}", sourceFile, Charsets.UTF_8);
+  }
+
+  @Test
+  public void should_replay_issues_of_unchanged_file() {
+    AnalyzerMessage issue = new AnalyzerMessage(check, sourceFile, new AnalyzerMessage.TextSpan(1, 0, 1, 5), "message", 3);
+    issue.secondaryLocations.add(new AnalyzerMessage(check, sourceFile, new AnalyzerMessage.TextSpan(1, 6, 1, 7), "secondary", 0));
+    IncrementalCache cache = new IncrementalCache(cacheFile, "conf");
+    assertThat(cache.issues(content(), bytecodeCache)).isNull();
+    cache.put(content(), ImmutableList.of("org/sonar/java/AnalyzerMessage", "org/sonar/java/Unknown"), bytecodeCache, ImmutableList.of(issue), ruleKeys);
+    cache.save();
+
+    List<IncrementalCache.CachedIssue> cachedIssues = new IncrementalCache(cacheFile, "conf").issues(content(), bytecodeCache);
+    assertThat(cachedIssues).hasSize(1);
+    AnalyzerMessage replayed = cachedIssues.get(0).toAnalyzerMessage(checks);
+    assertThat(replayed.getCheck()).isSameAs(check);
+    assertThat(replayed.getFile().getAbsolutePath()).isEqualTo(sourceFile.getAbsolutePath());
+    assertThat(replayed.getMessage()).isEqualTo("message");
+    assertThat(replayed.getCost()).isEqualTo(3.0);
+    assertThat(replayed.primaryLocation().toString()).isEqualTo("(1:0)-(1:5)");
+    assertThat(replayed.secondaryLocations).hasSize(1);
+    assertThat(replayed.secondaryLocations.get(0).getMessage()).isEqualTo("secondary");
+  }
+
+  @Test
+  public void should_not_replay_issues_when_file_changed() throws Exception {
+    IncrementalCache cache = new IncrementalCache(cacheFile, "conf");
+    cache.put(content(), ImmutableList.<String>of(), bytecodeCache, ImmutableList.<AnalyzerMessage>of(), ruleKeys);
+    cache.save();
+    assertThat(new IncrementalCache(cacheFile, "conf").issues(content(), bytecodeCache)).isEmpty();
+
+    Files.write("class A { int a; }", sourceFile, Charsets.UTF_8);
+    assertThat(new IncrementalCache(cacheFile, "conf").issues(content(), bytecodeCache)).isNull();
+  }
+
+  @Test
+  public void should_not_replay_issues_when_configuration_changed() {
+    IncrementalCache cache = new IncrementalCache(cacheFile, "conf");
+    cache.put(content(), ImmutableList.<String>of(), bytecodeCache, ImmutableList.<AnalyzerMessage>of(), ruleKeys);
+    cache.save();
+    assertThat(new IncrementalCache(cacheFile, "other conf").issues(content(), bytecodeCache)).isNull();
+  }
+
+  @Test
+  public void should_not_replay_issues_when_dependency_changed() {
+    IncrementalCache cache = new IncrementalCache(cacheFile, "conf");
+    cache.put(content(), ImmutableList.of("org/sonar/java/AnalyzerMessage"), bytecodeCache, ImmutableList.<AnalyzerMessage>of(), ruleKeys);
+    cache.save();
+    BytecodeCache otherClasspath = new BytecodeCache(Lists.<File>newArrayList());
+    assertThat(new IncrementalCache(cacheFile, "conf").issues(content(), otherClasspath)).isNull();
+  }
+
+  @Test
+  public void should_not_cache_file_with_issue_on_other_resource() {
+    AnalyzerMessage issue = new AnalyzerMessage(check, sourceFile.getParentFile(), -1, "message", 0);
+    IncrementalCache cache = new IncrementalCache(cacheFile, "conf");
+    cache.put(content(), ImmutableList.<String>of(), bytecodeCache, ImmutableList.of(issue), ruleKeys);
+    cache.save();
+    assertThat(new IncrementalCache(cacheFile, "conf").issues(content(), bytecodeCache)).isNull();
+  }
+
+  @Test
+  public void should_ignore_corrupted_cache() throws Exception {
+    Files.write("corrupted", cacheFile, Charsets.UTF_8);
+    assertThat(new IncrementalCache(cacheFile, "conf").issues(content(), bytecodeCache)).isNull();
+  }
+
+  @Test
+  public void should_ignore_cache_of_other_format() throws Exception {
+    IncrementalCache cache = new IncrementalCache(cacheFile, "conf");
+    cache.put(content(), ImmutableList.<String>of(), bytecodeCache, ImmutableList.<AnalyzerMessage>of(), ruleKeys);
+    cache.save();
+    assertThat(new IncrementalCache(cacheFile, "conf").issues(content(), bytecodeCache)).isEmpty();
+
+    // format without version
+    writeCache("conf", ImmutableMap.of(sourceFile.getAbsolutePath(), "entry"));
+    assertThat(new IncrementalCache(cacheFile, "conf").issues(content(), bytecodeCache)).isNull();
+  }
+
+  @Test
+  public void should_ignore_cache_with_entries_of_other_type() throws Exception {
+    writeCache(2, "conf", ImmutableMap.of(sourceFile.getAbsolutePath(), "entry"));
+    assertThat(new IncrementalCache(cacheFile, "conf").issues(content(), bytecodeCache)).isNull();
+  }
+
+  @Test
+  public void should_replay_issues_of_template_rules_under_their_own_key() {
+    JavaCheck otherInstance = new FakeCheck();
+    RuleKey otherRuleKey = RuleKey.of("squid", "other_fake");
+    AnalyzerMessage issue = new AnalyzerMessage(otherInstance, sourceFile, 1, "message", 0);
+    IncrementalCache cache = new IncrementalCache(cacheFile, "conf");
+    cache.put(content(), ImmutableList.<String>of(), bytecodeCache, ImmutableList.of(issue), ImmutableMap.of(check, RULE_KEY, otherInstance, otherRuleKey));
+    cache.save();
+
+    IncrementalCache.CachedIssue cachedIssue = new IncrementalCache(cacheFile, "conf").issues(content(), bytecodeCache).get(0);
+    assertThat(cachedIssue.toAnalyzerMessage(ImmutableMap.of(RULE_KEY, check, otherRuleKey, otherInstance)).getCheck()).isSameAs(otherInstance);
+    assertThat(cachedIssue.toAnalyzerMessage(checks)).isNull();
+  }
+
+  @Test
+  public void should_not_cache_file_with_issue_of_unknown_rule() {
+    AnalyzerMessage issue = new AnalyzerMessage(new FakeCheck(), sourceFile, 1, "message", 0);
+    IncrementalCache cache = new IncrementalCache(cacheFile, "conf");
+    cache.put(content(), ImmutableList.<String>of(), bytecodeCache, ImmutableList.of(issue), ruleKeys);
+    cache.save();
+    assertThat(new IncrementalCache(cacheFile, "conf").issues(content(), bytecodeCache)).isNull();
+  }
+
+  private FileContent content() {
+    return new FileContent(sourceFile, Charsets.UTF_8);
+  }
+
+  private void writeCache(Object... objects) throws Exception {
+    ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(cacheFile));
+    try {
+      for (Object object : objects) {
+        if (object instanceof Integer) {
+          out.writeInt((Integer) object);
+        } else {
+          out.writeObject(object);
+        }
+      }
+    } finally {
+      out.close();
+    }
+  }
+
+  private static class FakeCheck implements JavaCheck {
+  }
+
+}
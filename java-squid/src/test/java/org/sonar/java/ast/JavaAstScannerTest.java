@@ -22,6 +22,8 @@ package org.sonar.java.ast;
 import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
 import com.sonar.sslr.api.RecognitionException;
 import com.sonar.sslr.api.typed.ActionParser;
 import com.sonar.sslr.api.typed.GrammarBuilder;
@@ -31,6 +33,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.batch.fs.InputPath;
@@ -38,7 +41,9 @@ import org.sonar.api.batch.fs.internal.DefaultFileSystem;
 import org.sonar.api.issue.NoSonarFilter;
 import org.sonar.api.resources.Resource;
 import org.sonar.java.Measurer;
+import org.sonar.java.ast.parser.JavaParser;
 import org.sonar.java.ast.parser.JavaNodeBuilder;
+import org.sonar.java.model.DefaultJavaFileScannerContext;
 import org.sonar.java.model.InternalSyntaxToken;
 import org.sonar.java.model.JavaTree;
 import org.sonar.java.model.VisitorsBridge;
@@ -53,7 +58,9 @@ import org.sonar.sslr.grammar.LexerlessGrammarBuilder;
 
 import java.io.File;
 import java.io.InterruptedIOException;
+import java.util.List;
 
+import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
@@ -65,6 +72,9 @@ public class JavaAstScannerTest {
   @Rule
   public ExpectedException thrown = ExpectedException.none();
 
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   SensorContext context;
   private DefaultFileSystem fs;
 
@@ -157,10 +167,77 @@ public class JavaAstScannerTest {
     scanner.scan(ImmutableList.of(new File("src/test/resources/AstScannerNoParseError.txt")));
   }
 
+  @Test
+  public void parallel_parsing_should_visit_files_in_order() {
+    List<File> files = ImmutableList.of(
+      new File("src/test/files/metrics/Classes.java"),
+      new File("src/test/files/metrics/Comments.java"),
+      new File("src/test/resources/AstScannerParseError.txt"),
+      new File("src/test/files/metrics/Complexity.java"),
+      new File("src/test/files/metrics/Methods.java"),
+      new File("src/test/files/metrics/Statements.java"));
+
+    FileRecorder sequentialRecorder = new FileRecorder();
+    JavaAstScanner sequentialScanner = new JavaAstScanner(JavaParser.createParser(Charsets.UTF_8));
+    sequentialScanner.setVisitorBridge(new VisitorsBridge(sequentialRecorder));
+    sequentialScanner.scan(files);
+
+    FileRecorder parallelRecorder = new FileRecorder();
+    JavaAstScanner parallelScanner = new JavaAstScanner(JavaParser.createParser(Charsets.UTF_8));
+    parallelScanner.setParallelParsing(Charsets.UTF_8, 3);
+    parallelScanner.setVisitorBridge(new VisitorsBridge(parallelRecorder));
+    parallelScanner.scan(files);
+
+    assertThat(parallelRecorder.visited).isEqualTo(sequentialRecorder.visited);
+    assertThat(parallelRecorder.visited).hasSize(files.size());
+  }
+
+  @Test
+  public void file_content_should_be_read_with_charset_of_the_analysis() throws Exception {
+    File file = temp.newFile("A.java");
+    Files.write("class A { String s = \"\u00e9t\u00e9\"; }", file, Charsets.ISO_8859_1);
+
+    ContentRecorder sharedRecorder = new ContentRecorder();
+    JavaAstScanner sharingScanner = new JavaAstScanner(JavaParser.createParser(Charsets.ISO_8859_1));
+    sharingScanner.setParallelParsing(Charsets.ISO_8859_1, 2);
+    sharingScanner.setFileContentSharing(Charsets.ISO_8859_1);
+    sharingScanner.setVisitorBridge(new VisitorsBridge(sharedRecorder));
+    sharingScanner.scan(ImmutableList.of(file));
+    assertThat(sharedRecorder.contents).containsExactly("class A { String s = \"\u00e9t\u00e9\"; }");
+
+    ContentRecorder notSharedRecorder = new ContentRecorder();
+    VisitorsBridge visitorsBridge = new VisitorsBridge(notSharedRecorder);
+    visitorsBridge.setCharset(Charsets.ISO_8859_1);
+    JavaAstScanner scanner = new JavaAstScanner(JavaParser.createParser(Charsets.ISO_8859_1));
+    scanner.setVisitorBridge(visitorsBridge);
+    scanner.scan(ImmutableList.of(file));
+    assertThat(notSharedRecorder.contents).isEqualTo(sharedRecorder.contents);
+  }
+
   private static JavaAstScanner defaultJavaAstScanner() {
     return new JavaAstScanner(new ActionParser<Tree>(Charsets.UTF_8, FakeLexer.builder(), FakeGrammar.class, new FakeTreeFactory(), new JavaNodeBuilder(), FakeLexer.ROOT));
   }
 
+  private static class FileRecorder implements JavaFileScanner {
+
+    private final List<String> visited = Lists.newArrayList();
+
+    @Override
+    public void scanFile(JavaFileScannerContext context) {
+      visited.add(context.getFile().getName() + ":" + context.getTree().types().size());
+    }
+  }
+
+  private static class ContentRecorder implements JavaFileScanner {
+
+    private final List<String> contents = Lists.newArrayList();
+
+    @Override
+    public void scanFile(JavaFileScannerContext context) {
+      contents.add(((DefaultJavaFileScannerContext) context).getFileContent());
+    }
+  }
+
   private static class CheckThrowingException implements JavaFileScanner {
 
     private final RuntimeException exception;
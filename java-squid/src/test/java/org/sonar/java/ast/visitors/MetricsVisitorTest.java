@@ -0,0 +1,135 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.ast.visitors;
+
+import com.google.common.base.Charsets;
+import com.sonar.sslr.api.typed.ActionParser;
+import org.junit.Test;
+import org.sonar.java.ast.parser.JavaParser;
+import org.sonar.plugins.java.api.tree.ClassTree;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.plugins.java.api.tree.Tree;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class MetricsVisitorTest {
+
+  private final ActionParser parser = JavaParser.createParser(Charsets.UTF_8);
+
+  @Test
+  public void metrics_are_the_ones_of_separate_visitors() {
+    File[] files = new File("src/test/files/metrics").listFiles();
+    assertThat(files).isNotEmpty();
+    for (File file : files) {
+      CompilationUnitTree tree = (CompilationUnitTree) parser.parse(file);
+      assertSameMetrics(file, tree, true);
+      assertSameMetrics(file, tree, false);
+    }
+  }
+
+  @Test
+  public void nested_methods_complexity() {
+    CompilationUnitTree tree = (CompilationUnitTree) parser.parse("class A {" +
+      "  int foo(boolean a, boolean b) {" +
+      "    Object o = new Object() {" +
+      "      int bar() { if (a && b) { return 1; } return 0; }" +
+      "    };" +
+      "    if (a) { return 1; }" +
+      "    return 0;" +
+      "  }" +
+      "  abstract void qix();" +
+      "}");
+    MetricsVisitor metricsVisitor = new MetricsVisitor(true);
+    metricsVisitor.scan(tree);
+    assertThat(metricsVisitor.functions()).isEqualTo(2);
+    assertThat(metricsVisitor.functionComplexities()).containsExactly(7, 0);
+    assertThat(metricsVisitor.complexityInFunctions()).isEqualTo(7);
+    assertThat(metricsVisitor.complexity()).isEqualTo(7);
+  }
+
+  private void assertSameMetrics(File file, CompilationUnitTree tree, boolean separateAccessorsFromMethods) {
+    String message = file.getName() + " " + separateAccessorsFromMethods;
+    MetricsVisitor metricsVisitor = new MetricsVisitor(separateAccessorsFromMethods);
+    metricsVisitor.scan(tree);
+
+    ComplexityVisitor complexityVisitor = new ComplexityVisitor(separateAccessorsFromMethods);
+    assertThat(metricsVisitor.complexity()).as(message).isEqualTo(complexityVisitor.scan(tree).size());
+    assertThat(metricsVisitor.functionComplexities()).as(message).isEqualTo(functionComplexities(tree, separateAccessorsFromMethods));
+    assertThat(metricsVisitor.statements()).as(message).isEqualTo(new StatementVisitor().numberOfStatements(tree));
+    assertThat(metricsVisitor.linesOfCode()).as(message).isEqualTo(new LinesOfCodeVisitor().linesOfCode(tree));
+
+    CommentLinesVisitor commentLinesVisitor = new CommentLinesVisitor();
+    commentLinesVisitor.analyzeCommentLines(tree);
+    assertThat(metricsVisitor.commentLines()).as(message).isEqualTo(commentLinesVisitor.commentLinesMetric());
+    assertThat(metricsVisitor.noSonarLines()).as(message).isEqualTo(commentLinesVisitor.noSonarLines());
+
+    PublicApiChecker publicApiChecker = separateAccessorsFromMethods ?
+      PublicApiChecker.newInstanceWithAccessorsSeparatedFromMethods() : PublicApiChecker.newInstanceWithAccessorsHandledAsMethods();
+    publicApiChecker.scan(tree);
+    assertThat(metricsVisitor.publicApi()).as(message).isEqualTo(publicApiChecker.getPublicApi());
+    assertThat(metricsVisitor.undocumentedPublicApi()).as(message).isEqualTo(publicApiChecker.getUndocumentedPublicApi());
+    assertThat(metricsVisitor.documentedPublicApiDensity()).as(message).isEqualTo(publicApiChecker.getDocumentedPublicApiDensity());
+  }
+
+  /**
+   * Complexity of each function computed by a dedicated scan, as done before functions were measured in a single traversal.
+   */
+  private static List<Integer> functionComplexities(CompilationUnitTree tree, final boolean separateAccessorsFromMethods) {
+    final List<Integer> result = new ArrayList<>();
+    new SubscriptionVisitor() {
+      private final Deque<ClassTree> classTrees = new ArrayDeque<>();
+
+      @Override
+      public List<Tree.Kind> nodesToVisit() {
+        return Arrays.asList(Tree.Kind.CLASS, Tree.Kind.INTERFACE, Tree.Kind.ENUM, Tree.Kind.ANNOTATION_TYPE, Tree.Kind.METHOD, Tree.Kind.CONSTRUCTOR);
+      }
+
+      @Override
+      public void visitNode(Tree tree) {
+        if (tree.is(Tree.Kind.METHOD, Tree.Kind.CONSTRUCTOR)) {
+          MethodTree methodTree = (MethodTree) tree;
+          ClassTree classTree = classTrees.peek();
+          if (classTree.simpleName() != null && !(separateAccessorsFromMethods && AccessorsUtils.isAccessor(classTree, methodTree))) {
+            result.add(new ComplexityVisitor(separateAccessorsFromMethods).scan(classTree, methodTree).size());
+          }
+        } else {
+          classTrees.push((ClassTree) tree);
+        }
+      }
+
+      @Override
+      public void leaveNode(Tree tree) {
+        if (!tree.is(Tree.Kind.METHOD, Tree.Kind.CONSTRUCTOR)) {
+          classTrees.pop();
+        }
+      }
+    }.scanTree(tree);
+    return result;
+  }
+
+}
@@ -0,0 +1,277 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.ast.visitors;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.sonar.java.ast.parser.JavaParser;
+import org.sonar.java.model.JavaTree;
+import org.sonar.plugins.java.api.JavaCheck;
+import org.sonar.plugins.java.api.JavaFileScanner;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.SyntaxToken;
+import org.sonar.plugins.java.api.tree.SyntaxTrivia;
+import org.sonar.plugins.java.api.tree.Tree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SubscriptionVisitorDispatcherTest {
+
+  private static final String SOURCE = "class A { /* comment */ void foo() { int a = 1; } class B { void bar() {} } }";
+
+  @Test
+  public void should_call_visitors_as_when_scanning_alone() {
+    JavaFileScannerContext context = context();
+    RecordingVisitor nodes = new RecordingVisitor(Tree.Kind.CLASS, Tree.Kind.METHOD);
+    RecordingVisitor syntax = new RecordingVisitor(Tree.Kind.TOKEN, Tree.Kind.TRIVIA, Tree.Kind.METHOD);
+    RecordingVisitor trivia = new RecordingVisitor(Tree.Kind.TRIVIA);
+    nodes.scanFile(context);
+    syntax.scanFile(context);
+    trivia.scanFile(context);
+    List<String> expectedNodes = new ArrayList<>(nodes.events);
+    List<String> expectedSyntax = new ArrayList<>(syntax.events);
+    List<String> expectedTrivia = new ArrayList<>(trivia.events);
+    assertThat(expectedNodes).contains("visit CLASS", "leave METHOD");
+    assertThat(expectedTrivia).containsExactly("trivia /* comment */");
+
+    nodes.events.clear();
+    syntax.events.clear();
+    trivia.events.clear();
+    SubscriptionVisitorDispatcher dispatcher = new SubscriptionVisitorDispatcher(ImmutableList.of(nodes, syntax, trivia));
+    assertThat(dispatcher.fusedVisitors()).containsExactly(nodes, syntax, trivia);
+    assertThat(dispatcher.unfusedScanners()).isEmpty();
+    dispatcher.scanFile(context);
+
+    assertThat(nodes.events).isEqualTo(expectedNodes);
+    assertThat(syntax.events).isEqualTo(expectedSyntax);
+    assertThat(trivia.events).isEqualTo(expectedTrivia);
+    assertThat(nodes.context).isSameAs(context);
+    assertThat(nodes.hasSemantic()).isFalse();
+  }
+
+  @Test
+  public void should_not_fuse_visitors_driving_their_own_traversal() {
+    JavaFileScanner scanner = mock(JavaFileScanner.class);
+    RecordingVisitor fused = new RecordingVisitor(Tree.Kind.METHOD);
+    OverridingScanFile overridingScanFile = new OverridingScanFile();
+    OverridingScanTree overridingScanTree = new OverridingScanTree();
+    SubscriptionVisitorDispatcher dispatcher = new SubscriptionVisitorDispatcher(
+      Arrays.asList(scanner, fused, overridingScanFile, overridingScanTree, new ExtendingOverridingScanFile()));
+    assertThat(dispatcher.fusedVisitors()).containsExactly(fused);
+    assertThat(dispatcher.unfusedScanners()).hasSize(4);
+
+    dispatcher.scanFile(context());
+    assertThat(fused.events).containsExactly("visit METHOD", "leave METHOD", "visit METHOD", "leave METHOD");
+    assertThat(overridingScanFile.events).isEqualTo(fused.events);
+    assertThat(overridingScanTree.events).isEqualTo(fused.events);
+  }
+
+  @Test
+  public void should_execute_fused_visitors_at_the_position_of_the_first_of_them() {
+    List<String> events = new ArrayList<>();
+    OverridingScanFile before = new OverridingScanFile(events);
+    RecordingVisitor first = new RecordingVisitor(events, Tree.Kind.CLASS);
+    OverridingScanFile after = new OverridingScanFile(events);
+    RecordingVisitor last = new RecordingVisitor(events, Tree.Kind.METHOD);
+    SubscriptionVisitorDispatcher dispatcher = new SubscriptionVisitorDispatcher(ImmutableList.of(before, first, after, last));
+    assertThat(dispatcher.fusedVisitors()).containsExactly(first, last);
+    assertThat(dispatcher.unfusedScanners()).containsExactly(before, after);
+
+    dispatcher.scanFile(context());
+    assertThat(events).containsExactly(
+      "visit METHOD", "leave METHOD", "visit METHOD", "leave METHOD",
+      "visit CLASS", "visit METHOD", "leave METHOD", "visit CLASS", "visit METHOD", "leave METHOD", "leave CLASS", "leave CLASS",
+      "visit METHOD", "leave METHOD", "visit METHOD", "leave METHOD");
+  }
+
+  @Test
+  public void fused_visitors_should_report_same_issues_as_when_scanning_alone() {
+    String source = "class A {\n  void foo() {\n    int a = 1;\n  }\n  class B {\n    int b;\n    void bar() {}\n  }\n}";
+    CompilationUnitTree tree = (CompilationUnitTree) JavaParser.createParser(Charsets.UTF_8).parse(source);
+
+    JavaFileScannerContext aloneContext = context(tree);
+    for (JavaFileScanner scanner : issueReporters()) {
+      scanner.scanFile(aloneContext);
+    }
+    List<String> expected = reportedIssues(aloneContext);
+    assertThat(expected).containsExactly(
+      "classes 1: class", "classes 5: class", "methods 2: method", "methods 7: method", "tokens 3: int", "tokens 6: int");
+
+    JavaFileScannerContext fusedContext = context(tree);
+    SubscriptionVisitorDispatcher dispatcher = new SubscriptionVisitorDispatcher(issueReporters());
+    assertThat(dispatcher.unfusedScanners()).isEmpty();
+    dispatcher.scanFile(fusedContext);
+    assertThat(reportedIssues(fusedContext)).isEqualTo(expected);
+  }
+
+  private static List<JavaFileScanner> issueReporters() {
+    return ImmutableList.<JavaFileScanner>of(
+      new IssueReporter("methods", Tree.Kind.METHOD),
+      new IssueReporter("tokens", Tree.Kind.TOKEN),
+      new IssueReporter("classes", Tree.Kind.CLASS));
+  }
+
+  private static List<String> reportedIssues(JavaFileScannerContext context) {
+    ArgumentCaptor<JavaCheck> checks = ArgumentCaptor.forClass(JavaCheck.class);
+    ArgumentCaptor<Tree> trees = ArgumentCaptor.forClass(Tree.class);
+    ArgumentCaptor<String> messages = ArgumentCaptor.forClass(String.class);
+    verify(context, atLeastOnce()).reportIssue(checks.capture(), trees.capture(), messages.capture());
+    List<String> issues = new ArrayList<>();
+    for (int i = 0; i < checks.getAllValues().size(); i++) {
+      int line = ((JavaTree) trees.getAllValues().get(i)).getLine();
+      issues.add(checks.getAllValues().get(i) + " " + line + ": " + messages.getAllValues().get(i));
+    }
+    Collections.sort(issues);
+    return issues;
+  }
+
+  @Test
+  public void should_do_nothing_without_fused_visitors() {
+    JavaFileScannerContext context = mock(JavaFileScannerContext.class);
+    new SubscriptionVisitorDispatcher(ImmutableList.<JavaFileScanner>of()).scanFile(context);
+    assertThat(new SubscriptionVisitorDispatcher(ImmutableList.of(new RecordingVisitor())).fusedVisitors()).hasSize(1);
+  }
+
+  private static JavaFileScannerContext context() {
+    return context((CompilationUnitTree) JavaParser.createParser(Charsets.UTF_8).parse(SOURCE));
+  }
+
+  private static JavaFileScannerContext context(CompilationUnitTree tree) {
+    JavaFileScannerContext context = mock(JavaFileScannerContext.class);
+    when(context.getTree()).thenReturn(tree);
+    return context;
+  }
+
+  private static class RecordingVisitor extends SubscriptionVisitor {
+    private final List<Tree.Kind> kinds;
+    final List<String> events;
+
+    RecordingVisitor(Tree.Kind... kinds) {
+      this(new ArrayList<String>(), kinds);
+    }
+
+    RecordingVisitor(List<String> events, Tree.Kind... kinds) {
+      this.events = events;
+      this.kinds = ImmutableList.copyOf(kinds);
+    }
+
+    @Override
+    public List<Tree.Kind> nodesToVisit() {
+      return kinds;
+    }
+
+    @Override
+    public void visitNode(Tree tree) {
+      events.add("visit " + tree.kind());
+    }
+
+    @Override
+    public void leaveNode(Tree tree) {
+      events.add("leave " + tree.kind());
+    }
+
+    @Override
+    public void visitToken(SyntaxToken syntaxToken) {
+      events.add("token " + syntaxToken.text());
+    }
+
+    @Override
+    public void visitTrivia(SyntaxTrivia syntaxTrivia) {
+      events.add("trivia " + syntaxTrivia.comment());
+    }
+  }
+
+  /**
+   * Reports an issue on each tree of the given kind, and on each "int" token.
+   */
+  private static class IssueReporter extends SubscriptionVisitor {
+    private final String name;
+    private final Tree.Kind kind;
+
+    IssueReporter(String name, Tree.Kind kind) {
+      this.name = name;
+      this.kind = kind;
+    }
+
+    @Override
+    public List<Tree.Kind> nodesToVisit() {
+      return ImmutableList.of(kind);
+    }
+
+    @Override
+    public void leaveNode(Tree tree) {
+      context.reportIssue(this, tree, tree.kind() == Tree.Kind.METHOD ? "method" : "class");
+    }
+
+    @Override
+    public void visitToken(SyntaxToken syntaxToken) {
+      if ("int".equals(syntaxToken.text())) {
+        context.reportIssue(this, syntaxToken, "int");
+      }
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+
+  private static class OverridingScanFile extends RecordingVisitor {
+    OverridingScanFile() {
+      this(new ArrayList<String>());
+    }
+
+    OverridingScanFile(List<String> events) {
+      super(events, Tree.Kind.METHOD);
+    }
+
+    @Override
+    public void scanFile(JavaFileScannerContext context) {
+      super.scanFile(context);
+    }
+  }
+
+  private static class ExtendingOverridingScanFile extends OverridingScanFile {
+  }
+
+  private static class OverridingScanTree extends RecordingVisitor {
+    OverridingScanTree() {
+      super(Tree.Kind.METHOD);
+    }
+
+    @Override
+    protected void scanTree(Tree tree) {
+      super.scanTree(tree);
+    }
+  }
+
+}
@@ -26,11 +26,16 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.sonar.java.bytecode.asm.AsmClass;
 import org.sonar.java.bytecode.asm.AsmClassProvider;
+import org.sonar.java.bytecode.asm.AsmClassProviderImpl;
+import org.sonar.java.bytecode.asm.AsmMethod;
 import org.sonar.java.bytecode.visitor.BytecodeVisitor;
 import org.sonar.java.bytecode.visitor.DefaultBytecodeContext;
 
+import java.io.File;
 import java.io.InterruptedIOException;
+import java.util.List;
 
+import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
@@ -78,6 +83,40 @@ public class BytecodeScannerTest {
     bytecodeScanner.scanClasses(Lists.newArrayList(className), asmProvider);
   }
 
+  @Test
+  public void parallel_reading_should_visit_classes_like_sequential_scan() {
+    List<String> classes = Lists.newArrayList("tags/File", "tags/Line", "tags/Tag", "tags/TagException", "tags/TagName", "tags/Unknown");
+    ClassCollector sequential = new ClassCollector();
+    scan(classes, 1, sequential);
+    ClassCollector parallel = new ClassCollector();
+    scan(classes, 4, parallel);
+
+    assertThat(parallel.classes).isEqualTo(Lists.newArrayList("tags/File", "tags/Line", "tags/Tag", "tags/TagException", "tags/TagName", "tags/Unknown"));
+    assertThat(parallel.methods).isEqualTo(sequential.methods);
+  }
+
+  private static void scan(List<String> classes, int threads, BytecodeVisitor visitor) {
+    BytecodeScanner scanner = new BytecodeScanner(new DefaultBytecodeContext(null));
+    scanner.setThreads(threads);
+    scanner.accept(visitor);
+    scanner.scanClasses(classes, new AsmClassProviderImpl(ClassLoaderBuilder.create(new File("src/test/files/bytecode/bin/"))));
+  }
+
+  private static class ClassCollector extends BytecodeVisitor {
+    private final List<String> classes = Lists.newArrayList();
+    private final List<String> methods = Lists.newArrayList();
+
+    @Override
+    public void visitClass(AsmClass asmClass) {
+      classes.add(asmClass.getInternalName());
+    }
+
+    @Override
+    public void visitMethod(AsmMethod asmMethod) {
+      methods.add(asmMethod.getParent().getInternalName() + "#" + asmMethod.getKey() + asmMethod.getOutgoingEdges().size());
+    }
+  }
+
   private static class CheckThrowingException extends BytecodeVisitor {
     private final RuntimeException e;
 
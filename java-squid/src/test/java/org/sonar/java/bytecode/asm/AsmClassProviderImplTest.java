@@ -25,8 +25,15 @@ import org.sonar.java.bytecode.asm.AsmClassProvider.DETAIL_LEVEL;
 
 import java.io.File;
 import java.util.Collection;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 public class AsmClassProviderImplTest {
 
@@ -108,4 +115,32 @@ public class AsmClassProviderImplTest {
     assertThat(asmClassProviderImpl.getClass("tags/Line", DETAIL_LEVEL.STRUCTURE_AND_CALLS).getDetailLevel()).isEqualTo(DETAIL_LEVEL.STRUCTURE_AND_CALLS);
   }
 
+  @Test
+  public void prefetched_classes_should_be_decorated_like_read_ones() {
+    asmClassProviderImpl = new AsmClassProviderImpl(ClassLoaderBuilder.create(new File("src/test/files/bytecode/bin/")));
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      asmClassProviderImpl.prefetch("tags/Line", executor);
+      asmClassProviderImpl.prefetch("tags/Line", executor);
+      asmClassProviderImpl.prefetch("tags/Unknown", executor);
+      AsmClass line = asmClassProviderImpl.getClass("tags/Line", DETAIL_LEVEL.STRUCTURE_AND_CALLS);
+      assertThat(line.getDetailLevel()).isEqualTo(DETAIL_LEVEL.STRUCTURE_AND_CALLS);
+      assertThat(line.getSuperClass().getInternalName()).isEqualTo("java/lang/Object");
+      assertThat(line.getMethods()).isNotEmpty();
+      assertThat(asmClassProviderImpl.getClass("tags/Unknown").getSuperClass()).isNull();
+    } finally {
+      executor.shutdownNow();
+      asmClassProviderImpl.clearPrefetchedClasses();
+    }
+  }
+
+  @Test
+  public void fully_decorated_classes_should_not_be_prefetched() {
+    asmClassProviderImpl = new AsmClassProviderImpl(ClassLoaderBuilder.create(new File("src/test/files/bytecode/bin/")));
+    Executor executor = mock(Executor.class);
+    asmClassProviderImpl.getClass("tags/Line", DETAIL_LEVEL.STRUCTURE_AND_CALLS);
+    asmClassProviderImpl.prefetch("tags/Line", executor);
+    verify(executor, never()).execute(any(Runnable.class));
+  }
+
 }
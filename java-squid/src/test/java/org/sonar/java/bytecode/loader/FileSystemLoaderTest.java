@@ -77,6 +77,17 @@ public class FileSystemLoaderTest {
     loader.loadBytes("tags/TagName.class");
   }
 
+  @Test
+  public void testClassFiles() throws Exception {
+    File dir = new File("src/test/files/bytecode/bin/");
+    FileSystemLoader loader = new FileSystemLoader(dir);
+
+    assertThat(loader.classFiles()).contains("tags/TagName.class");
+    assertThat(loader.classFiles()).excludes("tags");
+
+    loader.close();
+  }
+
   @Test
   public void closeCanBeCalledMultipleTimes() throws Exception {
     File dir = new File("src/test/files/bytecode/bin/");
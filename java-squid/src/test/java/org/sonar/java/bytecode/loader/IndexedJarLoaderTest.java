@@ -0,0 +1,161 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.bytecode.loader;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Arrays;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class IndexedJarLoaderTest {
+
+  private static final File JAR = new File("src/test/files/bytecode/lib/hello.jar");
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void should_load_classes_from_index() throws Exception {
+    File indexDirectory = temp.newFolder();
+    IndexedJarLoader loader = new IndexedJarLoader(JAR, indexDirectory);
+    assertThat(indexDirectory.listFiles()).hasSize(1);
+
+    byte[] expected = new JarLoader(JAR).loadBytes("org/sonar/tests/Hello.class");
+    assertThat(loader.loadBytes("org/sonar/tests/Hello.class")).isEqualTo(expected);
+    assertThat(loader.loadBytes("org/sonar/tests/Unknown.class")).isEmpty();
+    assertThat(loader.findResource("org/sonar/tests/Unknown.class")).isNull();
+    assertThat(loader.classFiles()).containsOnly("org/sonar/tests/Hello.class");
+
+    URL url = loader.findResource("org/sonar/tests/Hello.class");
+    assertThat(url.toString()).endsWith("hello.jar!/org/sonar/tests/Hello.class");
+    InputStream is = url.openStream();
+    try {
+      assertThat(IOUtils.toByteArray(is)).isEqualTo(expected);
+    } finally {
+      IOUtils.closeQuietly(is);
+    }
+    loader.close();
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Loader closed");
+    loader.loadBytes("org/sonar/tests/Hello.class");
+  }
+
+  @Test
+  public void should_load_other_resources_from_jar() throws Exception {
+    IndexedJarLoader loader = new IndexedJarLoader(JAR, temp.newFolder());
+    assertThat(loader.findResource("META-INF/MANIFEST.MF").toString()).endsWith("hello.jar!/META-INF/MANIFEST.MF");
+    assertThat(new String(loader.loadBytes("META-INF/MANIFEST.MF"), "UTF-8")).contains("Manifest-Version: 1.0");
+    assertThat(loader.findResource("notfound")).isNull();
+    loader.close();
+  }
+
+  @Test
+  public void should_reuse_index_of_unchanged_jar() throws Exception {
+    File indexDirectory = temp.newFolder();
+    new IndexedJarLoader(JAR, indexDirectory).close();
+    File indexFile = indexDirectory.listFiles()[0];
+    long lastModified = indexFile.lastModified();
+
+    IndexedJarLoader loader = new IndexedJarLoader(JAR, indexDirectory);
+    assertThat(indexDirectory.listFiles()).containsOnly(indexFile);
+    assertThat(indexFile.lastModified()).isEqualTo(lastModified);
+    assertThat(loader.loadBytes("org/sonar/tests/Hello.class")).isNotEmpty();
+    loader.close();
+  }
+
+  @Test
+  public void should_rebuild_index_when_jar_changes() throws Exception {
+    File jar = temp.newFile("hello.jar");
+    FileUtils.copyFile(JAR, jar);
+    File indexDirectory = temp.newFolder();
+    new IndexedJarLoader(jar, indexDirectory).close();
+
+    FileUtils.copyFile(JAR, jar);
+    jar.setLastModified(jar.lastModified() - 10000);
+    IndexedJarLoader loader = new IndexedJarLoader(jar, indexDirectory);
+    assertThat(loader.loadBytes("org/sonar/tests/Hello.class")).isNotEmpty();
+    loader.close();
+  }
+
+  @Test
+  public void should_rebuild_corrupted_index() throws Exception {
+    File indexDirectory = temp.newFolder();
+    new IndexedJarLoader(JAR, indexDirectory).close();
+    File indexFile = indexDirectory.listFiles()[0];
+    FileUtils.writeStringToFile(indexFile, "corrupted");
+
+    IndexedJarLoader loader = new IndexedJarLoader(JAR, indexDirectory);
+    assertThat(loader.loadBytes("org/sonar/tests/Hello.class")).isNotEmpty();
+    assertThat(indexFile.length()).isGreaterThan(9);
+    loader.close();
+  }
+
+  @Test
+  public void should_not_share_index_between_jars_with_same_name() throws Exception {
+    File jar = new File(temp.newFolder(), "hello.jar");
+    FileUtils.copyFile(JAR, jar);
+    File indexDirectory = temp.newFolder();
+    IndexedJarLoader loader = new IndexedJarLoader(JAR, indexDirectory);
+    IndexedJarLoader otherLoader = new IndexedJarLoader(jar, indexDirectory);
+    assertThat(indexDirectory.listFiles()).hasSize(2);
+    loader.close();
+    otherLoader.close();
+  }
+
+  @Test
+  public void should_replace_outdated_index_while_loader_is_open() throws Exception {
+    File jar = temp.newFile("hello.jar");
+    FileUtils.copyFile(JAR, jar);
+    File indexDirectory = temp.newFolder();
+    IndexedJarLoader loader = new IndexedJarLoader(jar, indexDirectory);
+    assertThat(loader.loadBytes("org/sonar/tests/Hello.class")).isNotEmpty();
+
+    jar.setLastModified(jar.lastModified() - 10000);
+    IndexedJarLoader otherLoader = new IndexedJarLoader(jar, indexDirectory);
+    assertThat(indexDirectory.listFiles()).hasSize(1);
+    assertThat(otherLoader.classFiles()).containsOnly("org/sonar/tests/Hello.class");
+    otherLoader.close();
+    loader.close();
+  }
+
+  @Test
+  public void squid_class_loader_should_use_index() throws Exception {
+    File indexDirectory = temp.newFolder();
+    SquidClassLoader classLoader = new SquidClassLoader(Arrays.asList(JAR), indexDirectory);
+    assertThat(classLoader.getResource("org/sonar/tests/Hello.class")).isNotNull();
+    assertThat(classLoader.loadClass("org.sonar.tests.Hello")).isNotNull();
+    assertThat(indexDirectory.listFiles()).hasSize(1);
+    classLoader.close();
+  }
+
+}
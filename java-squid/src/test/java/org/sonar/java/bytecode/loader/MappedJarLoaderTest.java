@@ -0,0 +1,178 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.bytecode.loader;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class MappedJarLoaderTest {
+
+  private static final File JAR = new File("src/test/files/bytecode/lib/hello.jar");
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void shouldThrowIllegalArgumentException() throws Exception {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("file can't be null");
+    new MappedJarLoader(null);
+  }
+
+  @Test
+  public void should_read_same_content_as_jar_file() throws Exception {
+    MappedJarLoader loader = new MappedJarLoader(JAR);
+    JarLoader jarLoader = new JarLoader(JAR);
+
+    assertThat(loader.loadBytes("org/sonar/tests/Hello.class")).isEqualTo(jarLoader.loadBytes("org/sonar/tests/Hello.class"));
+    assertThat(loader.loadBytes("META-INF/MANIFEST.MF")).isEqualTo(jarLoader.loadBytes("META-INF/MANIFEST.MF"));
+    assertThat(loader.loadBytes("notfound")).isEmpty();
+    assertThat(loader.classFiles()).containsOnly("org/sonar/tests/Hello.class");
+
+    jarLoader.close();
+    loader.close();
+  }
+
+  @Test
+  public void testFindResource() throws Exception {
+    MappedJarLoader loader = new MappedJarLoader(JAR);
+
+    assertThat(loader.findResource("notfound")).isNull();
+
+    URL url = loader.findResource("META-INF/MANIFEST.MF");
+    assertThat(url.toString()).startsWith("jar:");
+    assertThat(url.toString()).endsWith("hello.jar!/META-INF/MANIFEST.MF");
+    InputStream is = url.openStream();
+    try {
+      assertThat(IOUtils.readLines(is)).contains("Manifest-Version: 1.0");
+    } finally {
+      IOUtils.closeQuietly(is);
+    }
+
+    loader.close();
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Loader closed");
+    loader.findResource("META-INF/MANIFEST.MF");
+  }
+
+  @Test
+  public void should_read_stored_entries() throws Exception {
+    byte[] content = FileUtils.readFileToByteArray(new File("src/test/files/bytecode/bin/tags/TagName.class"));
+    File jar = storedJar(content);
+
+    MappedJarLoader loader = new MappedJarLoader(jar);
+    assertThat(loader.loadBytes("tags/TagName.class")).isEqualTo(content);
+    loader.close();
+  }
+
+  @Test
+  public void should_fail_on_entry_larger_than_file() throws Exception {
+    byte[] jarContent = FileUtils.readFileToByteArray(storedJar(new byte[] {1, 2, 3}));
+    int centralDirectory = indexOf(jarContent, new byte[] {0x50, 0x4b, 0x01, 0x02});
+    // compressed size of the entry
+    jarContent[centralDirectory + 23] = 0x7F;
+    File jar = temp.newFile("corrupted.jar");
+    FileUtils.writeByteArrayToFile(jar, jarContent);
+
+    thrown.expect(IllegalStateException.class);
+    new MappedJarLoader(jar);
+  }
+
+  @Test
+  public void should_consider_entry_with_corrupted_local_header_as_missing() throws Exception {
+    byte[] jarContent = FileUtils.readFileToByteArray(storedJar(new byte[] {1, 2, 3}));
+    // length of the name in the local header
+    jarContent[27] = 0x7F;
+    File jar = temp.newFile("corrupted.jar");
+    FileUtils.writeByteArrayToFile(jar, jarContent);
+
+    MappedJarLoader loader = new MappedJarLoader(jar);
+    assertThat(loader.loadBytes("tags/TagName.class")).isEmpty();
+    loader.close();
+  }
+
+  private File storedJar(byte[] content) throws Exception {
+    File jar = temp.newFile("stored.jar");
+    ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar));
+    try {
+      ZipEntry entry = new ZipEntry("tags/TagName.class");
+      entry.setMethod(ZipEntry.STORED);
+      entry.setSize(content.length);
+      CRC32 crc = new CRC32();
+      crc.update(content);
+      entry.setCrc(crc.getValue());
+      out.putNextEntry(entry);
+      out.write(content);
+      out.closeEntry();
+      out.setComment("comment");
+    } finally {
+      out.close();
+    }
+    return jar;
+  }
+
+  private static int indexOf(byte[] content, byte[] searched) {
+    for (int i = 0; i <= content.length - searched.length; i++) {
+      int j = 0;
+      while (j < searched.length && content[i + j] == searched[j]) {
+        j++;
+      }
+      if (j == searched.length) {
+        return i;
+      }
+    }
+    throw new IllegalArgumentException();
+  }
+
+  @Test
+  public void should_fail_on_file_which_is_not_a_zip() throws Exception {
+    File file = temp.newFile("invalid.jar");
+    FileUtils.write(file, "not a zip");
+
+    thrown.expect(IllegalStateException.class);
+    new MappedJarLoader(file);
+  }
+
+  @Test
+  public void closeCanBeCalledMultipleTimes() throws Exception {
+    MappedJarLoader loader = new MappedJarLoader(JAR);
+    loader.close();
+    loader.close();
+  }
+
+}
@@ -101,6 +101,15 @@ public class SquidClassLoaderTest {
     classLoader.loadClass("tags.Unknown");
   }
 
+  @Test
+  public void should_index_classes_without_bootstrap_ones() throws Exception {
+    File dir = new File("src/test/files/bytecode/bin/");
+    classLoader = new SquidClassLoader(Arrays.asList(dir));
+    assertThat(classLoader.hasIndexedClass("tags/TagName.class")).isTrue();
+    assertThat(classLoader.hasIndexedClass("tags/TAGNAME.class")).isFalse();
+    assertThat(classLoader.hasIndexedClass("java/lang/Integer.class")).isFalse();
+  }
+
   @Test
   public void testFindResource() throws Exception {
     File dir = new File("src/test/files/bytecode/bin/");
@@ -118,6 +127,37 @@ public class SquidClassLoaderTest {
     assertThat(Iterators.forEnumeration(classLoader.findResources("notfound"))).hasSize(0);
   }
 
+  @Test
+  public void first_loader_providing_a_class_wins() throws Exception {
+    File dir = new File("src/test/files/bytecode/bin/");
+    File jar = new File("src/test/files/bytecode/lib/hello.jar");
+    classLoader = new SquidClassLoader(Arrays.asList(jar, dir, jar));
+
+    assertThat(classLoader.findResource("tags/TagName.class").getProtocol()).isEqualTo("file");
+    assertThat(classLoader.findResource("org/sonar/tests/Hello.class").getProtocol()).isEqualTo("jar");
+    assertThat(classLoader.findResource("tags/Unknown.class")).isNull();
+  }
+
+  @Test
+  public void missing_resources_are_remembered() throws Exception {
+    File jar = new File("src/test/files/bytecode/lib/hello.jar");
+    classLoader = new SquidClassLoader(Arrays.asList(jar));
+
+    assertThat(classLoader.findResource("notfound")).isNull();
+    assertThat(classLoader.findResource("notfound")).isNull();
+    assertThat(classLoader.findResource("META-INF/MANIFEST.MF")).isNotNull();
+  }
+
+  @Test
+  public void should_read_class_bytes() throws Exception {
+    File jar = new File("src/test/files/bytecode/lib/hello.jar");
+    classLoader = new SquidClassLoader(Arrays.asList(jar));
+
+    assertThat(classLoader.getClassBytes("org/sonar/tests/Hello.class")).isEqualTo(new JarLoader(jar).loadBytes("org/sonar/tests/Hello.class"));
+    assertThat(classLoader.getClassBytes("java/lang/Object.class")).isNotEmpty();
+    assertThat(classLoader.getClassBytes("foo/Unknown.class")).isNull();
+  }
+
   @Test
   public void closeCanBeCalledMultipleTimes() throws Exception {
     File jar = new File("src/test/files/bytecode/lib/hello.jar");
@@ -126,4 +166,16 @@ public class SquidClassLoaderTest {
     classLoader.close();
   }
 
+  @Test
+  public void jar_files_should_be_mapped_only_on_request() throws Exception {
+    File jar = new File("src/test/files/bytecode/lib/hello.jar");
+    assertThat(SquidClassLoader.jarLoader(jar, false)).isInstanceOf(JarLoader.class);
+    Loader mappedLoader = SquidClassLoader.jarLoader(jar, true);
+    assertThat(mappedLoader).isInstanceOf(MappedJarLoader.class);
+    mappedLoader.close();
+
+    classLoader = new SquidClassLoader(Arrays.asList(jar), null, true);
+    assertThat(classLoader.loadClass("org.sonar.tests.Hello")).isNotNull();
+  }
+
 }
@@ -39,6 +39,7 @@ import org.sonar.plugins.java.api.tree.VariableTree;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
@@ -352,6 +353,44 @@ public class CFGTest {
     cfgChecker.check(cfg);
   }
 
+  @Test
+  public void compact_representation() {
+    final CFG cfg = buildCFG("void fun(boolean c) { while (c) { if (c) { bar(); } else { baz(); } } return; qix(); }");
+    for (Block block : cfg.reversedBlocks()) {
+      assertThat(cfg.block(block.id())).isSameAs(block);
+      assertThat(ids(block.successors())).isEqualTo(block.successorIds());
+      assertThat(ids(block.predecessors())).isEqualTo(block.predecessorIds());
+      assertThat(block.elements()).isSameAs(block.elements());
+    }
+    int[] reversePostorder = cfg.reversePostorder();
+    assertThat(reversePostorder).hasSize(cfg.reversedBlocks().size());
+    assertThat(reversePostorder[0]).isEqualTo(cfg.entry().id());
+    Set<Integer> seen = new HashSet<>();
+    boolean unreachable = false;
+    for (int id : reversePostorder) {
+      assertThat(seen.add(id)).isTrue();
+      Block block = cfg.block(id);
+      if (block != cfg.entry() && block.predecessors().isEmpty()) {
+        unreachable = true;
+      } else {
+        // reachable blocks come first
+        assertThat(unreachable).isFalse();
+      }
+    }
+    assertThat(unreachable).isTrue();
+  }
+
+  private static int[] ids(Set<Block> blocks) {
+    int[] ids = new int[blocks.size()];
+    int i = 0;
+    for (Block block : blocks) {
+      ids[i] = block.id();
+      i++;
+    }
+    Arrays.sort(ids);
+    return ids;
+  }
+
   @Test
   public void simplest_cfg() {
     final CFG cfg = buildCFG("void fun() { bar();}");
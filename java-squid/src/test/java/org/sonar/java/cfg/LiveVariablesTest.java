@@ -23,9 +23,11 @@ import com.google.common.base.Charsets;
 import com.sonar.sslr.api.typed.ActionParser;
 import java.io.File;
 import java.util.Collections;
+import java.util.Set;
 import org.junit.Test;
 import org.sonar.java.ast.parser.JavaParser;
 import org.sonar.java.resolve.SemanticModel;
+import org.sonar.plugins.java.api.semantic.Symbol;
 import org.sonar.plugins.java.api.tree.ClassTree;
 import org.sonar.plugins.java.api.tree.CompilationUnitTree;
 import org.sonar.plugins.java.api.tree.MethodTree;
@@ -116,6 +118,23 @@ public class LiveVariablesTest {
     assertThat(liveVariables.getOut(cfg.reversedBlocks().get(3))).isEmpty();
   }
 
+  @Test
+  public void test_nested_loops() {
+    CFG cfg = buildCFG("void foo(boolean c) { int x = 0; int y = 0; while (c) { while (c) { use(x); } y = 1; } use(y); }");
+    LiveVariables liveVariables = LiveVariables.analyze(cfg);
+    Set<Symbol> outOfEntry = liveVariables.getOut(cfg.entry());
+    assertThat(outOfEntry).hasSize(3);
+    for (Symbol symbol : outOfEntry) {
+      assertThat(outOfEntry.contains(symbol)).isTrue();
+    }
+    assertThat(outOfEntry.contains(cfg.methodSymbol())).isFalse();
+    assertThat(outOfEntry.contains("x")).isFalse();
+  }
 
+  @Test(expected = UnsupportedOperationException.class)
+  public void out_should_be_immutable() {
+    CFG cfg = buildCFG("void foo(int a) {  int i; if (false) ; foo(i); }");
+    LiveVariables.analyze(cfg).getOut(cfg.entry()).clear();
+  }
 
 }
@@ -0,0 +1,272 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.collections;
+
+import org.junit.Test;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class HashTrieTest {
+
+  @Test
+  public void test_empty() {
+    HashTrie<String, String> t = HashTrie.create();
+    assertThat(t).as("singleton").isSameAs(HashTrie.create());
+    assertThat(t.isEmpty()).isTrue();
+    assertThat(t.size()).isEqualTo(0);
+    assertThat(t.get("anything")).isNull();
+    assertThat(t.remove("anything")).isSameAs(t);
+    assertThat(t.toString()).isEqualTo("");
+    assertThat(t.hashCode()).isEqualTo(0);
+    assertThat(t).isEqualTo(HashTrie.createForIntKeys());
+  }
+
+  @Test
+  public void no_change() {
+    HashTrie<String, String> t0 = HashTrie.create();
+    HashTrie<String, String> t1 = t0.put("1", "1");
+    assertThat(t1.put("1", "1")).isSameAs(t1);
+    assertThat(t1.add("1")).isSameAs(t1);
+    assertThat(t1.remove("3")).isSameAs(t1);
+    HashTrie<String, String> t2 = t1.put("1", "a");
+    assertThat(t2).isNotSameAs(t1);
+    assertThat(t2.get("1")).isEqualTo("a");
+    assertThat(t1.get("1")).isEqualTo("1");
+    assertThat(t2.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void test() {
+    test(HashTrie.<Integer, Object>create());
+    test(HashTrie.<Integer, Object>createForIntKeys());
+  }
+
+  private static void test(HashTrie<Integer, Object> empty) {
+    List<Integer> keys = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      keys.add(i);
+    }
+    Collections.shuffle(keys);
+
+    HashTrie<Integer, Object> t = empty;
+    for (Integer key : keys) {
+      t = t.add(key);
+      assertThat(t.add(key)).isSameAs(t);
+    }
+    assertThat(t.size()).isEqualTo(2000);
+    assertThat(Counter.countSet(t)).isEqualTo(2000);
+    assertThat(Counter.countMap(t)).isEqualTo(2000);
+    assertThat(t.entriesIterator()).hasSize(2000);
+    HashTrie<Integer, Object> t1 = t;
+    t = t.remove(45);
+    t = t.remove(21);
+    assertThat(t.contains(45)).isFalse();
+    assertThat(t).isNotEqualTo(t1);
+    t = t.add(21);
+    t = t.add(45);
+    assertThat(t).isEqualTo(t1);
+    assertThat(t.hashCode()).isEqualTo(t1.hashCode());
+
+    for (Integer key : keys) {
+      assertThat(t.contains(key)).isTrue();
+      t = t.remove(key);
+      assertThat(t.remove(key)).isSameAs(t);
+    }
+    assertThat(t.isEmpty()).isTrue();
+    assertThat(t).isEqualTo(empty);
+    assertThat(Counter.countSet(t)).isEqualTo(0);
+    assertThat(Counter.countMap(t)).isEqualTo(0);
+  }
+
+  @Test
+  public void colliding_hash_codes() {
+    HashTrie<Key, Integer> t = HashTrie.create();
+    for (int i = 0; i < 10; i++) {
+      t = t.put(new Key(i, 42), i);
+    }
+    assertThat(t.size()).isEqualTo(10);
+    for (int i = 0; i < 10; i++) {
+      assertThat(t.get(new Key(i, 42))).isEqualTo(i);
+    }
+    assertThat(t.get(new Key(10, 42))).isNull();
+    assertThat(t.put(new Key(3, 42), 3)).isSameAs(t);
+    assertThat(t.put(new Key(3, 42), 33).get(new Key(3, 42))).isEqualTo(33);
+    HashTrie<Key, Integer> t1 = t;
+    for (int i = 0; i < 9; i++) {
+      t = t.remove(new Key(i, 42));
+    }
+    assertThat(t.size()).isEqualTo(1);
+    assertThat(t.get(new Key(9, 42))).isEqualTo(9);
+    assertThat(t).isEqualTo(HashTrie.<Key, Integer>create().put(new Key(9, 42), 9));
+    for (int i = 8; i >= 0; i--) {
+      t = t.put(new Key(i, 42), i);
+    }
+    assertThat(t).isEqualTo(t1);
+  }
+
+  @Test
+  public void same_entries_as_hash_map() {
+    Random random = new Random(1);
+    HashTrie<Key, Integer> t = HashTrie.createForIntKeys();
+    Map<Key, Integer> map = new HashMap<>();
+    for (int i = 0; i < 10000; i++) {
+      // few distinct hash codes, some with the highest bit set
+      int id = random.nextInt(500);
+      Key key = new Key(id, (id % 7) * 0x10000001);
+      if (random.nextInt(3) == 0) {
+        t = t.remove(key);
+        map.remove(key);
+      } else {
+        Integer value = random.nextInt(5);
+        t = t.put(key, value);
+        map.put(key, value);
+      }
+      assertThat(t.size()).isEqualTo(map.size());
+    }
+    int hashCode = 0;
+    for (Map.Entry<Key, Integer> entry : map.entrySet()) {
+      assertThat(t.get(entry.getKey())).isEqualTo(entry.getValue());
+      hashCode += (31 * entry.getKey().hashCode()) ^ entry.getValue().hashCode();
+    }
+    assertThat(t.hashCode()).isEqualTo(hashCode);
+
+    List<Map.Entry<Key, Integer>> entries = new ArrayList<>(map.entrySet());
+    Collections.shuffle(entries, random);
+    HashTrie<Key, Integer> other = HashTrie.create();
+    HashTrie<Key, Integer> otherForIntKeys = HashTrie.createForIntKeys();
+    for (Map.Entry<Key, Integer> entry : entries) {
+      other = other.put(entry.getKey(), entry.getValue());
+      otherForIntKeys = otherForIntKeys.put(entry.getKey(), entry.getValue());
+    }
+    assertThat(other).isEqualTo(t);
+    assertThat(t).isEqualTo(other);
+    assertThat(otherForIntKeys).isEqualTo(t);
+  }
+
+  @Test
+  public void hashCode_equals_test() {
+    HashTrie<Integer, Object> t = HashTrie.create();
+    t = t.add(1);
+    t = t.add(2);
+    HashTrie<Integer, Object> t2 = HashTrie.create();
+    t2 = t2.add(2);
+    t2 = t2.add(1);
+    assertThat(t).isEqualTo(t2);
+    assertThat(t.hashCode()).isEqualTo(t2.hashCode());
+    assertThat(t.hashCode()).isEqualTo(AVLTree.<Integer, Object>create().add(1).add(2).hashCode());
+    assertThat(t.entriesIterator()).containsOnly(new AbstractMap.SimpleImmutableEntry(1, 1), new AbstractMap.SimpleImmutableEntry(2, 2));
+    t2 = t2.add(3);
+    assertThat(t.hashCode()).isNotEqualTo(t2.hashCode());
+    assertThat(t).isNotEqualTo(t2);
+    t = t.put(3, 33);
+    assertThat(t).isNotEqualTo(t2);
+    t = t.add(3);
+    assertThat(t).isEqualTo(t2);
+    assertThat(t).isEqualTo(t);
+    assertThat(t).isNotEqualTo(new Object());
+  }
+
+  @Test
+  public void test_to_string() {
+    HashTrie<Integer, Object> t = HashTrie.createForIntKeys();
+    t = t.add(1);
+    t = t.add(2);
+    assertThat(t.toString()).isEqualTo(" 1->1 2->2");
+  }
+
+  @Test
+  public void test_empty_iterator() {
+    HashTrie<Integer, Object> t = HashTrie.create();
+    assertThat(t.entriesIterator()).isEmpty();
+  }
+
+  @Test(expected = NoSuchElementException.class)
+  public void iterator_no_such_element_exception() {
+    HashTrie<Integer, Object> t = HashTrie.create();
+    t = t.add(1);
+    Iterator<Map.Entry<Integer, Object>> iterator = t.entriesIterator();
+    iterator.next();
+    iterator.next();
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void iterator_unsupported_remove() {
+    HashTrie<Integer, Object> t = HashTrie.create();
+    t = t.add(1);
+    t.entriesIterator().remove();
+  }
+
+  private static class Key {
+    private final int id;
+    private final int hashCode;
+
+    Key(int id, int hashCode) {
+      this.id = id;
+      this.hashCode = hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof Key && ((Key) obj).id == id;
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  private static class Counter<K, V> implements PMap.Consumer<K, V>, PSet.Consumer<K> {
+    int count;
+
+    public static <K> int countSet(PSet<K> set) {
+      Counter<K, K> counter = new Counter<>();
+      set.forEach(counter);
+      return counter.count;
+    }
+
+    public static <K, V> int countMap(PMap<K, V> map) {
+      Counter<K, V> counter = new Counter<>();
+      map.forEach(counter);
+      return counter.count;
+    }
+
+    @Override
+    public void accept(K key, V value) {
+      count++;
+    }
+
+    @Override
+    public void accept(K k) {
+      count++;
+    }
+  }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.collections;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SinglyLinkedListTest {
+
+  @Test
+  public void test_empty() {
+    PStack<String> empty = SinglyLinkedList.empty();
+    assertThat(empty.isEmpty()).isTrue();
+    assertThat(empty.size()).isEqualTo(0);
+    assertThat(empty.iterator().hasNext()).isFalse();
+    assertThat(empty.toString()).isEqualTo("[]");
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void peek_on_empty_stack() {
+    SinglyLinkedList.empty().peek();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void pop_on_empty_stack() {
+    SinglyLinkedList.empty().pop();
+  }
+
+  @Test(expected = NoSuchElementException.class)
+  public void iterator_past_the_end() {
+    SinglyLinkedList.empty().iterator().next();
+  }
+
+  @Test
+  public void push_and_pop() {
+    PStack<String> empty = SinglyLinkedList.empty();
+    PStack<String> a = empty.push("a");
+    PStack<String> ab = a.push("b");
+
+    assertThat(ab.peek()).isEqualTo("b");
+    assertThat(ab.size()).isEqualTo(2);
+    assertThat(ab.pop()).isSameAs(a);
+    assertThat(a.pop()).isSameAs(empty);
+    assertThat(a.size()).as("persistent").isEqualTo(1);
+    assertThat(ImmutableList.copyOf(ab)).containsExactly("b", "a");
+    assertThat(ab.toString()).isEqualTo("[b, a]");
+  }
+
+  @Test
+  public void test_equals_and_hashCode() {
+    PStack<String> empty = SinglyLinkedList.empty();
+    PStack<String> ab = empty.push("a").push("b");
+    PStack<String> otherAb = empty.push("a").push("b");
+    PStack<String> abc = ab.push("c");
+
+    assertThat(ab).isEqualTo(otherAb);
+    assertThat(ab.hashCode()).isEqualTo(otherAb.hashCode());
+    assertThat(ab.push("c")).isEqualTo(abc);
+    assertThat(ab).isNotEqualTo(abc);
+    assertThat(ab).isNotEqualTo(empty.push("b").push("a"));
+    assertThat(ab).isNotEqualTo(empty.push("x").push("b"));
+    assertThat(ab).isNotEqualTo("ab");
+    assertThat(empty.push(null)).isEqualTo(empty.push(null));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void iterator_is_read_only() {
+    Iterator<String> iterator = SinglyLinkedList.<String>empty().push("a").iterator();
+    iterator.next();
+    iterator.remove();
+  }
+
+}
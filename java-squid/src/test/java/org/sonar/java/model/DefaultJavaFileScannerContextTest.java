@@ -0,0 +1,84 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.model;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.sonar.java.ast.parser.JavaParser;
+import org.sonar.java.cfg.CFG;
+import org.sonar.java.cfg.LiveVariables;
+import org.sonar.java.resolve.SemanticModel;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.tree.ClassTree;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.squidbridge.api.SourceFile;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class DefaultJavaFileScannerContextTest {
+
+  @Test
+  public void control_flow_should_be_computed_once_per_method() {
+    CompilationUnitTree tree = (CompilationUnitTree) JavaParser.createParser(Charsets.UTF_8).parse("class A { void foo(int a) { foo(a); } void bar() { } }");
+    SemanticModel semanticModel = SemanticModel.createFor(tree, Lists.<File>newArrayList());
+    File file = new File("A.java");
+    DefaultJavaFileScannerContext context = new DefaultJavaFileScannerContext(tree, new SourceFile(file.getPath()), file, semanticModel, false, null,
+      new JavaVersionImpl(), true);
+    ClassTree classTree = (ClassTree) tree.types().get(0);
+    MethodTree foo = (MethodTree) classTree.members().get(0);
+    MethodTree bar = (MethodTree) classTree.members().get(1);
+
+    CFG cfg = context.getCfg(foo);
+    LiveVariables liveVariables = context.getLiveVariables(foo);
+    assertThat(context.getCfg(foo)).isSameAs(cfg);
+    assertThat(context.getLiveVariables(foo)).isSameAs(liveVariables);
+    assertThat(context.getCfg(bar)).isNotSameAs(cfg);
+    assertThat(liveVariables.getOut(cfg.entry())).isEmpty();
+
+    context.clearControlFlowCache();
+    assertThat(context.getCfg(foo)).isNotSameAs(cfg);
+    assertThat(context.getLiveVariables(foo)).isNotSameAs(liveVariables);
+  }
+
+  @Test
+  public void control_flow_should_be_shared_only_by_default_context() {
+    CompilationUnitTree tree = (CompilationUnitTree) JavaParser.createParser(Charsets.UTF_8).parse("class A { void foo(int a) { foo(a); } }");
+    SemanticModel semanticModel = SemanticModel.createFor(tree, Lists.<File>newArrayList());
+    File file = new File("A.java");
+    DefaultJavaFileScannerContext context = new DefaultJavaFileScannerContext(tree, new SourceFile(file.getPath()), file, semanticModel, false, null,
+      new JavaVersionImpl(), true);
+    MethodTree foo = (MethodTree) ((ClassTree) tree.types().get(0)).members().get(0);
+
+    CFG cfg = DefaultJavaFileScannerContext.cfgOf(context, foo);
+    assertThat(cfg).isSameAs(context.getCfg(foo));
+    assertThat(DefaultJavaFileScannerContext.liveVariablesOf(context, foo, cfg)).isSameAs(context.getLiveVariables(foo));
+
+    JavaFileScannerContext otherContext = mock(JavaFileScannerContext.class);
+    CFG otherCfg = DefaultJavaFileScannerContext.cfgOf(otherContext, foo);
+    assertThat(otherCfg).isNotSameAs(cfg);
+    assertThat(DefaultJavaFileScannerContext.liveVariablesOf(otherContext, foo, otherCfg).getOut(otherCfg.entry())).isEmpty();
+  }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.model;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FileContentTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void should_compute_line_start_offsets() throws Exception {
+    FileContent content = content("a\nbc\r\nd\re");
+    assertThat(content.text()).isEqualTo("a\nbc\r\nd\re");
+    assertThat(content.lineCount()).isEqualTo(4);
+    assertThat(content.lineStartOffset(1)).isEqualTo(0);
+    assertThat(content.lineStartOffset(2)).isEqualTo(2);
+    assertThat(content.lineStartOffset(3)).isEqualTo(6);
+    assertThat(content.lineStartOffset(4)).isEqualTo(8);
+  }
+
+  @Test
+  public void should_count_last_empty_line() throws Exception {
+    assertThat(content("").lineCount()).isEqualTo(1);
+    assertThat(content("a\n").lineCount()).isEqualTo(2);
+    assertThat(content("a\r").lineCount()).isEqualTo(2);
+    assertThat(content("\n\n\n\n\n\n\n\n\n\n\n\n\n\n\n\n\n\n\n\n").lineCount()).isEqualTo(21);
+  }
+
+  @Test
+  public void should_read_file_once() throws Exception {
+    File file = temp.newFile();
+    Files.write("\u00e9t\u00e9", file, Charsets.UTF_8);
+    FileContent content = new FileContent(file, Charsets.UTF_8);
+    assertThat(content.file()).isSameAs(file);
+    String text = content.text();
+    assertThat(text).isEqualTo("\u00e9t\u00e9");
+    file.delete();
+    assertThat(content.text()).isSameAs(text);
+  }
+
+  @Test
+  public void should_use_content_of_scanner_context() throws Exception {
+    FileContent content = content("class A {}");
+    DefaultJavaFileScannerContext context = new DefaultJavaFileScannerContext(null, null, content.file(), null, false, null, null, true);
+    assertThat(FileContent.of(context, Charsets.UTF_8)).isNotSameAs(content);
+    context.setFileContent(content);
+    assertThat(FileContent.of(context, Charsets.UTF_8)).isSameAs(content);
+    assertThat(context.getFileContent()).isEqualTo("class A {}");
+
+    JavaFileScannerContext otherContext = mock(JavaFileScannerContext.class);
+    when(otherContext.getFile()).thenReturn(content.file());
+    assertThat(FileContent.of(otherContext, Charsets.UTF_8).text()).isEqualTo("class A {}");
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void should_not_guess_charset_of_scanner_context() throws Exception {
+    new DefaultJavaFileScannerContext(null, null, temp.newFile(), null, false, null, null, true).getFileContent();
+  }
+
+  private FileContent content(String text) throws Exception {
+    File file = temp.newFile();
+    Files.write(text, file, Charsets.UTF_8);
+    return new FileContent(file, Charsets.UTF_8);
+  }
+
+}
@@ -22,8 +22,13 @@ package org.sonar.java.model;
 import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.io.Files;
 import com.sonar.sslr.api.RecognitionException;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.java.SonarComponents;
 import org.sonar.java.ast.parser.JavaParser;
 import org.sonar.java.ast.visitors.VisitorContext;
 import org.sonar.plugins.java.api.IssuableSubscriptionVisitor;
@@ -40,9 +45,14 @@ import java.util.Collections;
 import java.util.List;
 
 import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class InternalVisitorsBridgeTest {
 
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   private final VisitorContext context = new VisitorContext(new SourceProject("Java project"));
 
   @Test
@@ -76,6 +86,33 @@ public class InternalVisitorsBridgeTest {
     checkFile(contstructFileName("org", "foo", "bar", "Foo.java"), "class Foo { arrrrrrgh", visitorsBridgeWithParsingIssue);
   }
 
+  @Test
+  public void should_profile_rules_instantiating_the_same_check_separately() throws Exception {
+    JavaFileScanner first = new EmptyScanner();
+    JavaFileScanner second = new EmptyScanner();
+    SonarComponents sonarComponents = mock(SonarComponents.class);
+    when(sonarComponents.getRuleKey(first)).thenReturn(RuleKey.of("squid", "first"));
+    when(sonarComponents.getRuleKey(second)).thenReturn(RuleKey.of("squid", "second"));
+    InternalVisitorsBridge visitorsBridge = new InternalVisitorsBridge(ImmutableList.of(first, second), Lists.<File>newArrayList(), sonarComponents);
+    File reportFile = temp.newFile("profiling.json");
+    visitorsBridge.setProfilingReport(reportFile);
+    visitorsBridge.setContext(context);
+    // no semantic model in java.lang, which is not needed to profile scanners
+    checkFile(contstructFileName("java", "lang", "someFile.java"), "package java.lang; class A {}", visitorsBridge);
+    visitorsBridge.endOfAnalysis();
+
+    String report = Files.toString(reportFile, Charsets.UTF_8);
+    assertThat(report).contains("\"name\": \"squid:first (" + EmptyScanner.class.getName() + ")\", \"calls\": 1");
+    assertThat(report).contains("\"name\": \"squid:second (" + EmptyScanner.class.getName() + ")\", \"calls\": 1");
+  }
+
+  private static class EmptyScanner implements JavaFileScanner {
+    @Override
+    public void scanFile(JavaFileScannerContext context) {
+      // nothing to do
+    }
+  }
+
   private void checkFile(String filename, String code, InternalVisitorsBridge visitorsBridge) {
     context.setFile(new File(filename));
     visitorsBridge.visitFile(parse(code));
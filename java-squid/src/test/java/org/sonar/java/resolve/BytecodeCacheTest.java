@@ -0,0 +1,101 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.resolve;
+
+import com.google.common.collect.Lists;
+import org.junit.After;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class BytecodeCacheTest {
+
+  private final BytecodeCache bytecodeCache = new BytecodeCache(Lists.newArrayList(new File("target/test-classes"), new File("target/classes")));
+
+  @After
+  public void tearDown() {
+    bytecodeCache.close();
+  }
+
+  @Test
+  public void should_read_class_files_once() {
+    byte[] classFile = bytecodeCache.classFile("org/sonar/java/resolve/targets/Annotations");
+    assertThat(classFile).isNotNull();
+    assertThat(new ClassReader(classFile).getClassName()).isEqualTo("org/sonar/java/resolve/targets/Annotations");
+    assertThat(bytecodeCache.classFile("org/sonar/java/resolve/targets/Annotations")).isSameAs(classFile);
+    assertThat(bytecodeCache.contains("org/sonar/java/resolve/targets/Annotations")).isTrue();
+  }
+
+  @Test
+  public void should_remember_missing_classes() {
+    assertThat(bytecodeCache.classFile("org/sonar/java/resolve/targets/Unknown")).isNull();
+    assertThat(bytecodeCache.contains("org/sonar/java/resolve/targets/Unknown")).isFalse();
+  }
+
+  @Test
+  public void should_check_exact_name_of_classes() {
+    assertThat(bytecodeCache.hasClass("org/sonar/java/resolve/targets/Annotations")).isTrue();
+    assertThat(bytecodeCache.hasClass("org/sonar/java/resolve/targets/ANNOTATIONS")).isFalse();
+    assertThat(bytecodeCache.hasClass("java/util/List")).isTrue();
+    assertThat(bytecodeCache.hasClass("java/util/Unknown")).isFalse();
+    // classes of the classpath are found in its index, without being read
+    bytecodeCache.startRecording();
+    assertThat(bytecodeCache.hasClass("org/sonar/java/resolve/targets/HasInnerClass")).isTrue();
+    assertThat(bytecodeCache.stopRecording()).containsOnly("org/sonar/java/resolve/targets/HasInnerClass");
+  }
+
+  @Test
+  public void should_reopen_classpath_after_close() {
+    assertThat(bytecodeCache.contains("org/sonar/java/resolve/targets/Annotations")).isTrue();
+    bytecodeCache.close();
+    assertThat(bytecodeCache.contains("org/sonar/java/resolve/targets/HasInnerClass")).isTrue();
+  }
+
+  @Test
+  public void should_drop_class_files_on_close() {
+    byte[] classFile = bytecodeCache.classFile("org/sonar/java/resolve/targets/Annotations");
+    bytecodeCache.close();
+    byte[] reread = bytecodeCache.classFile("org/sonar/java/resolve/targets/Annotations");
+    assertThat(reread).isNotSameAs(classFile);
+    assertThat(reread).isEqualTo(classFile);
+  }
+
+  @Test
+  public void should_share_class_files_between_files() {
+    BytecodeCompleter first = new BytecodeCompleter(bytecodeCache, new ParametrizedTypeCache());
+    new Symbols(first);
+    BytecodeCompleter second = new BytecodeCompleter(bytecodeCache, new ParametrizedTypeCache());
+    new Symbols(second);
+
+    JavaSymbol.TypeJavaSymbol firstSymbol = (JavaSymbol.TypeJavaSymbol) first.loadClass("org.sonar.java.resolve.targets.HasInnerClass");
+    JavaSymbol.TypeJavaSymbol secondSymbol = (JavaSymbol.TypeJavaSymbol) second.loadClass("org.sonar.java.resolve.targets.HasInnerClass");
+    assertThat(firstSymbol).isNotSameAs(secondSymbol);
+    assertThat(firstSymbol.getFullyQualifiedName()).isEqualTo(secondSymbol.getFullyQualifiedName());
+    assertThat(firstSymbol.memberSymbols()).hasSize(secondSymbol.memberSymbols().size());
+
+    first.done();
+    // completer does not close a shared cache
+    assertThat(second.loadClass("org.sonar.java.resolve.targets.Annotations").isTypeSymbol()).isTrue();
+  }
+
+}
@@ -19,13 +19,18 @@
  */
 package org.sonar.java.resolve;
 
+import com.google.common.collect.ImmutableList;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.fest.assertions.Assertions.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class JavaSymbolTest {
   private static final JavaSymbol.PackageJavaSymbol P_PACKAGE_JAVA_SYMBOL = new JavaSymbol.PackageJavaSymbol(null, null);
@@ -42,12 +47,64 @@ public class JavaSymbolTest {
   public void completion_should_use_completer() {
     JavaSymbol symbol = new JavaSymbol(0, 0, null, null);
     JavaSymbol.Completer completer = mock(JavaSymbol.Completer.class);
+    when(completer.completionLock()).thenReturn(new Object());
     symbol.completer = completer;
     symbol.complete();
     verify(completer).complete(symbol);
     assertThat(symbol.completer).isNull();
   }
 
+  @Test
+  public void completion_should_hold_lock_of_completer() {
+    final Object lock = new Object();
+    final JavaSymbol symbol = new JavaSymbol(0, 0, null, null);
+    final List<Boolean> locked = new ArrayList<>();
+    symbol.completer = new JavaSymbol.Completer() {
+      @Override
+      public void complete(JavaSymbol completedSymbol) {
+        locked.add(Thread.holdsLock(lock));
+        // completion requested again while completing the symbol returns right away
+        completedSymbol.complete();
+      }
+
+      @Override
+      public Object completionLock() {
+        return lock;
+      }
+    };
+    symbol.complete();
+    symbol.complete();
+    assertThat(locked).containsExactly(true);
+  }
+
+  @Test
+  public void super_types_should_not_be_kept_while_hierarchy_is_being_completed() {
+    JavaSymbol.PackageJavaSymbol defaultPackage = new JavaSymbol.PackageJavaSymbol("", null);
+    final JavaSymbol.TypeJavaSymbol c = new JavaSymbol.TypeJavaSymbol(Flags.INTERFACE, "C", defaultPackage);
+    final JavaSymbol.TypeJavaSymbol i = new JavaSymbol.TypeJavaSymbol(Flags.INTERFACE, "I", defaultPackage);
+    final JavaSymbol.TypeJavaSymbol j = new JavaSymbol.TypeJavaSymbol(Flags.INTERFACE, "J", defaultPackage);
+    ((JavaType.ClassJavaType) c.type).interfaces = ImmutableList.<JavaType>of(i.type);
+    ((JavaType.ClassJavaType) i.type).interfaces = ImmutableList.of();
+    ((JavaType.ClassJavaType) j.type).interfaces = ImmutableList.of();
+    final List<String> superTypesWhileCompleting = new ArrayList<>();
+    i.completer = new JavaSymbol.Completer() {
+      @Override
+      public void complete(JavaSymbol completedSymbol) {
+        superTypesWhileCompleting.addAll(c.superTypeNames());
+        ((JavaType.ClassJavaType) i.type).interfaces = ImmutableList.<JavaType>of(j.type);
+      }
+
+      @Override
+      public Object completionLock() {
+        return new Object();
+      }
+    };
+    i.complete();
+    assertThat(superTypesWhileCompleting).containsOnly("I");
+    assertThat(c.superTypeNames()).containsOnly("I", "J");
+    assertThat(c.superTypes()).containsOnly((JavaType.ClassJavaType) i.type, (JavaType.ClassJavaType) j.type);
+  }
+
   @Test
   public void test_PackageSymbol() {
     JavaSymbol owner = mock(JavaSymbol.class);
@@ -152,4 +209,34 @@ public class JavaSymbolTest {
     assertThat(P_PACKAGE_JAVA_SYMBOL.isPackageSymbol()).isTrue();
     assertThat(outermostClass.isPackageSymbol()).isFalse();
   }
+
+  @Test
+  public void super_types_should_be_computed_once_hierarchy_is_completed() {
+    JavaSymbol.TypeJavaSymbol objectSymbol = new JavaSymbol.TypeJavaSymbol(0, "Object", new JavaSymbol.PackageJavaSymbol("java.lang", null));
+    JavaSymbol.TypeJavaSymbol interfaceSymbol = new JavaSymbol.TypeJavaSymbol(Flags.INTERFACE, "I", defaultPackage);
+    JavaSymbol.TypeJavaSymbol superClassSymbol = new JavaSymbol.TypeJavaSymbol(0, "B", P_PACKAGE_JAVA_SYMBOL);
+    JavaSymbol.TypeJavaSymbol classSymbol = new JavaSymbol.TypeJavaSymbol(0, "A", P_PACKAGE_JAVA_SYMBOL);
+    setHierarchy(objectSymbol, null);
+    setHierarchy(interfaceSymbol, null);
+    setHierarchy(superClassSymbol, objectSymbol.type, interfaceSymbol.type);
+    setHierarchy(classSymbol, null);
+
+    // superclass of A is not known yet: its super types are computed again on next call
+    assertThat(classSymbol.superTypes()).isEmpty();
+    ((JavaType.ClassJavaType) classSymbol.type).supertype = superClassSymbol.type;
+    assertThat(classSymbol.superTypes()).containsOnly(superClassSymbol.type, objectSymbol.type, interfaceSymbol.type);
+    assertThat(classSymbol.superTypes()).isSameAs(classSymbol.superTypes());
+    assertThat(classSymbol.superTypeNames()).containsOnly("B", "java.lang.Object", "I");
+    assertThat(classSymbol.type.isSubtypeOf("I")).isTrue();
+    assertThat(classSymbol.type.isSubtypeOf(objectSymbol.type)).isTrue();
+    assertThat(classSymbol.type.isSubtypeOf("java.io.Serializable")).isFalse();
+    assertThat(objectSymbol.superTypes()).isEmpty();
+    assertThat(interfaceSymbol.superTypes()).isEmpty();
+  }
+
+  private static void setHierarchy(JavaSymbol.TypeJavaSymbol symbol, JavaType supertype, JavaType... interfaces) {
+    JavaType.ClassJavaType classType = (JavaType.ClassJavaType) symbol.type;
+    classType.supertype = supertype;
+    classType.interfaces = ImmutableList.copyOf(interfaces);
+  }
 }
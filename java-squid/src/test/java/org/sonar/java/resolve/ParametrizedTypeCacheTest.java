@@ -0,0 +1,62 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.resolve;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ParametrizedTypeCacheTest {
+
+  private final ParametrizedTypeCache parametrizedTypeCache = new ParametrizedTypeCache();
+  private final Symbols symbols = new Symbols(new BytecodeCompleter(Lists.<File>newArrayList(), parametrizedTypeCache));
+
+  @Test
+  public void should_intern_parametrized_types() {
+    JavaSymbol.PackageJavaSymbol packageSymbol = new JavaSymbol.PackageJavaSymbol("org.foo", null);
+    JavaSymbol.TypeJavaSymbol list = new JavaSymbol.TypeJavaSymbol(0, "List", packageSymbol);
+    JavaType.TypeVariableJavaType e = new JavaType.TypeVariableJavaType(new JavaSymbol.TypeVariableJavaSymbol("E", list));
+
+    JavaType listOfString = parametrizedTypeCache.getParametrizedTypeType(list, new TypeSubstitution().add(e, symbols.stringType));
+    assertThat(listOfString).isInstanceOf(JavaType.ParametrizedTypeJavaType.class);
+    assertThat(parametrizedTypeCache.getParametrizedTypeType(list, new TypeSubstitution().add(e, symbols.stringType))).isSameAs(listOfString);
+    assertThat(parametrizedTypeCache.getParametrizedTypeType(list, new TypeSubstitution().add(e, symbols.objectType))).isNotSameAs(listOfString);
+  }
+
+  @Test
+  public void should_not_parametrize_unknown_types() {
+    assertThat(parametrizedTypeCache.getParametrizedTypeType(Symbols.unknownSymbol, new TypeSubstitution())).isSameAs(Symbols.unknownType);
+  }
+
+  @Test
+  public void should_intern_array_types() {
+    JavaType.ArrayJavaType stringArray = parametrizedTypeCache.getArrayType(symbols.stringType, symbols.arrayClass);
+    assertThat(stringArray.elementType()).isSameAs(symbols.stringType);
+    assertThat(parametrizedTypeCache.getArrayType(symbols.stringType, symbols.arrayClass)).isSameAs(stringArray);
+    assertThat(parametrizedTypeCache.getArrayType(stringArray, symbols.arrayClass).elementType()).isSameAs(stringArray);
+    assertThat(parametrizedTypeCache.getArrayType(symbols.intType, symbols.arrayClass)).isNotSameAs(stringArray);
+    // type of elements of array initializers is not known yet
+    assertThat(parametrizedTypeCache.getArrayType(null, symbols.arrayClass)).isNotSameAs(parametrizedTypeCache.getArrayType(null, symbols.arrayClass));
+  }
+
+}
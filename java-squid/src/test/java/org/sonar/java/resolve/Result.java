@@ -25,6 +25,7 @@ import com.sonar.sslr.api.typed.ActionParser;
 import org.sonar.java.ast.parser.JavaParser;
 import org.sonar.java.model.JavaTree;
 import org.sonar.plugins.java.api.semantic.Symbol;
+import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
 import org.sonar.plugins.java.api.tree.CompilationUnitTree;
 import org.sonar.plugins.java.api.tree.IdentifierTree;
 import org.sonar.plugins.java.api.tree.SyntaxToken;
@@ -32,14 +33,26 @@ import org.sonar.plugins.java.api.tree.Tree;
 
 import javax.annotation.Nullable;
 import java.io.File;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 class Result {
 
   private static final ActionParser parser = JavaParser.createParser(Charsets.UTF_8);
   private final SemanticModel semanticModel;
+  private final Set<Symbol> usedSymbols = new LinkedHashSet<>();
 
-  private Result(SemanticModel semanticModel) {
+  private Result(SemanticModel semanticModel, CompilationUnitTree tree) {
     this.semanticModel = semanticModel;
+    tree.accept(new BaseTreeVisitor() {
+      @Override
+      public void visitIdentifier(IdentifierTree tree) {
+        if (tree.symbol().usages().contains(tree)) {
+          usedSymbols.add(tree.symbol());
+        }
+        super.visitIdentifier(tree);
+      }
+    });
   }
 
   public static Result createFor(String name) {
@@ -49,7 +62,7 @@ class Result {
   public static Result createForJavaFile(String filePath) {
     File file = new File(filePath + ".java");
     CompilationUnitTree compilationUnitTree = (CompilationUnitTree) parser.parse(file);
-    return new Result(SemanticModel.createFor(compilationUnitTree, Lists.newArrayList(new File("target/test-classes"), new File("target/classes"))));
+    return new Result(SemanticModel.createFor(compilationUnitTree, Lists.newArrayList(new File("target/test-classes"), new File("target/classes"))), compilationUnitTree);
   }
 
   public JavaSymbol symbol(String name) {
@@ -99,7 +112,7 @@ class Result {
   private Object referenceTree(int line, int column, boolean searchSymbol, @Nullable String name) {
     // In SSLR column starts at 0, but here we want consistency with IDE, so we start from 1:
     column -= 1;
-    for (Symbol symbol : semanticModel.getSymbolUsed()) {
+    for (Symbol symbol : usedSymbols) {
       if (name != null && !name.equals(symbol.name())) {
         continue;
       }
@@ -0,0 +1,90 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.resolve;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.sonar.java.ast.parser.JavaParser;
+import org.sonar.plugins.java.api.semantic.Symbol;
+import org.sonar.plugins.java.api.tree.BlockTree;
+import org.sonar.plugins.java.api.tree.ClassTree;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.ExpressionStatementTree;
+import org.sonar.plugins.java.api.tree.MethodInvocationTree;
+import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.plugins.java.api.tree.VariableTree;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SemanticModelTest {
+
+  @Test
+  public void symbols_and_environments_should_be_found_from_trees() {
+    CompilationUnitTree tree = (CompilationUnitTree) JavaParser.createParser(Charsets.UTF_8).parse("class A { void foo() { int a = 0; } }");
+    SemanticModel semanticModel = SemanticModel.createFor(tree, Lists.<File>newArrayList());
+    ClassTree classTree = (ClassTree) tree.types().get(0);
+    MethodTree methodTree = (MethodTree) classTree.members().get(0);
+    BlockTree block = methodTree.block();
+    VariableTree variable = (VariableTree) block.body().get(0);
+
+    assertThat(semanticModel.getSymbol(classTree)).isSameAs(classTree.symbol());
+    assertThat(semanticModel.getTree(classTree.symbol())).isSameAs(classTree);
+    assertThat(semanticModel.getSymbol(variable)).isSameAs(variable.symbol());
+    assertThat(semanticModel.getTree(variable.symbol())).isSameAs(variable);
+    assertThat(semanticModel.getSymbol(block)).isNull();
+
+    Resolve.Env blockEnv = semanticModel.getEnv(block);
+    assertThat(semanticModel.getTree(blockEnv)).isSameAs(block);
+    // environment of a tree is the one of its closest ancestor introducing an environment
+    assertThat(semanticModel.getEnv(variable.initializer())).isSameAs(blockEnv);
+    assertThat(semanticModel.getEnclosingClass(variable)).isSameAs(classTree.symbol());
+    assertThat(semanticModel.getTree(semanticModel.getEnv(variable.symbol()))).isSameAs(block);
+    assertThat(semanticModel.getTree((Resolve.Env) null)).isNull();
+  }
+
+  @Test
+  public void resolutions_of_methods_of_classpath_types_should_be_cached() {
+    CompilationUnitTree tree = (CompilationUnitTree) JavaParser.createParser(Charsets.UTF_8)
+      .parse("class A { int foo(String s) { s.length(); s.length(); return bar(s.length()); } int bar(int i) { return bar(i); } }");
+    SemanticModel semanticModel = SemanticModel.createFor(tree, Lists.<File>newArrayList());
+    ClassTree classTree = (ClassTree) tree.types().get(0);
+    MethodTree foo = (MethodTree) classTree.members().get(0);
+    ExpressionStatementTree first = (ExpressionStatementTree) foo.block().body().get(0);
+    ExpressionStatementTree second = (ExpressionStatementTree) foo.block().body().get(1);
+
+    Symbol length = ((MethodInvocationTree) first.expression()).symbol();
+    assertThat(length.isMethodSymbol()).isTrue();
+    assertThat(((MethodInvocationTree) second.expression()).symbol()).isSameAs(length);
+    // calls to methods declared in the file are not cached
+    MethodResolutionStatistics statistics = semanticModel.methodResolutionStatistics();
+    assertThat(statistics.lookups()).isEqualTo(3);
+    assertThat(statistics.hits()).isEqualTo(2);
+
+    MethodResolutionStatistics total = new MethodResolutionStatistics();
+    total.add(statistics);
+    total.add(statistics);
+    assertThat(total.lookups()).isEqualTo(6);
+    assertThat(total.hits()).isEqualTo(4);
+  }
+
+}
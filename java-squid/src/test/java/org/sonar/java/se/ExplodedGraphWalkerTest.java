@@ -87,6 +87,42 @@ public class ExplodedGraphWalkerTest {
     });
   }
 
+  @Test
+  public void exploration_should_stop_when_budget_is_reached() throws Exception {
+    final SymbolicExecutionStatistics statistics = new SymbolicExecutionStatistics();
+    JavaCheckVerifier.verifyNoIssue("src/test/files/se/SeEngineTestCase.java", new SymbolicExecutionVisitor(new SymbolicExecutionBudget(10, 0, 0), statistics));
+    assertThat(statistics.maxStepsReached()).isPositive();
+    assertThat(statistics.maxNodesReached()).isEqualTo(0);
+
+    final SymbolicExecutionStatistics nodesStatistics = new SymbolicExecutionStatistics();
+    JavaCheckVerifier.verifyNoIssue("src/test/files/se/SeEngineTestCase.java", new SymbolicExecutionVisitor(new SymbolicExecutionBudget(10000, 0, 5), nodesStatistics));
+    assertThat(nodesStatistics.maxNodesReached()).isPositive();
+    assertThat(nodesStatistics.maxStepsReached()).isEqualTo(0);
+    assertThat(nodesStatistics.constraintsTooBig()).isEqualTo(0);
+
+    final SymbolicExecutionStatistics defaultStatistics = new SymbolicExecutionStatistics();
+    JavaCheckVerifier.verifyNoIssue("src/test/files/se/SeEngineTestCase.java", new SymbolicExecutionVisitor(SymbolicExecutionBudget.DEFAULT, defaultStatistics));
+    assertThat(defaultStatistics.completed()).isPositive();
+    assertThat(defaultStatistics.maxStepsReached() + defaultStatistics.maxNodesReached() + defaultStatistics.maxTimeReached()
+      + defaultStatistics.constraintsTooBig()).isEqualTo(0);
+    defaultStatistics.log();
+  }
+
+  @Test
+  public void each_method_should_be_explored_once() throws Exception {
+    SymbolicExecutionStatistics statistics = new SymbolicExecutionStatistics();
+    JavaCheckVerifier.verifyNoIssue("src/test/files/se/NestedMethods.java", new SymbolicExecutionVisitor(SymbolicExecutionBudget.DEFAULT, statistics));
+    // foo, the two run methods, bar and toString
+    assertThat(statistics.explorations()).isEqualTo(5);
+    assertThat(statistics.completed()).isEqualTo(5);
+    assertThat(statistics.skipped()).isEqualTo(1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void budget_should_have_steps() throws Exception {
+    new SymbolicExecutionBudget(0, 0, 0);
+  }
+
   class IssueVisitor implements JavaFileScanner {
 
     @Override
@@ -0,0 +1,97 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.sonar.sslr.api.typed.ActionParser;
+import org.junit.Test;
+import org.sonar.java.ast.parser.JavaParser;
+import org.sonar.java.model.DefaultJavaFileScannerContext;
+import org.sonar.java.model.JavaTree;
+import org.sonar.java.model.JavaVersionImpl;
+import org.sonar.java.resolve.SemanticModel;
+import org.sonar.java.se.checks.ConditionAlwaysTrueOrFalseCheck;
+import org.sonar.java.se.checks.LocksNotUnlockedCheck;
+import org.sonar.java.se.checks.NullDereferenceCheck;
+import org.sonar.java.se.checks.SECheck;
+import org.sonar.java.se.checks.UnclosedResourcesCheck;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.Tree;
+import org.sonar.squidbridge.api.SourceFile;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SymbolicExecutionVisitorTest {
+
+  private static final List<Class<? extends SECheck>> CHECKS = ImmutableList.of(
+    NullDereferenceCheck.class, ConditionAlwaysTrueOrFalseCheck.class, UnclosedResourcesCheck.class, LocksNotUnlockedCheck.class);
+
+  @Test
+  public void parallel_exploration_should_report_same_issues_in_same_order() {
+    ActionParser parser = JavaParser.createParser(Charsets.UTF_8);
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      for (String filename : new String[] {"NullDereferenceCheck.java", "ConditionAlwaysTrueOrFalseCheck.java", "UnclosedResourcesCheck.java",
+        "LocksNotUnlockedCheck.java", "NestedMethods.java"}) {
+        File file = new File("src/test/files/se/" + filename);
+        // each exploration uses its own tree and semantic model, so that the parallel one is the first to complete symbols and look up tokens
+        SymbolicExecutionStatistics parallelStatistics = new SymbolicExecutionStatistics();
+        DefaultJavaFileScannerContext parallelContext = explore(file, parser,
+          new SymbolicExecutionVisitor(SymbolicExecutionBudget.DEFAULT, parallelStatistics, pool));
+        SymbolicExecutionStatistics statistics = new SymbolicExecutionStatistics();
+        DefaultJavaFileScannerContext context = explore(file, parser, new SymbolicExecutionVisitor(SymbolicExecutionBudget.DEFAULT, statistics));
+
+        for (Class<? extends SECheck> check : CHECKS) {
+          assertThat(issues(parallelContext, check)).as(filename + " " + check.getSimpleName()).isEqualTo(issues(context, check));
+        }
+        assertThat(parallelStatistics.explorations()).isEqualTo(statistics.explorations());
+        assertThat(parallelStatistics.completed()).isEqualTo(statistics.completed());
+        assertThat(parallelStatistics.skipped()).isEqualTo(statistics.skipped());
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private static DefaultJavaFileScannerContext explore(File file, ActionParser parser, SymbolicExecutionVisitor visitor) {
+    CompilationUnitTree tree = (CompilationUnitTree) parser.parse(file);
+    SemanticModel semanticModel = SemanticModel.createFor(tree, Lists.<File>newArrayList());
+    DefaultJavaFileScannerContext context = new DefaultJavaFileScannerContext(tree, new SourceFile(file.getPath()), file, semanticModel, false, null,
+      new JavaVersionImpl(), true);
+    visitor.scanFile(context);
+    return context;
+  }
+
+  private static List<String> issues(DefaultJavaFileScannerContext context, Class<? extends SECheck> check) {
+    List<String> issues = Lists.newArrayList();
+    for (Map.Entry<Tree, String> issue : context.getSEIssues(check).entries()) {
+      issues.add(((JavaTree) issue.getKey()).getLine() + ": " + issue.getValue());
+    }
+    return issues;
+  }
+
+}
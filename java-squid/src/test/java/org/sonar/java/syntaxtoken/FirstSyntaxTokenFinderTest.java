@@ -22,6 +22,7 @@ package org.sonar.java.syntaxtoken;
 import com.google.common.base.Charsets;
 import org.junit.Test;
 import org.sonar.java.ast.parser.JavaParser;
+import org.sonar.java.model.JavaTree;
 import org.sonar.plugins.java.api.tree.ClassTree;
 import org.sonar.plugins.java.api.tree.CompilationUnitTree;
 import org.sonar.plugins.java.api.tree.ExpressionStatementTree;
@@ -607,6 +608,23 @@ public class FirstSyntaxTokenFinderTest {
     assertFirstTokenValue(firstClass.declarationKeyword(), "class");
   }
 
+  @Test
+  public void first_token_is_kept_on_tree() {
+    MethodTree method = getFirstMethod(getCompilationUnit("class Test { public void foo() {} }"));
+    SyntaxToken firstToken = getFirstSyntaxToken(method);
+    assertThat(firstToken.text()).isEqualTo("public");
+    assertThat(((JavaTree) method).firstToken()).isSameAs(firstToken);
+    assertThat(FirstSyntaxTokenFinder.findFirstSyntaxToken(method)).isSameAs(firstToken);
+
+    Tree emptyModifiers = getFirstMethod(getCompilationUnit("class Test { void foo() {} }")).modifiers();
+    assertThat(((JavaTree) emptyModifiers).firstToken()).isNull();
+    assertThat(((JavaTree) emptyModifiers).firstToken()).isNull();
+    assertThat(((JavaTree) emptyModifiers).getLine()).isEqualTo(-1);
+
+    assertThat(((JavaTree) firstToken).firstToken()).isSameAs(firstToken);
+    assertThat(((JavaTree) firstToken).lastToken()).isSameAs(firstToken);
+  }
+
   private static void assertFirstTokenValue(Tree tree, String expected) {
     assertThat(getFirstSyntaxToken(tree).text()).isEqualTo(expected);
   }
@@ -23,6 +23,7 @@ import com.google.common.base.Charsets;
 import org.junit.Test;
 import org.sonar.java.ast.parser.JavaParser;
 import org.sonar.java.model.InternalSyntaxToken;
+import org.sonar.java.model.JavaTree;
 import org.sonar.plugins.java.api.tree.CaseGroupTree;
 import org.sonar.plugins.java.api.tree.ClassTree;
 import org.sonar.plugins.java.api.tree.CompilationUnitTree;
@@ -688,6 +689,15 @@ public class LastSyntaxTokenFinderTest {
     assertLastStatementFirstTokenValue(firstClass.declarationKeyword(), "class");
   }
 
+  @Test
+  public void last_token_is_kept_on_tree() {
+    MethodTree method = getFirstMethod(getCompilationUnit("class Test { public void foo() {} }"));
+    SyntaxToken lastToken = getLastSyntaxToken(method);
+    assertThat(lastToken.text()).isEqualTo("}");
+    assertThat(((JavaTree) method).lastToken()).isSameAs(lastToken);
+    assertThat(LastSyntaxTokenFinder.findLastSyntaxToken(method)).isSameAs(lastToken);
+  }
+
   private void assertLastStatementFirstTokenValue(Tree tree, String expected) {
     assertThat(getLastSyntaxToken(tree).text()).isEqualTo(expected);
   }
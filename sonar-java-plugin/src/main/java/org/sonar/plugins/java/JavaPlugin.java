@@ -31,6 +31,7 @@ import org.sonar.java.JavaClasspathProperties;
 import org.sonar.java.JavaTestClasspath;
 import org.sonar.java.SonarComponents;
 import org.sonar.java.filters.SuppressWarningsFilter;
+import org.sonar.java.se.SymbolicExecutionBudget;
 import org.sonar.plugins.jacoco.JaCoCoExtensions;
 import org.sonar.plugins.surefire.SurefireExtensions;
 
@@ -44,6 +45,24 @@ public class JavaPlugin extends SonarPlugin {
   public static final String SQUID_ANALYSE_ACCESSORS_PROPERTY = "sonar.squid.analyse.property.accessors";
   public static final boolean SQUID_ANALYSE_ACCESSORS_DEFAULT_VALUE = true;
 
+  public static final String PARSING_THREADS_PROPERTY = "sonar.java.parsing.threads";
+  public static final int PARSING_THREADS_DEFAULT_VALUE = 1;
+
+  public static final String CLASSPATH_INDEX_DIRECTORY_PROPERTY = "sonar.java.classpath.index.directory";
+
+  public static final String CLASSPATH_MAP_JAR_FILES_PROPERTY = "sonar.java.classpath.mapJarFiles";
+
+  public static final String INCREMENTAL_CACHE_DIRECTORY_PROPERTY = "sonar.java.incremental.cache.directory";
+
+  public static final String PROFILING_PROPERTY = "sonar.java.profiling";
+
+  public static final String SE_MAX_STEPS_PROPERTY = "sonar.java.se.max.steps";
+  public static final String SE_MAX_TIME_PROPERTY = "sonar.java.se.max.time";
+  public static final String SE_MAX_NODES_PROPERTY = "sonar.java.se.max.nodes";
+  public static final String SE_THREADS_PROPERTY = "sonar.java.se.threads";
+
+  public static final String BYTECODE_THREADS_PROPERTY = "sonar.java.bytecode.threads";
+
   @Override
   public List getExtensions() {
     ImmutableList.Builder<Object> builder = ImmutableList.builder();
@@ -74,6 +93,100 @@ public class JavaPlugin extends SonarPlugin {
             .type(PropertyType.BOOLEAN)
             .onQualifiers(Qualifiers.PROJECT)
             .build(),
+        PropertyDefinition.builder(JavaPlugin.PARSING_THREADS_PROPERTY)
+            .defaultValue(Integer.toString(JavaPlugin.PARSING_THREADS_DEFAULT_VALUE))
+            .category(JAVA_CATEGORY)
+            .subCategory(GENERAL_SUBCATEGORY)
+            .name("Parsing threads")
+            .description("Number of threads used to parse source files. Files are still analyzed by rules one after the other, " +
+                "in the same order as with a single thread.")
+            .type(PropertyType.INTEGER)
+            .onQualifiers(Qualifiers.PROJECT)
+            .build(),
+        PropertyDefinition.builder(JavaPlugin.CLASSPATH_INDEX_DIRECTORY_PROPERTY)
+            .category(JAVA_CATEGORY)
+            .subCategory(GENERAL_SUBCATEGORY)
+            .name("Classpath index directory")
+            .description("Directory where the classes of the libraries are indexed, to be reused by next analyses as long as libraries do not change. " +
+                "Relative paths are resolved against the project base directory. Leave empty to disable.")
+            .onQualifiers(Qualifiers.PROJECT)
+            .build(),
+        PropertyDefinition.builder(JavaPlugin.CLASSPATH_MAP_JAR_FILES_PROPERTY)
+            .defaultValue(Boolean.toString(false))
+            .category(JAVA_CATEGORY)
+            .subCategory(GENERAL_SUBCATEGORY)
+            .name("Memory-map libraries")
+            .description("Read the classes of the libraries through a memory mapping instead of java.util.jar.JarFile, which allocates less. " +
+                "A mapping is released only when garbage collected, so libraries stay locked on Windows until then and can not be replaced during the analysis.")
+            .type(PropertyType.BOOLEAN)
+            .onQualifiers(Qualifiers.PROJECT)
+            .build(),
+        PropertyDefinition.builder(JavaPlugin.INCREMENTAL_CACHE_DIRECTORY_PROPERTY)
+            .category(JAVA_CATEGORY)
+            .subCategory(GENERAL_SUBCATEGORY)
+            .name("Incremental analysis cache directory")
+            .description("Directory where issues raised by rules are stored, to be replayed by next analyses on files which did not change. " +
+                "Relative paths are resolved against the project base directory. Leave empty to analyze all files with all rules.")
+            .onQualifiers(Qualifiers.PROJECT)
+            .build(),
+        PropertyDefinition.builder(JavaPlugin.PROFILING_PROPERTY)
+            .defaultValue(Boolean.toString(false))
+            .category(JAVA_CATEGORY)
+            .subCategory(GENERAL_SUBCATEGORY)
+            .name("Profiling")
+            .description("Record time and memory allocated by each rule and on each file, and write the slowest ones " +
+                "to java-profiling-main.json and java-profiling-test.json in the working directory of the analysis.")
+            .type(PropertyType.BOOLEAN)
+            .onQualifiers(Qualifiers.PROJECT)
+            .build(),
+        PropertyDefinition.builder(JavaPlugin.SE_MAX_STEPS_PROPERTY)
+            .defaultValue(Integer.toString(SymbolicExecutionBudget.DEFAULT_MAX_STEPS))
+            .category(JAVA_CATEGORY)
+            .subCategory(GENERAL_SUBCATEGORY)
+            .name("Symbolic execution maximum steps")
+            .description("Maximum number of steps of the symbolic execution of a method, after which the method is not explored further.")
+            .type(PropertyType.INTEGER)
+            .onQualifiers(Qualifiers.PROJECT)
+            .build(),
+        PropertyDefinition.builder(JavaPlugin.SE_MAX_TIME_PROPERTY)
+            .defaultValue("0")
+            .category(JAVA_CATEGORY)
+            .subCategory(GENERAL_SUBCATEGORY)
+            .name("Symbolic execution maximum time")
+            .description("Maximum time in milliseconds of the symbolic execution of a method, after which the method is not explored further. " +
+                "0 for no limit.")
+            .type(PropertyType.INTEGER)
+            .onQualifiers(Qualifiers.PROJECT)
+            .build(),
+        PropertyDefinition.builder(JavaPlugin.SE_MAX_NODES_PROPERTY)
+            .defaultValue("0")
+            .category(JAVA_CATEGORY)
+            .subCategory(GENERAL_SUBCATEGORY)
+            .name("Symbolic execution maximum graph size")
+            .description("Maximum number of nodes of the exploded graph of a method, after which the method is not explored further. 0 for no limit.")
+            .type(PropertyType.INTEGER)
+            .onQualifiers(Qualifiers.PROJECT)
+            .build(),
+        PropertyDefinition.builder(JavaPlugin.SE_THREADS_PROPERTY)
+            .defaultValue("1")
+            .category(JAVA_CATEGORY)
+            .subCategory(GENERAL_SUBCATEGORY)
+            .name("Symbolic execution threads")
+            .description("Number of threads used to explore the methods of a file with symbolic execution. Issues are reported " +
+                "in the same order as with a single thread.")
+            .type(PropertyType.INTEGER)
+            .onQualifiers(Qualifiers.PROJECT)
+            .build(),
+        PropertyDefinition.builder(JavaPlugin.BYTECODE_THREADS_PROPERTY)
+            .defaultValue("1")
+            .category(JAVA_CATEGORY)
+            .subCategory(GENERAL_SUBCATEGORY)
+            .name("Bytecode reading threads")
+            .description("Number of threads used to read the class files of the project. Only reading the files is parallel: classes are still " +
+                "decoded and analyzed one after the other, in the same order as with a single thread.")
+            .type(PropertyType.INTEGER)
+            .onQualifiers(Qualifiers.PROJECT)
+            .build(),
         PropertyDefinition.builder(CoreProperties.DESIGN_SKIP_DESIGN_PROPERTY)
             .defaultValue(Boolean.toString(CoreProperties.DESIGN_SKIP_DESIGN_DEFAULT_VALUE))
             .category(JAVA_CATEGORY)
@@ -20,6 +20,7 @@
 package org.sonar.plugins.java;
 
 import com.google.common.collect.Lists;
+import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.CoreProperties;
@@ -42,9 +43,12 @@ import org.sonar.java.SonarComponents;
 import org.sonar.java.api.JavaUtils;
 import org.sonar.java.checks.CheckList;
 import org.sonar.java.model.JavaVersionImpl;
+import org.sonar.java.se.SymbolicExecutionBudget;
 import org.sonar.plugins.java.api.JavaVersion;
 import org.sonar.plugins.java.bridges.DesignBridge;
 
+import javax.annotation.CheckForNull;
+
 import java.io.File;
 import java.nio.charset.Charset;
 import java.util.Collections;
@@ -127,9 +131,37 @@ public class JavaSquidSensor implements Sensor {
     JavaVersion javaVersion = getJavaVersion();
     LOG.info("Configured Java source version (" + Java.SOURCE_VERSION + "): " + javaVersion);
     conf.setJavaVersion(javaVersion);
+    conf.setParsingThreads(settings.getInt(JavaPlugin.PARSING_THREADS_PROPERTY));
+    conf.setClasspathIndexDirectory(getDirectory(JavaPlugin.CLASSPATH_INDEX_DIRECTORY_PROPERTY));
+    conf.setMapJarFiles(settings.getBoolean(JavaPlugin.CLASSPATH_MAP_JAR_FILES_PROPERTY));
+    conf.setIncrementalCacheDirectory(getDirectory(JavaPlugin.INCREMENTAL_CACHE_DIRECTORY_PROPERTY));
+    conf.setSymbolicExecutionBudget(getSymbolicExecutionBudget());
+    conf.setSymbolicExecutionThreads(settings.getInt(JavaPlugin.SE_THREADS_PROPERTY));
+    conf.setBytecodeThreads(settings.getInt(JavaPlugin.BYTECODE_THREADS_PROPERTY));
+    if (settings.getBoolean(JavaPlugin.PROFILING_PROPERTY)) {
+      conf.setProfilingReportDirectory(fs.workDir());
+    }
     return conf;
   }
 
+  @CheckForNull
+  private File getDirectory(String propertyKey) {
+    String path = settings.getString(propertyKey);
+    if (StringUtils.isBlank(path)) {
+      return null;
+    }
+    File directory = new File(path);
+    return directory.isAbsolute() ? directory : new File(fs.baseDir(), path);
+  }
+
+  private SymbolicExecutionBudget getSymbolicExecutionBudget() {
+    int maxSteps = settings.getInt(JavaPlugin.SE_MAX_STEPS_PROPERTY);
+    return new SymbolicExecutionBudget(
+      maxSteps > 0 ? maxSteps : SymbolicExecutionBudget.DEFAULT_MAX_STEPS,
+      Math.max(0, settings.getInt(JavaPlugin.SE_MAX_TIME_PROPERTY)),
+      Math.max(0, settings.getInt(JavaPlugin.SE_MAX_NODES_PROPERTY)));
+  }
+
   private JavaVersion getJavaVersion() {
     return JavaVersionImpl.fromString(settings.getString(Java.SOURCE_VERSION));
   }